@@ -2,7 +2,6 @@ package handy.storage;
 
 import android.database.Cursor;
 
-import java.lang.reflect.Field;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
@@ -13,7 +12,7 @@ import handy.storage.exception.IllegalUsageException;
 import handy.storage.exception.OperationException;
 import handy.storage.log.DatabaseLog;
 import handy.storage.util.Factory;
-import handy.storage.util.ReflectionUtils;
+import handy.storage.util.FieldAccessor;
 
 /**
  * Base class for {@link Table} implementation
@@ -105,6 +104,13 @@ abstract class AbstractTable {
 		return databaseCore.getDataAdapters();
 	}
 
+	/**
+	 * Returns the reader of the query columns.
+	 */
+	CursorReader getCursorReader(List<ColumnInfo> queryColumns) {
+		return new CursorReader(queryColumns, getDataAdapters());
+	}
+
 	protected Factory<QueryParams> getQueryParamsFactory() {
 		return queryParamsFactory;
 	}
@@ -118,9 +124,9 @@ abstract class AbstractTable {
 			throw new IllegalUsageException("the table is not bound to a model class");
 		}
 		List<Object> uniqueColumnValues = new ArrayList<>(elements.size());
-		Field uniqueField = column.getField();
+		FieldAccessor uniqueField = column.getFieldAccessor();
 		for (Object element : elements) {
-			uniqueColumnValues.add(ReflectionUtils.getFieldValue(uniqueField, element));
+			uniqueColumnValues.add(uniqueField.get(element));
 		}
 		return uniqueColumnValues;
 	}
@@ -0,0 +1,196 @@
+package handy.storage;
+
+import android.os.Looper;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+
+import handy.storage.api.Callback;
+import handy.storage.base.DatabaseAdapter;
+import handy.storage.exception.OperationException;
+
+/**
+ * Runs operations in background. Reads go to a pool of threads, writes are
+ * executed one by one by a single writer, so they are never blocked by each
+ * other in different threads.
+ */
+final class AsyncExecutors {
+
+	/**
+	 * Number of threads reading in parallel if concurrent reads are enabled.
+	 */
+	private static final int CONCURRENT_READ_THREADS = 4;
+
+	private final String databaseName;
+	private final DatabaseConfiguration configuration;
+
+	private ExecutorService defaultReadExecutor;
+	private ExecutorService defaultWriteExecutor;
+	private GroupCommitWriter groupCommitWriter;
+	private DatabaseAdapter databaseAdapter;
+	private Runnable initializer;
+
+	AsyncExecutors(String databaseName, DatabaseConfiguration configuration) {
+		this.databaseName = databaseName;
+		this.configuration = configuration;
+	}
+
+	/**
+	 * Sets the database the writes are committed to in the group commit
+	 * mode.
+	 *
+	 * @param initializer prepares the database before the first write
+	 */
+	synchronized void setDatabase(DatabaseAdapter databaseAdapter, Runnable initializer) {
+		this.databaseAdapter = databaseAdapter;
+		this.initializer = initializer;
+	}
+
+	/**
+	 * Executes a reading operation.
+	 *
+	 * @param callback callback or <code>null</code>
+	 */
+	<R> Future<R> read(OperationCall<R> call, Callback<? super R> callback) {
+		return execute(getReadExecutor(), call, callback);
+	}
+
+	/**
+	 * Executes a writing operation after the writes submitted before it.
+	 *
+	 * @param callback callback or <code>null</code>
+	 */
+	<R> Future<R> write(OperationCall<R> call, Callback<? super R> callback) {
+		if (configuration.groupCommit()) {
+			return getGroupCommitWriter().write(call, callback);
+		}
+		return execute(getWriteExecutor(), call, callback);
+	}
+
+	/**
+	 * Executes a writing operation on the calling thread. In the group commit
+	 * mode the operation is queued to the writer instead and shares a commit
+	 * with other writes, the calling thread waits for it.
+	 */
+	<R> R writeAndWait(OperationCall<R> call) throws OperationException {
+		if (!configuration.groupCommit() || !canWaitForWriter()) {
+			return call.call();
+		}
+		Future<R> future = getGroupCommitWriter().write(call, null);
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			future.cancel(false);
+			Thread.currentThread().interrupt();
+			throw new OperationException(e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof OperationException) {
+				throw (OperationException) cause;
+			} else if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			throw new OperationException(cause);
+		}
+	}
+
+	/**
+	 * The writer itself and the threads holding the database (running a
+	 * transaction) would wait for the writer forever, so they execute their
+	 * writes at once. UI thread gets the usual error this way.
+	 */
+	private synchronized boolean canWaitForWriter() {
+		if (databaseAdapter == null || databaseAdapter.isWriterHeldByCurrentThread()) {
+			return false;
+		}
+		if (groupCommitWriter != null && groupCommitWriter.isWriterThread()) {
+			return false;
+		}
+		return Looper.getMainLooper().getThread() != Thread.currentThread();
+	}
+
+	private <R> Future<R> execute(Executor executor, OperationCall<R> call, Callback<? super R> callback) {
+		FutureTask<R> task = new FutureTask<>(() -> {
+			R result;
+			try {
+				result = call.call();
+			} catch (Exception e) {
+				if (callback != null) {
+					configuration.callbackExecutor().execute(() -> callback.onError(e));
+				}
+				throw e;
+			}
+			if (callback != null) {
+				configuration.callbackExecutor().execute(() -> callback.onResult(result));
+			}
+			return result;
+		});
+		executor.execute(task);
+		return task;
+	}
+
+	private synchronized Executor getReadExecutor() {
+		if (configuration.readExecutor() != null) {
+			return configuration.readExecutor();
+		}
+		if (defaultReadExecutor == null) {
+			int threads = configuration.concurrentReads() ? CONCURRENT_READ_THREADS : 1;
+			defaultReadExecutor = Executors.newFixedThreadPool(threads, createThreadFactory(databaseName + " reader"));
+		}
+		return defaultReadExecutor;
+	}
+
+	private synchronized Executor getWriteExecutor() {
+		if (configuration.writeExecutor() != null) {
+			return configuration.writeExecutor();
+		}
+		if (defaultWriteExecutor == null) {
+			defaultWriteExecutor = Executors.newSingleThreadExecutor(createThreadFactory(databaseName + " writer"));
+		}
+		return defaultWriteExecutor;
+	}
+
+	private synchronized GroupCommitWriter getGroupCommitWriter() {
+		if (groupCommitWriter == null) {
+			groupCommitWriter = new GroupCommitWriter(databaseName + " writer", configuration, databaseAdapter, initializer);
+		}
+		return groupCommitWriter;
+	}
+
+	/**
+	 * Creates a factory of daemon threads with this name.
+	 */
+	static ThreadFactory createThreadFactory(String name) {
+		String threadName = "handy.storage: " + name;
+		return runnable -> {
+			Thread thread = new Thread(runnable, threadName);
+			thread.setDaemon(true);
+			return thread;
+		};
+	}
+
+	/**
+	 * Stops the executors created by default. Already submitted operations
+	 * are executed.
+	 */
+	synchronized void shutdown() {
+		if (defaultReadExecutor != null) {
+			defaultReadExecutor.shutdown();
+			defaultReadExecutor = null;
+		}
+		if (defaultWriteExecutor != null) {
+			defaultWriteExecutor.shutdown();
+			defaultWriteExecutor = null;
+		}
+		if (groupCommitWriter != null) {
+			groupCommitWriter.stop();
+			groupCommitWriter = null;
+		}
+	}
+
+}
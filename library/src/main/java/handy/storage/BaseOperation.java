@@ -39,7 +39,12 @@ abstract class BaseOperation<T extends BaseOperation> {
 
 	protected String getWhereClause() {
 		Expression where = getWhereExpression();
-		return where == null ? null : where.toString();
+		return where == null ? null : where.getSelection();
+	}
+
+	protected Object[] getWhereArguments() {
+		Expression where = getWhereExpression();
+		return where == null ? new Object[0] : where.getArguments();
 	}
 
 	protected Expression getWhereExpression() {
@@ -86,6 +91,18 @@ abstract class BaseOperation<T extends BaseOperation> {
 		return table.getDatabaseAdapter();
 	}
 
+	EntityCaches getEntityCaches() {
+		return table.getDatabaseCore().getEntityCaches();
+	}
+
+	ResultCache getResultCache() {
+		return table.getDatabaseCore().getResultCache();
+	}
+
+	AsyncExecutors getAsyncExecutors() {
+		return table.getDatabaseCore().getAsyncExecutors();
+	}
+
 	@SuppressWarnings("unchecked")
 	private T thisOperation() {
 		return (T) this;
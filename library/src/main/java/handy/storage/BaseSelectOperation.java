@@ -7,6 +7,7 @@ import java.util.Map;
 import handy.storage.api.DataSelection;
 import handy.storage.base.Order;
 import handy.storage.base.QueryParams;
+import handy.storage.base.SqlArguments;
 import handy.storage.util.Factory;
 
 /**
@@ -33,15 +34,25 @@ abstract class BaseSelectOperation<Interface extends DataSelection<?>, Subclass
 	}
 
 	protected static SelectOperation.DataReaderFactory getDataReaderFactory() {
+		return getDataReaderFactory(true);
+	}
+
+	/**
+	 * @param resolveReferences whether the referenced objects are loaded,
+	 *                          otherwise the key values are passed to the
+	 *                          collector in place of them
+	 */
+	static SelectOperation.DataReaderFactory getDataReaderFactory(boolean resolveReferences) {
 		return new SelectOperation.DataReaderFactory() {
 			@Override
 			public DataReader newDataReader(Table table, List<ColumnInfo> queryColumns, QueryParams queryParams) {
 				return new DataReader.ModelDataReader(
 					table.getDatabaseCore(),
 					table.getDatabaseAdapter(),
-					new CursorReader(queryColumns, table.getDataAdapters()),
+					table.getCursorReader(queryColumns),
 					queryParams,
-					initColumnIndexes(queryColumns)
+					initColumnIndexes(queryColumns),
+					resolveReferences
 				);
 			}
 
@@ -68,7 +79,7 @@ abstract class BaseSelectOperation<Interface extends DataSelection<?>, Subclass
 
 	protected void completeConfiguringQuery() {
 		fillQueryFromTableInfo();
-		queryParams.where(getWhereClause());
+		queryParams.where(getWhereClause(), getWhereArguments());
 	}
 
 	/**
@@ -78,7 +89,8 @@ abstract class BaseSelectOperation<Interface extends DataSelection<?>, Subclass
 	public Table asTable(String tableName) {
 		completeConfiguringQuery();
 		return new Table(
-			TableInfoFactory.createSelectionTableInfo(tableName, queryColumns, queryParams.toRawSqlQuery()),
+			TableInfoFactory.createSelectionTableInfo(tableName, queryColumns,
+				SqlArguments.inline(queryParams.toRawSqlQuery(), queryParams.getArguments())),
 			getDatabaseAdapter(),
 			getOwner().getDatabaseCore(),
 			QueryParams.DEFAULT_FACTORY);
@@ -129,7 +141,7 @@ abstract class BaseSelectOperation<Interface extends DataSelection<?>, Subclass
 	@Override
 	public Interface having(Expression expression) {
 		getOwner().checkExpressionOwner(expression);
-		queryParams.having(expression.toString());
+		queryParams.having(expression.getSelection(), expression.getArguments());
 		return (Interface) this;
 	}
 
@@ -0,0 +1,32 @@
+package handy.storage;
+
+import handy.storage.base.DatabaseAdapter;
+
+/**
+ * State of a cache and the database taken before a query whose result might
+ * be cached. The result can be cached only if the cache hasn't been
+ * invalidated since then and no write transaction has been open, otherwise it
+ * might be out of date or not committed.
+ */
+final class CacheReadMark {
+
+	private final long generation;
+	private final long epoch;
+
+	/**
+	 * @param generation number of the cache's invalidations so far
+	 */
+	CacheReadMark(long generation, DatabaseAdapter databaseAdapter) {
+		this.generation = generation;
+		this.epoch = databaseAdapter.getWriteTransactionEpoch();
+	}
+
+	/**
+	 * Whether the data read after taking this mark can be cached now.
+	 */
+	boolean isValid(long currentGeneration, DatabaseAdapter databaseAdapter) {
+		long currentEpoch = databaseAdapter.getWriteTransactionEpoch();
+		return generation == currentGeneration && epoch == currentEpoch && currentEpoch % 2 == 0;
+	}
+
+}
@@ -2,10 +2,12 @@ package handy.storage;
 
 import android.text.TextUtils;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.List;
 
 import handy.storage.api.ColumnCondition;
+import handy.storage.api.Value;
+import handy.storage.base.QueryParams;
 
 /**
  * Helps build columns expressions.
@@ -15,8 +17,15 @@ import handy.storage.api.ColumnCondition;
  */
 abstract class ColumnExpressionBuilder<T> implements ColumnCondition<T> {
 
+	/**
+	 * Number of keys changed or loaded by one statement when a large
+	 * collection of objects is split into several statements.
+	 */
+	static final int MAX_BOUND_LIST_SIZE = 100;
+
 	private final QueryAdapter queryAdapter;
 	private final String column;
+	private final List<Object> arguments = new ArrayList<>();
 	private String expressionString;
 
 	ColumnExpressionBuilder(String column, QueryAdapter queryAdapter) {
@@ -74,15 +83,13 @@ abstract class ColumnExpressionBuilder<T> implements ColumnCondition<T> {
 
 	@Override
 	public T in(Iterable<?> iterable) {
-		String[] values = convertValues(iterable);
-		expressionString = expressionString + " IN (" + TextUtils.join(",", values) + ")";
+		expressionString = valuesListString(false, convertValues(iterable));
 		return complete();
 	}
 
 	@Override
 	public T in(Object[] iterable) {
-		String[] values = convertValues(iterable);
-		expressionString = expressionString + " IN (" + TextUtils.join(",", values) + ")";
+		expressionString = valuesListString(false, convertValues(iterable));
 		return complete();
 	}
 
@@ -98,27 +105,27 @@ abstract class ColumnExpressionBuilder<T> implements ColumnCondition<T> {
 		return complete();
 	}
 
-	T inTable(String tableEntity) {
-		expressionString = expressionString + " IN (" + tableEntity + ")";
+	T inTable(QueryParams query) {
+		expressionString = expressionString + " IN (" + query.toRawSqlQuery() + ")";
+		addArguments(query.getArguments());
 		return complete();
 	}
 
 	@Override
 	public T notIn(Iterable<?> iterable) {
-		String[] values = convertValues(iterable);
-		expressionString = expressionString + " NOT IN (" + TextUtils.join(",", values) + ")";
+		expressionString = valuesListString(true, convertValues(iterable));
 		return complete();
 	}
 
 	@Override
 	public T notIn(Object[] iterable) {
-		String[] values = convertValues(iterable);
-		expressionString = expressionString + " NOT IN (" + TextUtils.join(",", values) + ")";
+		expressionString = valuesListString(true, convertValues(iterable));
 		return complete();
 	}
 
-	T notInTable(String tableEntity) {
-		expressionString = expressionString + " NOT IN (" + tableEntity + ")";
+	T notInTable(QueryParams query) {
+		expressionString = expressionString + " NOT IN (" + query.toRawSqlQuery() + ")";
+		addArguments(query.getArguments());
 		return complete();
 	}
 
@@ -142,12 +149,17 @@ abstract class ColumnExpressionBuilder<T> implements ColumnCondition<T> {
 
 	@Override
 	public T like(String argument) {
-		expressionString = expressionString + " LIKE " + QueryAdapter.wrapString(argument);
+		arguments.add(argument);
+		expressionString = expressionString + " LIKE ?";
 		return complete();
 	}
 
 	private String convertValue(Object value) {
-		return queryAdapter.convertToDatabaseValue(column, value);
+		if (value instanceof Value) {
+			return ((Value) value).getName();
+		}
+		arguments.add(queryAdapter.convertToDatabaseArgument(column, value));
+		return "?";
 	}
 
 	private String[] convertValues(Object... iterable) {
@@ -158,16 +170,30 @@ abstract class ColumnExpressionBuilder<T> implements ColumnCondition<T> {
 		return values;
 	}
 
+	/**
+	 * Builds <code>column IN (...)</code>. The values are bound, the
+	 * statement inlines them if it has more arguments than SQLite can bind.
+	 */
+	private String valuesListString(boolean not, String[] values) {
+		return expressionString + (not ? " NOT IN (" : " IN (") + TextUtils.join(",", values) + ")";
+	}
+
 	private String[] convertValues(Iterable<?> iterable) {
-		List<Object> valuesList = new LinkedList<>();
+		List<Object> valuesList = new ArrayList<>();
 		for (Object value : iterable) {
 			valuesList.add(value);
 		}
 		return convertValues(valuesList.toArray(new Object[valuesList.size()]));
 	}
 
+	private void addArguments(Object[] queryArguments) {
+		for (Object argument : queryArguments) {
+			arguments.add(argument);
+		}
+	}
+
 	Expression buildExpression() {
-		return new Expression(expressionString, queryAdapter);
+		return new Expression(expressionString, arguments.toArray(), queryAdapter);
 	}
 
 	abstract T complete();
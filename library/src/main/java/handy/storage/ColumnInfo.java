@@ -2,7 +2,11 @@ package handy.storage;
 
 import android.text.TextUtils;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.lang.reflect.Field;
+import java.util.Map;
 
 import handy.storage.api.Action;
 import handy.storage.api.ColumnType;
@@ -11,6 +15,7 @@ import handy.storage.api.Value;
 import handy.storage.base.OnConflictStrategy;
 import handy.storage.exception.IllegalUsageException;
 import handy.storage.util.ClassCast;
+import handy.storage.util.FieldAccessor;
 
 /**
  * Describes database field.
@@ -24,6 +29,7 @@ final class ColumnInfo {
 	static final int PRIMARY_KEY_AUTO_INCREMENT = AUTO_INCREMENT | PRIMARY_KEY;
 
 	private Field field;
+	private FieldAccessor fieldAccessor;
 	private Class<?> fieldType;
 	private final ColumnId columnId;
 	private ColumnId[] aliases;
@@ -170,6 +176,10 @@ final class ColumnInfo {
 		return field;
 	}
 
+	FieldAccessor getFieldAccessor() {
+		return fieldAccessor;
+	}
+
 	boolean isForeignKey() {
 		return referenceToTable != null;
 	}
@@ -193,6 +203,88 @@ final class ColumnInfo {
 		} 
 	}
 
+	/**
+	 * Writes the column of a model table to a schema snapshot, see
+	 * {@link SchemaSnapshot}. The field is written as the name of its
+	 * declaring class and its own name.
+	 */
+	void write(DataOutputStream output) throws IOException {
+		writeColumnId(output, columnId);
+		output.writeInt(aliases.length);
+		for (ColumnId alias : aliases) {
+			writeColumnId(output, alias);
+		}
+		output.writeUTF(columnType.name());
+		output.writeInt(flags);
+		SchemaSnapshot.writeNullableString(output, entity);
+		output.writeUTF(onConflictStrategy.name());
+		output.writeUTF(field.getDeclaringClass().getName());
+		output.writeUTF(field.getName());
+		output.writeUTF(field.getType().getName());
+		output.writeBoolean(referenceToTable != null);
+		if (referenceToTable != null) {
+			output.writeBoolean(isReference);
+			output.writeUTF(referenceToTable.modelClass.getName());
+			output.writeUTF(referenceToTable.foreignColumnName);
+			output.writeUTF(referenceToTable.foreignTableName);
+			output.writeUTF(referenceToTable.onUpdateAction.name());
+			output.writeUTF(referenceToTable.onDeleteAction.name());
+		}
+	}
+
+	/**
+	 * Reads a column of the model table written by
+	 * {@link #write(DataOutputStream)}. The field is found by its name, the
+	 * foreign column has to be bound by
+	 * {@link #bindForeignColumn(ColumnInfo, ColumnInfo, String)} then.
+	 *
+	 * @param models registered models by their names
+	 * @throws IOException if the field or the referenced model isn't found or
+	 *                     the field has changed
+	 */
+	static ColumnInfo read(DataInputStream input, Class<?> modelClass, Map<String, Class<? extends Model>> models, DataAdapters dataAdapters) throws IOException {
+		ColumnInfo column = new ColumnInfo(readColumnId(input), null);
+		column.aliases = new ColumnId[input.readInt()];
+		for (int i = 0; i < column.aliases.length; i++) {
+			column.aliases[i] = readColumnId(input);
+		}
+		column.columnType = ColumnType.valueOf(input.readUTF());
+		column.flags = input.readInt();
+		column.entity = SchemaSnapshot.readNullableString(input);
+		column.onConflictStrategy = OnConflictStrategy.valueOf(input.readUTF());
+		Field field = SchemaSnapshot.findField(modelClass, input.readUTF(), input.readUTF(), input.readUTF());
+		column.field = field;
+		column.fieldType = field.getType();
+		column.fieldAccessor = FieldAccessor.create(field);
+		if (input.readBoolean()) {
+			column.isReference = input.readBoolean();
+			Class<? extends Model> referencedModel = models.get(input.readUTF());
+			if (referencedModel == null) {
+				throw new IOException("the referenced model of " + column.getFullName() + " isn't registered");
+			}
+			column.referenceToTable = new ReferenceInfo(referencedModel, null, null);
+			column.referenceToTable.foreignColumnName = input.readUTF();
+			column.referenceToTable.foreignTableName = input.readUTF();
+			column.referenceToTable.onUpdateAction = Action.valueOf(input.readUTF());
+			column.referenceToTable.onDeleteAction = Action.valueOf(input.readUTF());
+		} else if (dataAdapters.getTypeAdapter(column.fieldType).getColumnType() != column.columnType) {
+			throw new IOException("the type adapter of " + column.getFullName() + " has changed");
+		}
+		return column;
+	}
+
+	private static void writeColumnId(DataOutputStream output, ColumnId columnId) throws IOException {
+		output.writeUTF(columnId.name);
+		SchemaSnapshot.writeNullableString(output, columnId.table);
+		SchemaSnapshot.writeNullableString(output, columnId.fieldName);
+	}
+
+	private static ColumnId readColumnId(DataInputStream input) throws IOException {
+		String name = input.readUTF();
+		String table = SchemaSnapshot.readNullableString(input);
+		return new ColumnId(name, table, SchemaSnapshot.readNullableString(input));
+	}
+
 	static ColumnInfo createVirtualColumn(String table, String alias, String entity) {
 		return new ColumnInfo.Builder(new ColumnId(alias, table), ColumnType.TEXT).setEntity(entity).build();
 	}
@@ -332,6 +424,17 @@ final class ColumnInfo {
 		Builder setField(Field field) {
 			columnInfo.fieldType = field != null ? field.getType() : null;
 			columnInfo.field = field;
+			columnInfo.fieldAccessor = field != null ? FieldAccessor.create(field) : null;
+			return this;
+		}
+
+		/**
+		 * Sets the same field as the column has, reusing its accessor.
+		 */
+		Builder setFieldOf(ColumnInfo column) {
+			columnInfo.fieldType = column.fieldType;
+			columnInfo.field = column.field;
+			columnInfo.fieldAccessor = column.fieldAccessor;
 			return this;
 		}
 
@@ -2,12 +2,10 @@ package handy.storage;
 
 import android.content.ContentValues;
 
-import java.lang.reflect.Field;
-
 import handy.storage.ColumnInfo.ReferenceInfo;
 import handy.storage.api.ColumnType;
 import handy.storage.exception.IllegalUsageException;
-import handy.storage.util.ReflectionUtils;
+import handy.storage.util.FieldAccessor;
 
 /**
  * Converts models to {@link ContentValues}.
@@ -40,22 +38,21 @@ class ContentValuesParser<T> {
 		Class<?> type = null;
 		if (column.isReferenceToTable()) {
 			ReferenceInfo ref = column.getReference();
-			Field referencedField = ref.getForeignColumn().getField();
-			Field field = column.getField();
-			Object object = ReflectionUtils.getFieldValue(field, model);
+			FieldAccessor referencedField = ref.getForeignColumn().getFieldAccessor();
+			Object object = column.getFieldAccessor().get(model);
 			if (object == null) {
 				value = null;
 			} else {
 				if (columnIsIdAndEmpty(object, ref.getForeignColumn())) {
 					throw new IllegalUsageException("you should insert the referenced object first");
 				}
-				value = ReflectionUtils.getFieldValue(referencedField, object);
-				type = referencedField.getType();
+				value = referencedField.get(object);
+				type = referencedField.getField().getType();
 			}
 		} else {
-			Field field = column.getField();
-			value = ReflectionUtils.getFieldValue(field, model);
-			type = field.getType();
+			FieldAccessor field = column.getFieldAccessor();
+			value = field.get(model);
+			type = field.getField().getType();
 		}
 		if (value == null) {
 			values.putNull(column.getName());
@@ -66,9 +63,9 @@ class ContentValuesParser<T> {
 	}
 
 	private static boolean columnIsIdAndEmpty(Object object, ColumnInfo column) {
-		Field field = column.getField();
+		FieldAccessor field = column.getFieldAccessor();
 		if (field != null && column.getType() == ColumnType.INTEGER && column.isAutoIncrementFlagSet() && column.isPrimaryKeyFlagSet()) {
-			Object value = ReflectionUtils.getFieldValue(field, object);
+			Object value = field.get(object);
 			return value == null || (Long) value <= 0;
 		} else {
 			return false;
@@ -0,0 +1,131 @@
+package handy.storage;
+
+import android.database.Cursor;
+
+import java.util.List;
+import java.util.Map;
+
+import handy.storage.util.ClassCast;
+
+/**
+ * Describes how to read the columns of a query result: cursor indexes, type
+ * adapters and default values are resolved once per query, so reading a row
+ * does no lookups. Primitive values read with the built-in type adapters are
+ * stored unboxed, a <code>NULL</code> is read as 0.
+ */
+class CursorReadPlan {
+
+	private static final int SKIPPED = -1;
+
+	private static final int READ_OBJECT = 0;
+	private static final int READ_LONG = 1;
+	private static final int READ_DOUBLE = 2;
+	private static final int READ_BOOLEAN = 3;
+
+	private final int[] cursorIndexes;
+	private final int[] readKinds;
+	private final TypeAdapter<?>[] typeAdapters;
+	private final Object[] nullValues;
+	private final Class<?>[] referencedClasses;
+	private final Map<String, Integer> slots;
+	private final Class<?>[] primitiveTypes;
+
+	/**
+	 * @param slots          slots of the column names, shared by the plans of
+	 *                       the same reader
+	 * @param primitiveTypes primitive types of the slots read without boxing,
+	 *                       shared by the plans of the same reader
+	 */
+	CursorReadPlan(List<ColumnInfo> columns, Map<ColumnInfo, Integer> indexes, DataAdapters dataAdapters, Map<String, Integer> slots, Class<?>[] primitiveTypes) {
+		int size = columns.size();
+		cursorIndexes = new int[size];
+		readKinds = new int[size];
+		typeAdapters = new TypeAdapter<?>[size];
+		nullValues = new Object[size];
+		referencedClasses = new Class<?>[size];
+		Class<?>[] readTypes = primitiveTypes;
+		for (int i = 0; i < size; i++) {
+			ColumnInfo column = columns.get(i);
+			Integer cursorIndex = indexes.get(column);
+			Class<?> fieldType = column.getFieldType();
+			if (cursorIndex == null || fieldType == null) {
+				cursorIndexes[i] = SKIPPED;
+				if (readTypes[i] != null) {
+					// a skipped slot holds null, so the field keeps its value
+					if (readTypes == primitiveTypes) {
+						readTypes = primitiveTypes.clone();
+					}
+					readTypes[i] = null;
+				}
+				continue;
+			}
+			cursorIndexes[i] = cursorIndex;
+			readKinds[i] = getReadKind(readTypes[i]);
+			typeAdapters[i] = dataAdapters.getTypeAdapter(fieldType);
+			if (column.isReferenceToTable()) {
+				referencedClasses[i] = column.getReference().getModelClass();
+			} else {
+				nullValues[i] = ClassCast.getDefaultValueForType(fieldType);
+			}
+		}
+		this.slots = slots;
+		this.primitiveTypes = readTypes;
+	}
+
+	private static int getReadKind(Class<?> primitiveType) {
+		if (primitiveType == null) {
+			return READ_OBJECT;
+		} else if (primitiveType == boolean.class) {
+			return READ_BOOLEAN;
+		} else if (primitiveType == double.class || primitiveType == float.class) {
+			return READ_DOUBLE;
+		} else {
+			return READ_LONG;
+		}
+	}
+
+	/**
+	 * Creates a values holder to be filled by
+	 * {@link #readRow(Cursor, ReferencedObjectsBundle, CursorValuesImpl)}.
+	 */
+	CursorValuesImpl newValues() {
+		return new CursorValuesImpl(slots, primitiveTypes);
+	}
+
+	/**
+	 * Reads the current row of the cursor into the <code>values</code>.
+	 *
+	 * @param bundle referenced objects or <code>null</code> to read the key
+	 *               values of the references
+	 */
+	void readRow(Cursor cursor, ReferencedObjectsBundle bundle, CursorValuesImpl values) {
+		for (int slot = 0; slot < cursorIndexes.length; slot++) {
+			int cursorIndex = cursorIndexes[slot];
+			int readKind = readKinds[slot];
+			if (readKind == READ_LONG) {
+				values.setLong(slot, cursor.isNull(cursorIndex) ? 0 : cursor.getLong(cursorIndex));
+				continue;
+			} else if (readKind == READ_DOUBLE) {
+				values.setDouble(slot, cursor.isNull(cursorIndex) ? 0 : cursor.getDouble(cursorIndex));
+				continue;
+			} else if (readKind == READ_BOOLEAN) {
+				values.setLong(slot, !cursor.isNull(cursorIndex) && cursor.getInt(cursorIndex) != 0 ? 1 : 0);
+				continue;
+			}
+			Object value;
+			if (cursorIndex == SKIPPED) {
+				value = null;
+			} else if (cursor.isNull(cursorIndex)) {
+				value = nullValues[slot];
+			} else {
+				value = typeAdapters[slot].getValue(cursor, cursorIndex);
+				Class<?> referencedClass = referencedClasses[slot];
+				if (referencedClass != null && bundle != null) {
+					value = bundle.get(referencedClass, value);
+				}
+			}
+			values.setValue(slot, value);
+		}
+	}
+
+}
@@ -2,26 +2,65 @@ package handy.storage;
 
 import android.database.Cursor;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
-import handy.storage.api.CursorValues;
 import handy.storage.exception.IllegalUsageException;
 import handy.storage.log.PerformanceTimer;
-import handy.storage.util.ClassCast;
 
 /**
- * Reads data from a cursor and wraps it in {@link CursorValues}.
+ * Reads data from a cursor and passes it to a {@link DataCollector} row by
+ * row. The {@link handy.storage.api.CursorValues} instance passed to the
+ * collector is reused for all rows. The slots layout of the columns is
+ * created once per reader, so the object creators bind a model to it once
+ * for all the queries read by the same reader. Primitive fields read with the
+ * built-in type adapters are passed to the collector unboxed.
  */
 class CursorReader {
 
 	private final List<ColumnInfo> columns;
 	private final DataAdapters dataAdapters;
+	private final Map<String, Integer> slots;
+	private final Class<?>[] primitiveTypes;
 
 	public CursorReader(List<ColumnInfo> columns, DataAdapters dataAdapters) {
 		this.columns = columns;
 		this.dataAdapters = dataAdapters;
+		List<String> names = new ArrayList<>(columns.size());
+		primitiveTypes = new Class<?>[columns.size()];
+		for (int i = 0; i < columns.size(); i++) {
+			ColumnInfo column = columns.get(i);
+			names.add(column.getName());
+			primitiveTypes[i] = getPrimitiveType(column, dataAdapters);
+		}
+		slots = CursorValuesImpl.createSlots(names);
+	}
+
+	/**
+	 * Returns the type of the column's field if it's read without boxing:
+	 * a primitive type with the built-in type adapter.
+	 */
+	private static Class<?> getPrimitiveType(ColumnInfo column, DataAdapters dataAdapters) {
+		Class<?> fieldType = column.getFieldType();
+		if (fieldType == null || !fieldType.isPrimitive() || column.isReferenceToTable()) {
+			return null;
+		}
+		TypeAdapter<?> typeAdapter = dataAdapters.getTypeAdapter(fieldType);
+		boolean builtIn;
+		if (fieldType == boolean.class) {
+			builtIn = typeAdapter == TypeAdapter.BOOLEAN_TYPE_ADAPTER;
+		} else if (fieldType == double.class || fieldType == float.class) {
+			builtIn = TypeAdapter.isFloatingPointAdapter(typeAdapter);
+		} else {
+			builtIn = TypeAdapter.isIntegralAdapter(typeAdapter);
+		}
+		return builtIn ? fieldType : null;
+	}
+
+	List<ColumnInfo> getColumns() {
+		return columns;
 	}
 
 	void readData(Cursor cursor, Map<ColumnInfo, Integer> requestedIndexes, ReferencedObjectsBundle bundle, DataCollector dataCollector) {
@@ -29,6 +68,22 @@ class CursorReader {
 			dataCollector.init(0);
 			return;
 		}
+		CursorReadPlan readPlan = createReadPlan(cursor, requestedIndexes);
+		PerformanceTimer.startInterval("parse models from cursor");
+
+		cursor.moveToFirst();
+		dataCollector.init(cursor.getCount());
+		readRows(cursor, readPlan, readPlan.newValues(), bundle, dataCollector, Integer.MAX_VALUE);
+		PerformanceTimer.endInterval("parsed " + dataCollector.getSize() + " models");
+	}
+
+	/**
+	 * Creates the plan to read the columns from the cursor.
+	 *
+	 * @param requestedIndexes cursor indexes of the columns, if
+	 *                         <code>null</code> they are found by the names
+	 */
+	CursorReadPlan createReadPlan(Cursor cursor, Map<ColumnInfo, Integer> requestedIndexes) {
 		Map<ColumnInfo, Integer> indexes = requestedIndexes;
 		if (indexes == null) {
 			indexes = new HashMap<>();
@@ -40,41 +95,24 @@ class CursorReader {
 				indexes.put(column, index);
 			}
 		}
-		PerformanceTimer.startInterval("parse models from cursor");
+		return new CursorReadPlan(columns, indexes, dataAdapters, slots, primitiveTypes);
+	}
 
-		cursor.moveToFirst();
-		dataCollector.init(cursor.getCount());
+	/**
+	 * Reads up to <code>maxRows</code> rows starting from the current one.
+	 *
+	 * @return whether the cursor is moved to the next unread row
+	 */
+	static boolean readRows(Cursor cursor, CursorReadPlan readPlan, CursorValuesImpl values, ReferencedObjectsBundle bundle, DataCollector dataCollector, int maxRows) {
+		int rows = 0;
+		boolean hasNext;
 		do {
-			CursorValues values = readValues(cursor, indexes, bundle);
+			readPlan.readRow(cursor, bundle, values);
 			dataCollector.accept(values);
-		} while (cursor.moveToNext());
-		PerformanceTimer.endInterval("parsed " + dataCollector.getSize() + " models");
-	}
-
-	private CursorValues readValues(Cursor cursor, Map<ColumnInfo, Integer> columnIndexes, ReferencedObjectsBundle bundle) {
-		CursorValuesImpl values = new CursorValuesImpl();
-		for (ColumnInfo column : columns) {
-			Integer columnIndex = columnIndexes.get(column);
-			Class<?> fieldType = column.getFieldType();
-			if (columnIndex == null || fieldType == null) {
-				continue;
-			}
-			String columnName = column.getName();
-			if (cursor.isNull(columnIndex)) {
-				values.addValue(columnName, column.isReferenceToTable() ? null : ClassCast.getDefaultValueForType(fieldType));
-			} else {
-				Object value;
-				TypeAdapter<?> typeAdapter = dataAdapters.getTypeAdapter(fieldType);
-				Object cursorValue = typeAdapter.getValue(cursor, columnIndex);
-				if (column.isReferenceToTable()) {
-					value = bundle.get(column.getReference().getModelClass(), cursorValue);
-				} else {
-					value = cursorValue;
-				}
-				values.addValue(columnName, value);
-			}
-		}
-		return values;
+			rows++;
+			hasNext = cursor.moveToNext();
+		} while (hasNext && rows < maxRows);
+		return hasNext;
 	}
 
 }
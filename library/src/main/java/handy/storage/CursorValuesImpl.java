@@ -1,25 +1,149 @@
 package handy.storage;
 
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import handy.storage.api.CursorValues;
 
 /**
- * Implementation of {@link CursorValues}
+ * Implementation of {@link CursorValues}. Values are stored in slots
+ * indexed by the column position in a query, the instance is reused for all
+ * rows of the query. Slots of primitive fields read with the built-in type
+ * adapters hold unboxed values, they are boxed only if requested as objects.
  */
 class CursorValuesImpl implements CursorValues {
 
-	private Map<String, Object> values = new HashMap<>();
+	private final Map<String, Integer> slots;
+	private final Class<?>[] primitiveTypes;
+	private final Object[] values;
+	private final long[] longValues;
+	private final double[] doubleValues;
 
-	void addValue(String column, Object value) {
-		values.put(column, value);
+	/**
+	 * @param slots slot indexes by column names, shared by all instances
+	 *              created for the same query
+	 * @param size  number of slots
+	 */
+	CursorValuesImpl(Map<String, Integer> slots, int size) {
+		this(slots, new Class<?>[size]);
+	}
+
+	/**
+	 * @param slots          slot indexes by column names, shared by all
+	 *                       instances created for the same query
+	 * @param primitiveTypes primitive types of the slots holding unboxed
+	 *                       values, <code>null</code> for the other slots
+	 */
+	CursorValuesImpl(Map<String, Integer> slots, Class<?>[] primitiveTypes) {
+		this.slots = slots;
+		this.primitiveTypes = primitiveTypes;
+		int size = primitiveTypes.length;
+		values = new Object[size];
+		longValues = new long[size];
+		doubleValues = new double[size];
+	}
+
+	/**
+	 * Creates the map of slot indexes by column names.
+	 */
+	static Map<String, Integer> createSlots(List<String> columnNames) {
+		Map<String, Integer> slots = new HashMap<>(columnNames.size() * 2);
+		for (int i = 0; i < columnNames.size(); i++) {
+			slots.put(columnNames.get(i), i);
+		}
+		return Collections.unmodifiableMap(slots);
+	}
+
+	void setValue(int slot, Object value) {
+		values[slot] = value;
+	}
+
+	/**
+	 * Sets the value of a slot of an integral or boolean primitive type,
+	 * <code>true</code> is stored as 1.
+	 */
+	void setLong(int slot, long value) {
+		longValues[slot] = value;
+	}
+
+	/**
+	 * Sets the value of a slot of a floating point primitive type.
+	 */
+	void setDouble(int slot, double value) {
+		doubleValues[slot] = value;
+	}
+
+	long getLong(int slot) {
+		return longValues[slot];
+	}
+
+	double getDouble(int slot) {
+		return doubleValues[slot];
+	}
+
+	/**
+	 * Returns the value of the slot, primitive values are boxed.
+	 */
+	Object getValue(int slot) {
+		Class<?> type = primitiveTypes[slot];
+		if (type == null) {
+			return values[slot];
+		} else if (type == long.class) {
+			return longValues[slot];
+		} else if (type == int.class) {
+			return (int) longValues[slot];
+		} else if (type == short.class) {
+			return (short) longValues[slot];
+		} else if (type == byte.class) {
+			return (byte) longValues[slot];
+		} else if (type == boolean.class) {
+			return longValues[slot] != 0;
+		} else if (type == double.class) {
+			return doubleValues[slot];
+		} else {
+			return (float) doubleValues[slot];
+		}
+	}
+
+	/**
+	 * Returns the primitive type of the slot or <code>null</code> if it holds
+	 * an object.
+	 */
+	Class<?> getPrimitiveType(int slot) {
+		return primitiveTypes[slot];
+	}
+
+	/**
+	 * Returns the slot index of the column or -1 if there is no such column.
+	 */
+	int getSlot(String column) {
+		Integer slot = slots.get(column);
+		return slot == null ? -1 : slot;
+	}
+
+	/**
+	 * Returns the slots layout, identical for all instances created for the
+	 * same query.
+	 */
+	Map<String, Integer> getSlots() {
+		return slots;
+	}
+
+	/**
+	 * Returns the primitive types of the slots, identical for all instances
+	 * created for the same reader unless a query skips some of its columns.
+	 */
+	Class<?>[] getPrimitiveTypes() {
+		return primitiveTypes;
 	}
 
 	@Override
 	@SuppressWarnings("unchecked")
 	public <T> T getValue(String column) {
-		return (T) values.get(column);
+		Integer slot = slots.get(column);
+		return slot == null ? null : (T) getValue(slot);
 	}
 
 }
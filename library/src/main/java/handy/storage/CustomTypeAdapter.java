@@ -2,6 +2,7 @@ package handy.storage;
 
 import android.content.ContentValues;
 import android.database.Cursor;
+import android.database.sqlite.SQLiteProgram;
 
 import handy.storage.api.ColumnType;
 
@@ -19,6 +20,16 @@ public abstract class CustomTypeAdapter<T> extends TypeAdapter<T> {
 		cv.put(key, valueToString(value));
 	}
 
+	@Override
+	protected void bindValue(SQLiteProgram statement, int index, T value) {
+		String s = valueToString(value);
+		if (s == null) {
+			statement.bindNull(index);
+		} else {
+			statement.bindString(index, s);
+		}
+	}
+
 	@Override
 	protected T getValue(Cursor cursor, int columnIndex) {
 		String s = cursor.getString(columnIndex);
@@ -5,16 +5,23 @@ import android.net.Uri;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 
-import java.lang.reflect.Field;
+import java.lang.reflect.Constructor;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import handy.storage.ColumnInfo.ColumnId;
 import handy.storage.api.CursorValues;
 import handy.storage.api.Model;
 import handy.storage.api.ObjectCreator;
+import handy.storage.util.Factory;
+import handy.storage.util.FieldAccessor;
+import handy.storage.util.GeneratedAdapter;
+import handy.storage.util.GeneratedAdapter.FieldReader;
+import handy.storage.util.GeneratedAdapters;
 import handy.storage.util.ReflectionUtils;
 
 /**
@@ -22,8 +29,16 @@ import handy.storage.util.ReflectionUtils;
  */
 final class DataAdapters {
 
+	private static final int SET_OBJECT = 0;
+	private static final int SET_LONG = 1;
+	private static final int SET_DOUBLE = 2;
+	private static final int SET_BOOLEAN = 3;
+	private static final int SET_GENERATED = 4;
+
 	private final Map<Class<?>, TypeAdapter<?>> typeAdapters = new HashMap<>();
+	private final Map<Class<?>, TypeAdapter<?>> resolvedTypeAdapters = new ConcurrentHashMap<>();
 	private final Map<Class<?>, ObjectCreator<?>> objectCreators = new HashMap<>();
+	private final Map<Class<?>, Factory<?>> instantiators = new ConcurrentHashMap<>();
 	private Gson gson;
 
 	DataAdapters() {
@@ -53,29 +68,39 @@ final class DataAdapters {
 	DataAdapters(DataAdapters dataAdapters) {
 		typeAdapters.putAll(dataAdapters.typeAdapters);
 		objectCreators.putAll(dataAdapters.objectCreators);
+		instantiators.putAll(dataAdapters.instantiators);
 		gson = dataAdapters.gson;
 	}
 
 	<T> void addTypeAdapter(Class<? extends T> type, TypeAdapter<? extends T> typeAdapter) {
 		typeAdapters.put(type, typeAdapter);
+		resolvedTypeAdapters.remove(type);
 	}
 
 	<T extends Model> void addObjectCreator(Class<? extends T> modelClass, ObjectCreator<T> objectCreator) {
 		objectCreators.put(modelClass, objectCreator);
 	}
 
+	/**
+	 * Returns the type adapter for the type. Adapters of enums and of types
+	 * serialized with Gson are created once per type.
+	 */
 	@SuppressWarnings("unchecked")
 	<T> TypeAdapter<T> getTypeAdapter(Class<T> type) {
 		TypeAdapter<?> typeAdapter = typeAdapters.get(type);
 		if (typeAdapter != null) {
 			return (TypeAdapter<T>) typeAdapter;
-		} else {
+		}
+		typeAdapter = resolvedTypeAdapters.get(type);
+		if (typeAdapter == null) {
 			if (type.isEnum()) {
-				return (TypeAdapter<T>) new TypeAdapter.EnumTypeAdapter((Class<Enum<?>>) type);
+				typeAdapter = new TypeAdapter.EnumTypeAdapter((Class<Enum<?>>) type);
 			} else {
-				return new TypeAdapter.ObjectTypeAdapter<>(gson, type);
+				typeAdapter = new TypeAdapter.ObjectTypeAdapter<>(gson, type);
 			}
+			resolvedTypeAdapters.put(type, typeAdapter);
 		}
+		return (TypeAdapter<T>) typeAdapter;
 	}
 
 	boolean hasTypeAdapter(Class<?> type) {
@@ -83,17 +108,91 @@ final class DataAdapters {
 		return typeAdapter != null || type.isEnum();
 	}
 
+	<T> void addInstantiator(Class<T> modelClass, Factory<T> instantiator) {
+		instantiators.put(modelClass, instantiator);
+	}
+
 	@SuppressWarnings("unchecked")
 	<T> ObjectCreator<T> getObjectCreator(Class<T> modelClass, TableInfo tableInfo) {
 		if (objectCreators.containsKey(modelClass)) {
 			return (ObjectCreator<T>) objectCreators.get(modelClass);
 		} else {
-			return new ReflectionObjectCreator<>(modelClass, tableInfo);
+			return new ReflectionObjectCreator<>(getInstantiator(modelClass), tableInfo);
 		}
 	}
 
+	/**
+	 * Returns the factory of new model instances. The generated adapter of the
+	 * class is used if there is one, otherwise the default constructor is
+	 * looked up once per class.
+	 */
+	@SuppressWarnings("unchecked")
+	<T> Factory<T> getInstantiator(Class<T> modelClass) {
+		Factory<T> instantiator = (Factory<T>) instantiators.get(modelClass);
+		if (instantiator == null) {
+			GeneratedAdapter generatedAdapter = GeneratedAdapters.find(modelClass);
+			if (generatedAdapter != null && generatedAdapter.canCreateInstances()) {
+				instantiator = new GeneratedInstantiator<>(modelClass, generatedAdapter);
+			} else {
+				instantiator = new ConstructorInstantiator<>(modelClass);
+			}
+			instantiators.put(modelClass, instantiator);
+		}
+		return instantiator;
+	}
+
 	void setCustomGson(Gson customGson) {
 		gson = customGson;
+		resolvedTypeAdapters.clear();
+	}
+
+	/**
+	 * Creates objects with the adapter generated for the class.
+	 *
+	 * @param <T> object type
+	 */
+	private static final class GeneratedInstantiator<T> implements Factory<T> {
+
+		private final Class<T> objectClass;
+		private final GeneratedAdapter generatedAdapter;
+
+		GeneratedInstantiator(Class<T> objectClass, GeneratedAdapter generatedAdapter) {
+			this.objectClass = objectClass;
+			this.generatedAdapter = generatedAdapter;
+		}
+
+		@Override
+		public T newObject() {
+			return objectClass.cast(generatedAdapter.newInstance());
+		}
+
+	}
+
+	/**
+	 * Creates objects with the default constructor, the constructor is looked
+	 * up on the first call.
+	 *
+	 * @param <T> object type
+	 */
+	private static final class ConstructorInstantiator<T> implements Factory<T> {
+
+		private final Class<T> objectClass;
+		private volatile Constructor<T> constructor;
+
+		ConstructorInstantiator(Class<T> objectClass) {
+			this.objectClass = objectClass;
+		}
+
+		@Override
+		public T newObject() {
+			Constructor<T> defaultConstructor = constructor;
+			if (defaultConstructor == null) {
+				defaultConstructor = ReflectionUtils.getDefaultConstructor(objectClass);
+				constructor = defaultConstructor;
+			}
+			return ReflectionUtils.newInstance(defaultConstructor);
+		}
+
 	}
 
 	/**
@@ -103,26 +202,178 @@ final class DataAdapters {
 	 */
 	static final class ReflectionObjectCreator<T> implements ObjectCreator<T> {
 
-		private final Class<T> modelClass;
+		private final Factory<T> instantiator;
 		private final TableInfo tableInfo;
+		private volatile SlotsBinding slotsBinding;
 
-		ReflectionObjectCreator(Class<T> modelClass, TableInfo tableInfo) {
-			this.modelClass = modelClass;
+		ReflectionObjectCreator(Factory<T> instantiator, TableInfo tableInfo) {
+			this.instantiator = instantiator;
 			this.tableInfo = tableInfo;
 		}
 
 		@Override
 		public T createObject(CursorValues values) {
-			T object = ReflectionUtils.createNewObject(modelClass);
+			if (values instanceof CursorValuesImpl) {
+				return createObject((CursorValuesImpl) values);
+			}
+			T object = instantiator.newObject();
 			for (ColumnInfo column : tableInfo.getColumns()) {
-				Field field = column.getField();
 				ColumnId columnId = column.getColumnId();
 				Object value = values.getValue(columnId.getName());
-				ReflectionUtils.setFieldValue(field, object, value);
+				column.getFieldAccessor().set(object, value);
 			}
 			return object;
 		}
 
+		private T createObject(CursorValuesImpl values) {
+			SlotsBinding binding = getSlotsBinding(values);
+			T object = instantiator.newObject();
+			if (binding.generatedFields.length > 0) {
+				SlotsReader reader = new SlotsReader(values);
+				for (int i = 0; i < binding.generatedFields.length; i++) {
+					reader.fieldSlots = binding.generatedSlots[i];
+					binding.generatedFields[i].getAdapter().readFields(object, reader);
+				}
+			}
+			for (int i = 0; i < binding.accessors.length; i++) {
+				FieldAccessor accessor = binding.accessors[i];
+				int slot = binding.fieldSlots[i];
+				int setter = binding.setters[i];
+				if (setter == SET_LONG) {
+					accessor.setLong(object, values.getLong(slot));
+				} else if (setter == SET_DOUBLE) {
+					accessor.setDouble(object, values.getDouble(slot));
+				} else if (setter == SET_BOOLEAN) {
+					accessor.setBoolean(object, values.getLong(slot) != 0);
+				} else if (setter != SET_GENERATED) {
+					accessor.set(object, slot == -1 ? null : values.getValue(slot));
+				}
+			}
+			return object;
+		}
+
+		private SlotsBinding getSlotsBinding(CursorValuesImpl values) {
+			SlotsBinding binding = slotsBinding;
+			if (binding == null || binding.slots != values.getSlots() || binding.primitiveTypes != values.getPrimitiveTypes()) {
+				binding = new SlotsBinding(tableInfo.getColumns(), values);
+				slotsBinding = binding;
+			}
+			return binding;
+		}
+
+	}
+
+	/**
+	 * Fields of a model bound to the slots of a query. The fields handled by
+	 * the generated adapters of the model are read by them, unboxed slot
+	 * values are set with the typed setters of the other fields.
+	 */
+	private static final class SlotsBinding {
+
+		private final Map<String, Integer> slots;
+		private final Class<?>[] primitiveTypes;
+		private final FieldAccessor[] accessors;
+		private final int[] fieldSlots;
+		private final int[] setters;
+		private final GeneratedFields[] generatedFields;
+		private final int[][] generatedSlots;
+
+		SlotsBinding(List<ColumnInfo> columns, CursorValuesImpl values) {
+			slots = values.getSlots();
+			primitiveTypes = values.getPrimitiveTypes();
+			accessors = new FieldAccessor[columns.size()];
+			fieldSlots = new int[columns.size()];
+			setters = new int[columns.size()];
+			for (int i = 0; i < accessors.length; i++) {
+				ColumnInfo column = columns.get(i);
+				accessors[i] = column.getFieldAccessor();
+				fieldSlots[i] = values.getSlot(column.getColumnId().getName());
+				setters[i] = fieldSlots[i] == -1 ? SET_OBJECT : getSetter(accessors[i], values.getPrimitiveType(fieldSlots[i]));
+			}
+			boolean[] generated = new boolean[columns.size()];
+			generatedFields = GeneratedFields.find(columns, generated).toArray(new GeneratedFields[0]);
+			generatedSlots = new int[generatedFields.length][];
+			for (int i = 0; i < generatedFields.length; i++) {
+				GeneratedFields fields = generatedFields[i];
+				int[] fieldsSlots = new int[fields.getFieldCount()];
+				for (int field = 0; field < fieldsSlots.length; field++) {
+					int column = fields.getColumnIndex(field);
+					// columns missing in the query are set to null by their accessors
+					fieldsSlots[field] = column == -1 ? -1 : fieldSlots[column];
+					if (fieldsSlots[field] != -1) {
+						setters[column] = SET_GENERATED;
+					}
+				}
+				generatedSlots[i] = fieldsSlots;
+			}
+		}
+
+		private static int getSetter(FieldAccessor accessor, Class<?> primitiveType) {
+			if (primitiveType == null) {
+				return SET_OBJECT;
+			} else if (primitiveType == boolean.class) {
+				return accessor.isBoolean() ? SET_BOOLEAN : SET_OBJECT;
+			} else if (primitiveType == double.class || primitiveType == float.class) {
+				return accessor.isFloatingPoint() ? SET_DOUBLE : SET_OBJECT;
+			} else {
+				return accessor.isIntegral() ? SET_LONG : SET_OBJECT;
+			}
+		}
+
+	}
+
+	/**
+	 * Provides the slot values to a generated adapter.
+	 */
+	private static final class SlotsReader implements FieldReader {
+
+		private final CursorValuesImpl values;
+		private int[] fieldSlots;
+
+		SlotsReader(CursorValuesImpl values) {
+			this.values = values;
+		}
+
+		@Override
+		public boolean has(int field) {
+			return fieldSlots[field] != -1;
+		}
+
+		@Override
+		public long readLong(int field) {
+			int slot = fieldSlots[field];
+			if (values.getPrimitiveType(slot) != null) {
+				return values.getLong(slot);
+			}
+			Object value = values.getValue(slot);
+			return value == null ? 0 : ((Number) value).longValue();
+		}
+
+		@Override
+		public double readDouble(int field) {
+			int slot = fieldSlots[field];
+			if (values.getPrimitiveType(slot) != null) {
+				return values.getDouble(slot);
+			}
+			Object value = values.getValue(slot);
+			return value == null ? 0 : ((Number) value).doubleValue();
+		}
+
+		@Override
+		public boolean readBoolean(int field) {
+			int slot = fieldSlots[field];
+			if (values.getPrimitiveType(slot) != null) {
+				return values.getLong(slot) != 0;
+			}
+			Object value = values.getValue(slot);
+			return value != null && (Boolean) value;
+		}
+
+		@Override
+		public Object readObject(int field) {
+			return values.getValue(fieldSlots[field]);
+		}
+
 	}
 
 }
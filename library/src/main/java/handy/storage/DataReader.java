@@ -2,8 +2,8 @@ package handy.storage;
 
 import android.database.Cursor;
 
-import java.lang.reflect.Field;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
@@ -11,12 +11,10 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
-import handy.storage.api.Model;
 import handy.storage.base.DatabaseAdapter;
 import handy.storage.base.QueryParams;
 import handy.storage.exception.OperationException;
 import handy.storage.log.PerformanceTimer;
-import handy.storage.util.ReflectionUtils;
 
 /**
  * Reads all data from some source and accumulates it via {@link DataCollector}.
@@ -25,6 +23,61 @@ abstract class DataReader {
 
 	abstract void readData(DataCollector dataCollector) throws OperationException;
 
+	/**
+	 * Performs the query and returns a reader of its result from the open
+	 * cursor. The reader must be closed after the usage.
+	 */
+	abstract WindowReader openWindowReader() throws OperationException;
+
+	/**
+	 * Reads the rows of an open cursor in windows of limited size. The cursor
+	 * is only moved forward and the rows aren't counted, so its window is
+	 * filled as the rows are read.
+	 */
+	abstract static class WindowReader {
+
+		private final Cursor cursor;
+		private boolean hasRows;
+
+		WindowReader(Cursor cursor) {
+			this.cursor = cursor;
+			hasRows = cursor.moveToNext();
+		}
+
+		/**
+		 * Reads up to <code>maxRows</code> next rows into the collector.
+		 *
+		 * @return <code>false</code> if there are no more rows to read
+		 */
+		final boolean readWindow(DataCollector dataCollector, int maxRows) throws OperationException {
+			if (!hasRows) {
+				return false;
+			}
+			dataCollector.init(maxRows);
+			hasRows = readRows(cursor, dataCollector, maxRows);
+			return true;
+		}
+
+		/**
+		 * Preferred number of rows to read at once.
+		 */
+		int getWindowSize() {
+			return 1;
+		}
+
+		final void close() {
+			cursor.close();
+		}
+
+		/**
+		 * Reads up to <code>maxRows</code> rows starting from the current one.
+		 *
+		 * @return whether the cursor is moved to the next unread row
+		 */
+		abstract boolean readRows(Cursor cursor, DataCollector dataCollector, int maxRows) throws OperationException;
+
+	}
+
 	/**
 	 * Base implementation.
 	 */
@@ -41,23 +94,44 @@ abstract class DataReader {
 		@Override
 		final void readData(DataCollector dataCollector) throws OperationException {
 			PerformanceTimer.startInterval("read data");
-			// XXX: the query is wrapped into a transaction, because it might do additional queries to the database
-			DatabaseAdapter.TransactionControl transaction = databaseAdapter.startTransaction();
+			// additional queries to the database must see the same data as the main one
+			DatabaseAdapter.TransactionControl transaction = doesAdditionalQueries() ? databaseAdapter.startReadTransaction() : null;
 			Cursor cursor = null;
 			try {
 				cursor = databaseAdapter.performQuery(queryParams);
 				acceptData(cursor, dataCollector);
-				transaction.setSuccessful();
+				if (transaction != null) {
+					transaction.setSuccessful();
+				}
 			} finally {
 				if (cursor != null) {
 					cursor.close();
 				}
-				transaction.end();
+				if (transaction != null) {
+					transaction.end();
+				}
 			}
 			PerformanceTimer.endInterval();
 		}
 
+		@Override
+		final WindowReader openWindowReader() throws OperationException {
+			Cursor cursor = databaseAdapter.performQuery(queryParams);
+			try {
+				return createWindowReader(cursor);
+			} catch (RuntimeException e) {
+				cursor.close();
+				throw e;
+			}
+		}
+
+		boolean doesAdditionalQueries() {
+			return false;
+		}
+
 		abstract void acceptData(Cursor cursor, DataCollector dataCollector) throws OperationException;
+
+		abstract WindowReader createWindowReader(Cursor cursor);
 	}
 
 	/**
@@ -65,43 +139,107 @@ abstract class DataReader {
 	 */
 	static class ModelDataReader extends BaseDataReader {
 
+		/**
+		 * Number of rows whose referenced objects are loaded at once when the
+		 * result is streamed.
+		 */
+		private static final int REFERENCES_WINDOW_SIZE = 100;
+
 		private final DatabaseCore databaseCore;
 		private final CursorReader cursorReader;
 		private final Map<ColumnInfo, Integer> indexes;
+		private final boolean resolveReferences;
 
+		/**
+		 * @param resolveReferences whether the referenced objects are loaded,
+		 *                          {@link ReferenceLoader} reads the key
+		 *                          values of the references instead and
+		 *                          resolves them itself
+		 */
 		ModelDataReader(
 			DatabaseCore databaseCore,
 			DatabaseAdapter databaseAdapter,
 			CursorReader cursorReader,
 			QueryParams queryParams,
-			Map<ColumnInfo, Integer> indexes) {
+			Map<ColumnInfo, Integer> indexes,
+			boolean resolveReferences) {
 
 			super(databaseAdapter, queryParams);
 			this.databaseCore = databaseCore;
 			this.cursorReader = cursorReader;
 			this.indexes = indexes;
+			this.resolveReferences = resolveReferences;
+		}
+
+		@Override
+		boolean doesAdditionalQueries() {
+			return hasReferences();
+		}
+
+		private boolean hasReferences() {
+			if (!resolveReferences) {
+				return false;
+			}
+			for (ColumnInfo column : indexes.keySet()) {
+				if (column.isReferenceToTable()) {
+					return true;
+				}
+			}
+			return false;
 		}
 
 		@Override
 		void acceptData(Cursor cursor, DataCollector dataCollector) throws OperationException {
-			ReferencedObjectsBundle referencedObjectsBundle = readReferencedObjects(cursor);
+			ReferencedObjectsBundle referencedObjectsBundle = hasReferences() && cursor.moveToFirst()
+				? readReferencedObjects(cursor, Integer.MAX_VALUE)
+				: null;
 			cursorReader.readData(cursor, indexes, referencedObjectsBundle, dataCollector);
 		}
 
-		private ReferencedObjectsBundle readReferencedObjects(Cursor cursor) throws OperationException {
+		@Override
+		WindowReader createWindowReader(Cursor cursor) {
+			final CursorReadPlan readPlan = cursorReader.createReadPlan(cursor, indexes);
+			final CursorValuesImpl values = readPlan.newValues();
+			final boolean hasReferences = hasReferences();
+			return new WindowReader(cursor) {
+
+				@Override
+				int getWindowSize() {
+					return hasReferences ? REFERENCES_WINDOW_SIZE : 1;
+				}
+
+				@Override
+				boolean readRows(Cursor cursor, DataCollector dataCollector, int maxRows) throws OperationException {
+					ReferencedObjectsBundle bundle = hasReferences
+						? readReferencedObjects(cursor, maxRows)
+						: null;
+					return CursorReader.readRows(cursor, readPlan, values, bundle, dataCollector, maxRows);
+				}
+
+			};
+		}
+
+		/**
+		 * Loads the objects referenced by up to <code>maxRows</code> rows
+		 * starting from the current one. The cursor position is restored.
+		 */
+		private ReferencedObjectsBundle readReferencedObjects(Cursor cursor, int maxRows) throws OperationException {
 			Collection<ReferencedObjectsReader> referenceReaders = createReferencedObjectsReaders();
-			ReferencedObjectsBundle bundle = new ReferencedObjectsBundle();
-			if (!referenceReaders.isEmpty() && cursor.moveToFirst()) {
-				do {
-					for (ReferencedObjectsReader reader : referenceReaders) {
-						reader.readKeyValues(cursor);
-					}
-				} while (cursor.moveToNext());
+			ReferenceLoader loader = new ReferenceLoader(databaseCore);
+			int start = cursor.getPosition();
+			int rows = 0;
+			do {
 				for (ReferencedObjectsReader reader : referenceReaders) {
-					reader.readReferencedObjects(bundle);
+					reader.readKeyValues(cursor);
 				}
+				rows++;
+			} while (rows < maxRows && cursor.moveToNext());
+			cursor.moveToPosition(start);
+			for (ReferencedObjectsReader reader : referenceReaders) {
+				reader.requestReferencedObjects(loader);
 			}
-			return bundle;
+			loader.loadRequested();
+			return loader.getBundle();
 		}
 
 		private Collection<ReferencedObjectsReader> createReferencedObjectsReaders() {
@@ -127,14 +265,12 @@ abstract class DataReader {
 	 */
 	private static class ReferencedObjectsReader {
 
-		private final DatabaseCore core;
 		private final List<Integer> columnIndexes = new LinkedList<>();
 		private final Set<Object> keyValues = new HashSet<>();
 		private final TypeAdapter<?> typeAdapter;
 		private final ColumnInfo.ReferenceInfo reference;
 
 		ReferencedObjectsReader(DatabaseCore core, ColumnInfo column, Integer columnIndex) {
-			this.core = core;
 			columnIndexes.add(columnIndex);
 			typeAdapter = core.getDataAdapters().getTypeAdapter(column.getFieldType());
 			reference = column.getReference();
@@ -152,17 +288,8 @@ abstract class DataReader {
 			}
 		}
 
-		void readReferencedObjects(ReferencedObjectsBundle bundle) throws OperationException {
-			if (!keyValues.isEmpty()) {
-				Class<? extends Model> referencedClass = reference.getModelClass();
-
-				WritableTable<?> table = core.getTablesFactory().createTable(referencedClass);
-				List<?> objects = table.select().where(reference.getForeignColumn().getName()).in(keyValues).execute();
-				Field keyField = reference.getForeignColumn().getField();
-				for (Object object : objects) {
-					bundle.put(referencedClass, ReflectionUtils.getFieldValue(keyField, object), object);
-				}
-			}
+		void requestReferencedObjects(ReferenceLoader loader) {
+			loader.request(reference, keyValues);
 		}
 
 	}
@@ -174,13 +301,13 @@ abstract class DataReader {
 
 		private final TypeAdapter<?> typeAdapter;
 		private final Object defaultValue;
-		private final String columnName;
+		private final Map<String, Integer> slots;
 
 		protected ColumnDataReader(DatabaseAdapter databaseAdapter, QueryParams queryParams, TypeAdapter<?> typeAdapter, Object defaultValue, String columnName) {
 			super(databaseAdapter, queryParams);
 			this.typeAdapter = typeAdapter;
-			this.columnName = columnName;
 			this.defaultValue = defaultValue;
+			this.slots = CursorValuesImpl.createSlots(Collections.singletonList(columnName));
 		}
 
 		@Override
@@ -191,15 +318,36 @@ abstract class DataReader {
 					return;
 				}
 				dataCollector.init(cursor.getCount());
-				do {
-					Object value = cursor.isNull(0) ? defaultValue : typeAdapter.getValue(cursor, 0);
-					CursorValuesImpl cursorValues = new CursorValuesImpl();
-					cursorValues.addValue(columnName, value);
-					dataCollector.accept(cursorValues);
-				} while (cursor.moveToNext());
+				readRows(cursor, new CursorValuesImpl(slots, 1), dataCollector, Integer.MAX_VALUE);
 			} finally {
 				cursor.close();
 			}
 		}
+
+		@Override
+		WindowReader createWindowReader(Cursor cursor) {
+			final CursorValuesImpl cursorValues = new CursorValuesImpl(slots, 1);
+			return new WindowReader(cursor) {
+
+				@Override
+				boolean readRows(Cursor cursor, DataCollector dataCollector, int maxRows) {
+					return ColumnDataReader.this.readRows(cursor, cursorValues, dataCollector, maxRows);
+				}
+
+			};
+		}
+
+		private boolean readRows(Cursor cursor, CursorValuesImpl cursorValues, DataCollector dataCollector, int maxRows) {
+			int rows = 0;
+			boolean hasNext;
+			do {
+				Object value = cursor.isNull(0) ? defaultValue : typeAdapter.getValue(cursor, 0);
+				cursorValues.setValue(0, value);
+				dataCollector.accept(cursorValues);
+				rows++;
+				hasNext = cursor.moveToNext();
+			} while (hasNext && rows < maxRows);
+			return hasNext;
+		}
 	}
 }
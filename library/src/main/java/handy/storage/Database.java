@@ -3,13 +3,18 @@ package handy.storage;
 import android.content.Context;
 import android.os.Looper;
 
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.concurrent.Future;
 import java.util.List;
 import java.util.Set;
 
 import handy.storage.DatabaseCore.TablesFactory;
+import handy.storage.api.Callback;
+import handy.storage.api.DatabaseTask;
 import handy.storage.api.Model;
+import handy.storage.api.TableObserver;
 import handy.storage.api.Transaction;
 import handy.storage.base.DatabaseAdapter;
 import handy.storage.base.DatabaseAdapter.TransactionControl;
@@ -31,7 +36,8 @@ public class Database {
 	private final DatabaseAdapter databaseAdapter;
 	private final Context appContext;
 
-	private boolean initialized = false;
+	private volatile boolean initialized = false;
+	private SchemaSnapshot schemaSnapshot;
 
 	Database(Context context, DatabaseCore schema) {
 		String databaseName = schema.getDatabaseInfo().getDatabaseName();
@@ -41,20 +47,41 @@ public class Database {
 		DATABASES.add(databaseName);
 		this.appContext = context.getApplicationContext();
 		this.core = schema;
-		databaseAdapter = new DatabaseAdapter(new DbOpenHelper(appContext, schema));
+		DatabaseConfiguration configuration = schema.getConfiguration();
+		databaseAdapter = new DatabaseAdapter(
+			new DbOpenHelper(appContext, schema),
+			configuration.concurrentReads(),
+			configuration.statementCacheSize());
+		core.getAsyncExecutors().setDatabase(databaseAdapter, this::ensureInitialized);
 	}
 
 	private synchronized void initialize() {
 		DatabaseLog.i("initializing the database");
 		PerformanceTimer.startInterval("initialize database");
-		core.prepareTables();
+		// the models are loaded from the snapshot of the previous start if they haven't changed,
+		// otherwise they are parsed when they are used, or all at once if the tables are checked or created
+		schemaSnapshot = SchemaSnapshot.read(appContext, core);
+		if (schemaSnapshot.getTables() != null) {
+			core.setTables(schemaSnapshot.getTables());
+		}
 		if (core.getConfiguration().checkTablesChanges()) {
 			PerformanceTimer.startInterval("check changes");
-			MetaInfoDatabase.onCheckChanges(appContext, core);
+			String fingerprint = MetaInfoDatabase.getFingerprintDigest(core);
+			if (schemaSnapshot.isChecked(fingerprint)) {
+				DatabaseLog.i("tables haven't been changed since the last check");
+			} else {
+				MetaInfoDatabase.onCheckChanges(appContext, core);
+			}
+			schemaSnapshot.save(appContext, core, fingerprint);
 			PerformanceTimer.endInterval();
+		} else {
+			schemaSnapshot.save(appContext, core);
 		}
 		databaseAdapter.prepare();
 		core.initTablesFactory(databaseAdapter);
+		databaseAdapter.setRollbackListener(core::onRollback);
+		databaseAdapter.setCommitListener(core::onCommit);
+		databaseAdapter.setTableChangeListener(core::onTableChanged);
 		initialized = true;
 		PerformanceTimer.endInterval();
 	}
@@ -86,15 +113,17 @@ public class Database {
 	}
 
 	/**
-	 * Returns a new {@link WritableTable} instance representing a database
+	 * Returns a {@link WritableTable} instance representing a database
 	 * table. <code>modelClass</code> must be registered as a database table
-	 * during the database creation. Can't be called from UI thread.
+	 * during the database creation. Tables are immutable and one instance is
+	 * created for a model, so it's cheap to call this method for every
+	 * operation. Can't be called from UI thread.
 	 *
 	 * @param modelClass model's class
 	 */
 	public <T extends Model> WritableTable<T> getTable(Class<T> modelClass) {
 		ensureInitialized();
-		return core.getTablesFactory().createTable(modelClass);
+		return core.getTablesFactory().getTable(modelClass);
 	}
 
 	/**
@@ -126,6 +155,60 @@ public class Database {
 		}
 	}
 
+	/**
+	 * Initializes the database in background on the read executor: parses
+	 * the models, checks the tables changes, opens the database and prepares
+	 * the tables with their insert and read plans, so the first operation doesn't
+	 * wait for it. The parsed models are saved, so the next start loads them
+	 * instead of parsing. Unlike other methods, it can be called from UI thread.
+	 *
+	 * @return the future completed when the database is initialized
+	 */
+	public Future<Void> warmUp() {
+		return core.getAsyncExecutors().read(() -> {
+			ensureInitialized();
+			core.getTablesFactory().createTables();
+			schemaSnapshot.save(appContext, core);
+			return null;
+		}, null);
+	}
+
+	/**
+	 * Performs the task in background on the read executor set by
+	 * {@link DatabaseBuilder#setReadExecutor(java.util.concurrent.Executor)}.
+	 * Unlike other methods, it can be called from UI thread.
+	 *
+	 * @param callback callback getting the result or <code>null</code>
+	 * @return the future result
+	 */
+	public <R> Future<R> readAsync(DatabaseTask<R> task, Callback<? super R> callback) {
+		return core.getAsyncExecutors().read(() -> task.perform(this), callback);
+	}
+
+	/**
+	 * Performs the task in one transaction in background on the write
+	 * executor set by
+	 * {@link DatabaseBuilder#setWriteExecutor(java.util.concurrent.Executor)}.
+	 * The transaction is assumed successful if no exception was thrown by the
+	 * task. Unlike other methods, it can be called from UI thread.
+	 *
+	 * @param callback callback getting the result or <code>null</code>
+	 * @return the future result
+	 */
+	public <R> Future<R> writeAsync(DatabaseTask<R> task, Callback<? super R> callback) {
+		return core.getAsyncExecutors().write(() -> {
+			ensureInitialized();
+			TransactionControl transactionControl = databaseAdapter.startTransaction();
+			try {
+				R result = task.perform(this);
+				transactionControl.setSuccessful();
+				return result;
+			} finally {
+				transactionControl.end();
+			}
+		}, callback);
+	}
+
 	/**
 	 * Deletes all content of this database. Can't be called from UI thread.
 	 */
@@ -135,18 +218,77 @@ public class Database {
 		TablesFactory factory = core.getTablesFactory();
 		try {
 			for (TableInfo table : tables) {
-				factory.createTable(table.getOriginClass()).deleteAll();
+				factory.getTable(table.getOriginClass()).deleteAll();
 			}
 		} catch (OperationException e) {
 			DatabaseLog.logException(e);
 		}
 	}
 
+	/**
+	 * Registers an observer notified after committed changes of these tables.
+	 * Changes made directly through {@link DatabaseAdapter} are also tracked.
+	 * Can't be called from UI thread.
+	 *
+	 * @param observer     observer to register
+	 * @param modelClasses models of the observed tables, all tables are
+	 *                     observed if none is passed
+	 */
+	@SafeVarargs
+	public final void addTableObserver(TableObserver observer, Class<? extends Model>... modelClasses) {
+		ensureInitialized();
+		for (Class<? extends Model> modelClass : modelClasses) {
+			if (!core.hasTable(modelClass)) {
+				throw new IllegalArgumentException(modelClass.getName() + " is not registered as a table");
+			}
+		}
+		core.getInvalidationTracker().addObserver(observer, new HashSet<>(Arrays.asList(modelClasses)));
+	}
+
+	/**
+	 * Unregisters the observer. Can't be called from UI thread.
+	 */
+	public void removeTableObserver(TableObserver observer) {
+		ensureInitialized();
+		core.getInvalidationTracker().removeObserver(observer);
+	}
+
+	/**
+	 * Drops all objects cached by
+	 * {@link DatabaseBuilder#setEntityCache(Class, int, long)}. Call it after
+	 * changing the tables directly through {@link DatabaseAdapter}.
+	 */
+	public void clearEntityCaches() {
+		ensureInitialized();
+		core.getEntityCaches().clear();
+	}
+
+	/**
+	 * Returns how many query results were taken from the cache enabled by
+	 * {@link DatabaseBuilder#setResultCacheSize(int)}.
+	 */
+	public long getResultCacheHits() {
+		ensureInitialized();
+		ResultCache resultCache = core.getResultCache();
+		return resultCache != null ? resultCache.getHits() : 0;
+	}
+
+	/**
+	 * Returns how many cacheable queries were executed because their results
+	 * weren't cached.
+	 */
+	public long getResultCacheMisses() {
+		ensureInitialized();
+		ResultCache resultCache = core.getResultCache();
+		return resultCache != null ? resultCache.getMisses() : 0;
+	}
+
 	/**
 	 * Closes this database instance, it can't be used after this call.
 	 */
 	public void close() {
 		if (initialized) {
+			core.shutdownBackgroundExecutors();
 			databaseAdapter.close();
 		}
 		DATABASES.remove(core.getDatabaseInfo().getDatabaseName());
@@ -158,6 +300,7 @@ public class Database {
 	public static void deleteDatabase(Context context, String databaseName) {
 		checkThread();
 		MetaInfoDatabase.deleteDatabaseInfo(context, databaseName);
+		SchemaSnapshot.delete(context, databaseName);
 		context.deleteDatabase(databaseName);
 	}
 
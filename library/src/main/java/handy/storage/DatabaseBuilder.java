@@ -5,10 +5,12 @@ import android.text.TextUtils;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Executor;
 
 import handy.storage.annotation.AutoIncrement;
 import handy.storage.annotation.PrimaryKey;
 import handy.storage.api.Model;
+import handy.storage.base.DatabaseAdapter;
 import handy.storage.exception.InvalidDatabaseSchemaException;
 import handy.storage.update.OnDatabaseUpdatePolicy;
 import handy.storage.update.OnDatabaseUpdatePolicyFactory;
@@ -112,9 +114,8 @@ public class DatabaseBuilder {
 	 * whether rowid for inserted object should be set as value of "id" field of
 	 * this object after insertion ("id" field is a column declared as
 	 * <code>long</code> and annotated with {@link PrimaryKey} and
-	 * {@link AutoIncrement}). This setting can be changed independently for a
-	 * concrete table instance by calling
-	 * {@link WritableTable#setIdOnInsert(boolean)}.
+	 * {@link AutoIncrement}). This setting can be overridden for an insertion
+	 * by {@link WritableTable#insert(Model, handy.storage.base.OnConflictStrategy, boolean)}.
 	 * </p>
 	 * <p>
 	 * By default the framework always sets back rowids after insertion.
@@ -125,6 +126,168 @@ public class DatabaseBuilder {
 		return this;
 	}
 
+	/**
+	 * <p>
+	 * Sets whether queries (selects, counts, raw queries) may run in parallel
+	 * with each other and with the writing thread. If enabled, the database is
+	 * opened in the write-ahead logging journal mode and every query performed
+	 * outside of a transaction is run on a separate read connection. Writes and
+	 * transactions still go through a single writer.
+	 * </p>
+	 * <p>
+	 * Write-ahead logging requires Android 4.1 or higher, on earlier versions
+	 * queries are still serialized by the platform.
+	 * </p>
+	 * <p>
+	 * This option is turned off by default.
+	 * </p>
+	 */
+	public DatabaseBuilder setConcurrentReads(boolean concurrentReads) {
+		configuration.setConcurrentReads(concurrentReads);
+		return this;
+	}
+
+	/**
+	 * Sets how many compiled statements (inserts, updates, deletes, counts)
+	 * are kept open for reuse. Pass 0 to compile every statement anew. The
+	 * default value is {@link DatabaseAdapter#DEFAULT_STATEMENT_CACHE_SIZE}.
+	 */
+	public DatabaseBuilder setStatementCacheSize(int statementCacheSize) {
+		if (statementCacheSize < 0) {
+			throw new IllegalArgumentException("negative statement cache size");
+		}
+		configuration.setStatementCacheSize(statementCacheSize);
+		return this;
+	}
+
+	/**
+	 * Enables caching of the table's objects read by
+	 * {@link ReadableTable#selectById(Object)}, by
+	 * {@link ReadableTable#selectByColumnValue(String, Object)} with a unique
+	 * column and as references. The objects are kept until they are changed
+	 * through {@link WritableTable} and are shared by all readers, so they
+	 * must not be modified. The table must have a single primary key column.
+	 *
+	 * @param modelClass       class of a registered table
+	 * @param maxSize          maximum number of cached objects
+	 * @param timeToLiveMillis how long an object stays cached, 0 means until
+	 *                         it's changed or evicted
+	 */
+	public DatabaseBuilder setEntityCache(Class<? extends Model> modelClass, int maxSize, long timeToLiveMillis) {
+		if (maxSize <= 0) {
+			throw new IllegalArgumentException("entity cache size must be positive");
+		}
+		if (timeToLiveMillis < 0) {
+			throw new IllegalArgumentException("negative time to live");
+		}
+		configuration.setEntityCache(modelClass, new EntityCache.Settings(maxSize, timeToLiveMillis));
+		return this;
+	}
+
+	/**
+	 * Enables caching of the table's objects without time limit, see
+	 * {@link #setEntityCache(Class, int, long)}.
+	 */
+	public DatabaseBuilder setEntityCache(Class<? extends Model> modelClass, int maxSize) {
+		return setEntityCache(modelClass, maxSize, 0);
+	}
+
+	/**
+	 * Enables caching of the results of {@link handy.storage.api.Select},
+	 * {@link handy.storage.api.Mapping} and
+	 * {@link handy.storage.api.InspectData} queries. Repeated queries return
+	 * the cached results until any table they read from is changed. Returned
+	 * collections are copies, but the objects in them are shared by all
+	 * readers, so they must not be modified. The cache is disabled by default.
+	 *
+	 * @param maxSize maximum number of cached results, 0 disables the cache
+	 */
+	public DatabaseBuilder setResultCacheSize(int maxSize) {
+		if (maxSize < 0) {
+			throw new IllegalArgumentException("negative result cache size");
+		}
+		configuration.setResultCacheSize(maxSize);
+		return this;
+	}
+
+	/**
+	 * Sets how long a {@link handy.storage.api.LiveQuery} waits after a change
+	 * of its tables before executing again. Changes made during this time are
+	 * handled by the same execution. The default delay is 50 ms.
+	 *
+	 * @param delayMillis delay in milliseconds
+	 */
+	public DatabaseBuilder setLiveQueryDelay(long delayMillis) {
+		if (delayMillis < 0) {
+			throw new IllegalArgumentException("negative live query delay");
+		}
+		configuration.setLiveQueryDelay(delayMillis);
+		return this;
+	}
+
+	/**
+	 * Sets the executor of asynchronous reads, such as
+	 * {@link handy.storage.api.Select#executeAsync(handy.storage.api.Callback)}.
+	 * By default they run in a pool of daemon threads, a single thread is used
+	 * if concurrent reads are disabled.
+	 */
+	public DatabaseBuilder setReadExecutor(Executor executor) {
+		configuration.setReadExecutor(executor);
+		return this;
+	}
+
+	/**
+	 * Sets the executor of asynchronous writes, such as
+	 * {@link handy.storage.api.Update#executeAsync(handy.storage.api.Callback)}.
+	 * It must execute tasks one by one in the order of submission. By default
+	 * they run in a single daemon thread.
+	 */
+	public DatabaseBuilder setWriteExecutor(Executor executor) {
+		configuration.setWriteExecutor(executor);
+		return this;
+	}
+
+	/**
+	 * Enables group commit of asynchronous writes. Writes queued by
+	 * {@link WritableTable#insertAsync(Object, handy.storage.api.Callback)},
+	 * {@link handy.storage.api.Update#executeAsync(handy.storage.api.Callback)},
+	 * {@link handy.storage.api.Delete#executeAsync(handy.storage.api.Callback)}
+	 * and {@link Database#writeAsync(handy.storage.api.DatabaseTask, handy.storage.api.Callback)}
+	 * are executed by a single writer in batches, one transaction per batch,
+	 * and their futures complete when the batch is committed. The executor set
+	 * by {@link #setWriteExecutor(Executor)} isn't used in this mode.
+	 * Synchronous inserts, updates, deletes and upserts are queued the same
+	 * way and the calling thread waits for the commit, unless it runs a
+	 * transaction: then they are executed at once as a part of it.
+	 *
+	 * @param maxBatchSize     maximum number of writes in a batch
+	 * @param maxLatencyMillis how long a batch waits for more writes after the
+	 *                         first one
+	 */
+	public DatabaseBuilder setGroupCommit(int maxBatchSize, long maxLatencyMillis) {
+		if (maxBatchSize < 1) {
+			throw new IllegalArgumentException("batch size must be positive");
+		}
+		if (maxLatencyMillis < 0) {
+			throw new IllegalArgumentException("negative batch latency");
+		}
+		configuration.setGroupCommit(maxBatchSize, maxLatencyMillis);
+		return this;
+	}
+
+	/**
+	 * Sets the executor calling {@link handy.storage.api.Callback} methods,
+	 * e.g. one posting them to the main thread. By default they are called in
+	 * the thread that has executed the operation.
+	 */
+	public DatabaseBuilder setCallbackExecutor(Executor executor) {
+		if (executor == null) {
+			throw new IllegalArgumentException("callback executor is null");
+		}
+		configuration.setCallbackExecutor(executor);
+		return this;
+	}
+
 	/**
 	 * Builds the {@link Database} instance. The database initialisation
 	 * (parsing models, check for declaration errors) will be postponed until
@@ -1,13 +1,35 @@
 package handy.storage;
 
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+import handy.storage.api.Model;
+import handy.storage.base.DatabaseAdapter;
+
 /**
  * Configuration for the database.
  */
 class DatabaseConfiguration extends HandyStorage.Configuration {
 
+	/**
+	 * Default delay in milliseconds before a live query runs after a change.
+	 */
+	static final long DEFAULT_LIVE_QUERY_DELAY = 50;
+
 	private boolean checkTablesChanges = false;
 	private boolean enforceColumnNameConstants = false;
 	private boolean setIdOnInsertByDefault = true;
+	private boolean concurrentReads = false;
+	private int statementCacheSize = DatabaseAdapter.DEFAULT_STATEMENT_CACHE_SIZE;
+	private final Map<Class<?>, EntityCache.Settings> entityCacheSettings = new HashMap<>();
+	private int resultCacheSize = 0;
+	private long liveQueryDelay = DEFAULT_LIVE_QUERY_DELAY;
+	private Executor readExecutor;
+	private Executor writeExecutor;
+	private Executor callbackExecutor = Runnable::run;
+	private int groupCommitMaxBatchSize = 0;
+	private long groupCommitMaxLatency = 0;
 
 	DatabaseConfiguration(HandyStorage.Configuration configuration) {
 		super(configuration);
@@ -37,4 +59,96 @@ class DatabaseConfiguration extends HandyStorage.Configuration {
 		this.setIdOnInsertByDefault = set;
 	}
 
+	boolean concurrentReads() {
+		return concurrentReads;
+	}
+
+	void setConcurrentReads(boolean concurrentReads) {
+		this.concurrentReads = concurrentReads;
+	}
+
+	int statementCacheSize() {
+		return statementCacheSize;
+	}
+
+	void setStatementCacheSize(int statementCacheSize) {
+		this.statementCacheSize = statementCacheSize;
+	}
+
+	/**
+	 * Returns the executor of asynchronous reads or <code>null</code> if the
+	 * default one should be used.
+	 */
+	Executor readExecutor() {
+		return readExecutor;
+	}
+
+	void setReadExecutor(Executor readExecutor) {
+		this.readExecutor = readExecutor;
+	}
+
+	/**
+	 * Returns the executor of asynchronous writes or <code>null</code> if the
+	 * default one should be used.
+	 */
+	Executor writeExecutor() {
+		return writeExecutor;
+	}
+
+	void setWriteExecutor(Executor writeExecutor) {
+		this.writeExecutor = writeExecutor;
+	}
+
+	/**
+	 * Whether asynchronous writes are committed in batches.
+	 */
+	boolean groupCommit() {
+		return groupCommitMaxBatchSize > 0;
+	}
+
+	int groupCommitMaxBatchSize() {
+		return groupCommitMaxBatchSize;
+	}
+
+	long groupCommitMaxLatency() {
+		return groupCommitMaxLatency;
+	}
+
+	void setGroupCommit(int maxBatchSize, long maxLatency) {
+		groupCommitMaxBatchSize = maxBatchSize;
+		groupCommitMaxLatency = maxLatency;
+	}
+
+	Executor callbackExecutor() {
+		return callbackExecutor;
+	}
+
+	void setCallbackExecutor(Executor callbackExecutor) {
+		this.callbackExecutor = callbackExecutor;
+	}
+
+	long liveQueryDelay() {
+		return liveQueryDelay;
+	}
+
+	void setLiveQueryDelay(long liveQueryDelay) {
+		this.liveQueryDelay = liveQueryDelay;
+	}
+
+	int resultCacheSize() {
+		return resultCacheSize;
+	}
+
+	void setResultCacheSize(int resultCacheSize) {
+		this.resultCacheSize = resultCacheSize;
+	}
+
+	Map<Class<?>, EntityCache.Settings> entityCacheSettings() {
+		return entityCacheSettings;
+	}
+
+	void setEntityCache(Class<? extends Model> modelClass, EntityCache.Settings settings) {
+		entityCacheSettings.put(modelClass, settings);
+	}
+
 }
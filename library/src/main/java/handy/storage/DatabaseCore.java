@@ -1,9 +1,15 @@
 package handy.storage;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 
 import handy.storage.api.Model;
 import handy.storage.base.DatabaseAdapter;
@@ -17,15 +23,28 @@ import handy.storage.util.Factory;
 class DatabaseCore {
 
 	private final DatabaseInfo databaseInfo;
-	private List<TableInfo> databaseTables;
+	private final TablesCreator tablesCreator;
+	// all tables, parsed when needed
+	private volatile List<TableInfo> databaseTables;
+	private Map<String, TableInfo> tablesByName;
+	private TableDependencies tableDependencies;
 	private final DatabaseConfiguration configuration;
 	private final DataAdapters dataAdapters;
 	private TablesFactory tablesFactory;
+	private EntityCaches entityCaches;
+	private ResultCache resultCache;
+	private volatile InvalidationTracker invalidationTracker;
+	private ScheduledExecutorService backgroundExecutor;
+	private final AsyncExecutors asyncExecutors;
+	// undo the changes of objects made in the write transaction of the thread
+	private final ThreadLocal<List<Runnable>> rollbackActions = new ThreadLocal<>();
 
 	DatabaseCore(DatabaseInfo databaseInfo, DatabaseConfiguration configuration, DataAdapters dataAdapters) {
 		this.databaseInfo = databaseInfo;
 		this.configuration = configuration;
 		this.dataAdapters = dataAdapters;
+		tablesCreator = new TablesCreator(configuration, dataAdapters, databaseInfo.getRegisteredModels());
+		asyncExecutors = new AsyncExecutors(databaseInfo.getDatabaseName(), configuration);
 	}
 
 	DatabaseInfo getDatabaseInfo() {
@@ -36,6 +55,144 @@ class DatabaseCore {
 		return tablesFactory;
 	}
 
+	EntityCaches getEntityCaches() {
+		return entityCaches;
+	}
+
+	/**
+	 * Returns the query result cache or <code>null</code> if it's disabled.
+	 */
+	ResultCache getResultCache() {
+		return resultCache;
+	}
+
+	/**
+	 * Returns the tracker of the table observers, it's created on the first
+	 * call because it needs all tables.
+	 */
+	InvalidationTracker getInvalidationTracker() {
+		InvalidationTracker tracker = invalidationTracker;
+		if (tracker == null) {
+			synchronized (this) {
+				tracker = invalidationTracker;
+				if (tracker == null) {
+					tracker = new InvalidationTracker(getTables(), getTableDependencies());
+					invalidationTracker = tracker;
+				}
+			}
+		}
+		return tracker;
+	}
+
+	/**
+	 * Returns the executor running database operations in background. It's
+	 * created on the first call.
+	 */
+	synchronized ScheduledExecutorService getBackgroundExecutor() {
+		if (backgroundExecutor == null) {
+			backgroundExecutor = Executors.newSingleThreadScheduledExecutor(
+				AsyncExecutors.createThreadFactory(databaseInfo.getDatabaseName()));
+		}
+		return backgroundExecutor;
+	}
+
+	AsyncExecutors getAsyncExecutors() {
+		return asyncExecutors;
+	}
+
+	/**
+	 * Stops the background executors. Already scheduled operations are
+	 * executed.
+	 */
+	synchronized void shutdownBackgroundExecutors() {
+		if (backgroundExecutor != null) {
+			backgroundExecutor.shutdown();
+			backgroundExecutor = null;
+		}
+		asyncExecutors.shutdown();
+	}
+
+	/**
+	 * Returns models of the tables this SQL statement refers to.
+	 */
+	Set<Class<? extends Model>> findTables(String sql) {
+		Set<Class<? extends Model>> tables = new HashSet<>();
+		for (String table : getTableDependencies().findTables(sql)) {
+			tables.add(getTableInfo(table).getOriginClass());
+		}
+		return tables;
+	}
+
+	/**
+	 * Creates a {@link handy.storage.api.LiveQuery} of a query reading from
+	 * the tables of this SQL statement.
+	 */
+	<R> LiveQueryImpl<R> createLiveQuery(String sql, OperationCall<R> query) {
+		return new LiveQueryImpl<>(this, query, findTables(sql));
+	}
+
+	/**
+	 * Called after a statement changing the table has been executed.
+	 *
+	 * @param table name of the table or <code>null</code> if any table might
+	 *              have been changed
+	 */
+	void onTableChanged(String table) {
+		if (resultCache != null) {
+			resultCache.onTableChanged(table);
+		}
+		InvalidationTracker tracker = invalidationTracker;
+		if (tracker != null) {
+			tracker.onTableChanged(table);
+		}
+	}
+
+	/**
+	 * Called after a write transaction has been committed.
+	 */
+	void onCommit() {
+		rollbackActions.remove();
+		InvalidationTracker tracker = invalidationTracker;
+		if (tracker != null) {
+			tracker.onCommit();
+		}
+	}
+
+	/**
+	 * Called after a write transaction has been rolled back.
+	 */
+	void onRollback() {
+		List<Runnable> actions = rollbackActions.get();
+		if (actions != null) {
+			rollbackActions.remove();
+			for (int i = actions.size() - 1; i >= 0; i--) {
+				actions.get(i).run();
+			}
+		}
+		entityCaches.clear();
+		if (resultCache != null) {
+			resultCache.clear();
+		}
+		InvalidationTracker tracker = invalidationTracker;
+		if (tracker != null) {
+			tracker.onRollback();
+		}
+	}
+
+	/**
+	 * Registers an action undoing a change of an object made in the write
+	 * transaction of the current thread. The actions are run in reverse order
+	 * if the transaction is rolled back.
+	 */
+	void addRollbackAction(Runnable action) {
+		List<Runnable> actions = rollbackActions.get();
+		if (actions == null) {
+			actions = new ArrayList<>();
+			rollbackActions.set(actions);
+		}
+		actions.add(action);
+	}
+
 	DatabaseConfiguration getConfiguration() {
 		return configuration;
 	}
@@ -44,73 +201,111 @@ class DatabaseCore {
 		return dataAdapters;
 	}
 
+	/**
+	 * Returns all tables in the creation order. The models which haven't
+	 * been used yet are parsed on the first call.
+	 */
 	List<TableInfo> getTables() {
-		return databaseTables;
+		List<TableInfo> tables = databaseTables;
+		if (tables == null) {
+			synchronized (this) {
+				tables = databaseTables;
+				if (tables == null) {
+					tables = parseTables();
+				}
+			}
+		}
+		return tables;
 	}
 
-	boolean hasTable(Class<? extends Model> modelClass) {
-		for (TableInfo table : databaseTables) {
-			if (modelClass.equals(table.getOriginClass())) {
-				return true;
-			}
+	private List<TableInfo> parseTables() {
+		PerformanceTimer.startInterval("parse table models");
+		List<TableInfo> tables = Collections.unmodifiableList(tablesCreator.parseTables());
+		initTables(tables);
+		PerformanceTimer.endInterval();
+		return tables;
+	}
+
+	private void initTables(List<TableInfo> tables) {
+		Map<String, TableInfo> names = new HashMap<>(tables.size());
+		for (TableInfo table : tables) {
+			names.put(table.getName(), table);
 		}
-		return false;
+		tablesByName = names;
+		tableDependencies = new TableDependencies(tables);
+		databaseTables = tables;
 	}
 
+	/**
+	 * Sets all tables loaded from the {@link SchemaSnapshot}, so the models
+	 * aren't parsed.
+	 *
+	 * @param tables tables in the creation order with bound foreign columns
+	 */
+	synchronized void setTables(List<TableInfo> tables) {
+		tablesCreator.setTables(tables);
+		initTables(Collections.unmodifiableList(tables));
+	}
+
+	/**
+	 * Whether all tables have been parsed or loaded.
+	 */
+	boolean areTablesParsed() {
+		return databaseTables != null;
+	}
+
+	private TableDependencies getTableDependencies() {
+		getTables();
+		return tableDependencies;
+	}
+
+	boolean hasTable(Class<? extends Model> modelClass) {
+		return databaseInfo.getRegisteredModels().contains(modelClass);
+	}
+
+	/**
+	 * Returns the table of the model, parsing it and the models it references
+	 * on the first call.
+	 *
+	 * @return the table or <code>null</code> if the model isn't registered
+	 */
 	TableInfo getTableInfo(Class<? extends Model> modelClass) {
-		for (TableInfo table : databaseTables) {
-			if (modelClass.equals(table.getOriginClass())) {
-				return table;
-			}
-		}
-		return null;
+		return tablesCreator.getTable(modelClass);
 	}
 
 	TableInfo getTableInfo(String tableName) {
-		for (TableInfo table : databaseTables) {
-			if (tableName.equals(table.getName())) {
-				return table;
-			}
-		}
-		return null;
+		getTables();
+		return tablesByName.get(tableName);
 	}
 
+	/**
+	 * Creates the objects working with the database. Only the enabled caches
+	 * need all tables to be parsed.
+	 */
 	void initTablesFactory(DatabaseAdapter databaseAdapter) {
 		tablesFactory = new TablesFactory(databaseAdapter);
-	}
-
-	void prepareTables() {
-		PerformanceTimer.startInterval("parse table models");
-		TablesCreator tablesCreator = new TablesCreator(configuration, dataAdapters);
-		List<TableInfo> tables = tablesCreator.parseTables(databaseInfo.getRegisteredModels());
-		databaseTables = new ArrayList<>(tables.size());
-		for (TableInfo table : tables) {
-			databaseTables.add(table);
-		}
-		PerformanceTimer.endInterval();
+		Map<Class<?>, EntityCache.Settings> entityCacheSettings = configuration.entityCacheSettings();
+		entityCaches = entityCacheSettings.isEmpty()
+			? new EntityCaches(databaseAdapter, Collections.<TableInfo>emptyList(), new TableDependencies(Collections.<TableInfo>emptyList()), entityCacheSettings)
+			: new EntityCaches(databaseAdapter, getTables(), getTableDependencies(), entityCacheSettings);
+		int resultCacheSize = configuration.resultCacheSize();
+		resultCache = resultCacheSize > 0 ? new ResultCache(databaseAdapter, getTableDependencies(), resultCacheSize) : null;
 	}
 
 	/**
-	 * Create table instances.
+	 * Create table instances. The plans of the tables and the parsed
+	 * projection models are cached, so the instances are cheap to create.
 	 */
 	final class TablesFactory {
 
 		private final DatabaseAdapter databaseAdapter;
-		private final Map<Class<?>, TableInfo> tableInfoCache = new HashMap<>();
-		private final Map<Class<?>, TableInfo> projectionInfoCache = new HashMap<>();
+		private final Map<Class<?>, WritableTable<?>> tables = new ConcurrentHashMap<>();
+		private final Map<Class<?>, TableInfo> projectionInfoCache = new ConcurrentHashMap<>();
 
 		private TablesFactory(DatabaseAdapter databaseAdapter) {
 			this.databaseAdapter = databaseAdapter;
 		}
 
-		private TableInfo getInfoForTable(Class<? extends Model> modelClass) {
-			TableInfo result = tableInfoCache.get(modelClass);
-			if (result == null) {
-				result = getTableInfo(modelClass);
-				tableInfoCache.put(modelClass, result);
-			}
-			return result;
-		}
 
 		private TableInfo getInfoForProjection(Class<? extends Model> modelClass) {
 			TableInfo result = projectionInfoCache.get(modelClass);
@@ -121,24 +316,44 @@ class DatabaseCore {
 			return result;
 		}
 
-		<T extends Model> WritableTable<T> createTable(Class<T> modelClass) {
-			if (hasTable(modelClass)) {
-				TableInfo tableInfo = getInfoForTable(modelClass);
-				return new WritableTable<>(modelClass, tableInfo, databaseAdapter, DatabaseCore.this);
-			} else {
-				throw new IllegalArgumentException(modelClass.getName() + " is not registered as a table");
+		/**
+		 * Returns the table of the model. Tables are immutable, so one
+		 * instance with its plan is created for a model.
+		 */
+		@SuppressWarnings("unchecked")
+		<T extends Model> WritableTable<T> getTable(Class<T> modelClass) {
+			WritableTable<T> table = (WritableTable<T>) tables.get(modelClass);
+			if (table == null) {
+				TableInfo tableInfo = getTableInfo(modelClass);
+				if (tableInfo == null) {
+					throw new IllegalArgumentException(modelClass.getName() + " is not registered as a table");
+				}
+				// a table might be created twice by concurrent calls, both are equal
+				table = new WritableTable<>(new TablePlan<>(modelClass, tableInfo, dataAdapters, true), databaseAdapter, DatabaseCore.this);
+				tables.put(modelClass, table);
+			}
+			return table;
+		}
+
+		/**
+		 * Creates the tables of all models.
+		 */
+		@SuppressWarnings("unchecked")
+		void createTables() {
+			for (TableInfo table : getTables()) {
+				getTable((Class<Model>) table.getOriginClass());
 			}
 		}
 
 		<T extends Model> ReadableTable<T> createProjection(Class<T> modelClass, TableInfo baseTableInfo, Factory<QueryParams> queryParamsFactory) {
 			TableInfo modelTableInfo = getInfoForProjection(modelClass);
-			return new ReadableTable<>(
+			TablePlan<T> plan = new TablePlan<>(
 				modelClass,
 				TableInfoFactory.getTableInfoForProjection(baseTableInfo, modelTableInfo),
-				databaseAdapter,
-				DatabaseCore.this,
-				queryParamsFactory
+				dataAdapters,
+				false
 			);
+			return new ReadableTable<>(plan, databaseAdapter, DatabaseCore.this, queryParamsFactory);
 		}
 
 		<T extends Model> ReadableTable<T> createProjection(Class<T> modelClass, TableInfo baseTableInfo) {
@@ -3,7 +3,12 @@ package handy.storage;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteDatabase;
 
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import handy.storage.api.Model;
 import handy.storage.log.DatabaseLog;
@@ -128,6 +133,84 @@ public final class DatabaseSchemaEditor {
 		String createQuery = tableInfo.getCreateQuery();
 		DatabaseLog.d(createQuery);
 		database.execSQL(createQuery);
+		for (IndexInfo index : tableInfo.getIndexes()) {
+			createIndex(index);
+		}
+	}
+
+	/**
+	 * Brings indexes of the existing registered tables in line with their
+	 * declarations: creates missing indexes, rebuilds changed ones and
+	 * deletes the indexes which are no longer declared. Only the indexes
+	 * declared with {@link handy.storage.annotation.Index} or
+	 * {@link handy.storage.annotation.CompositeIndex} are affected. Called
+	 * automatically after the database upgrade.
+	 */
+	public void updateIndexes() {
+		Set<String> existingTables = new HashSet<>();
+		Map<String, Map<String, String>> existingIndexes = new HashMap<>();
+		Cursor cursor = database.rawQuery("SELECT type, name, tbl_name, sql FROM sqlite_master WHERE type IN ('table', 'index')", null);
+		try {
+			while (cursor.moveToNext()) {
+				String name = cursor.getString(1);
+				if ("table".equals(cursor.getString(0))) {
+					existingTables.add(name);
+				} else if (!cursor.isNull(3)) {
+					// indexes created by SQLite for constraints have no SQL
+					String table = cursor.getString(2);
+					Map<String, String> tableIndexes = existingIndexes.get(table);
+					if (tableIndexes == null) {
+						tableIndexes = new HashMap<>();
+						existingIndexes.put(table, tableIndexes);
+					}
+					tableIndexes.put(name, cursor.getString(3));
+				}
+			}
+		} finally {
+			cursor.close();
+		}
+		for (TableInfo tableInfo : registeredTables) {
+			String table = tableInfo.getName();
+			if (existingTables.contains(table)) {
+				Map<String, String> tableIndexes = existingIndexes.get(table);
+				updateIndexes(tableInfo, tableIndexes != null ? tableIndexes : Collections.<String, String>emptyMap());
+			}
+		}
+	}
+
+	private void updateIndexes(TableInfo tableInfo, Map<String, String> existingIndexes) {
+		Set<String> declaredIndexes = new HashSet<>();
+		for (IndexInfo index : tableInfo.getIndexes()) {
+			declaredIndexes.add(index.getName());
+			String existingDeclaration = existingIndexes.get(index.getName());
+			if (existingDeclaration == null) {
+				createIndex(index);
+			} else if (!existingDeclaration.trim().equalsIgnoreCase(index.getDeclaration())) {
+				deleteIndex(index.getName());
+				createIndex(index);
+			}
+		}
+		String prefix = IndexInfo.getIndexNamePrefix(tableInfo.getName());
+		for (String name : existingIndexes.keySet()) {
+			if (name.startsWith(prefix) && !declaredIndexes.contains(name)) {
+				deleteIndex(name);
+			}
+		}
+	}
+
+	/**
+	 * Deletes the index.
+	 */
+	public void deleteIndex(String name) {
+		String sql = "DROP INDEX IF EXISTS " + name;
+		DatabaseLog.d(sql);
+		database.execSQL(sql);
+	}
+
+	private void createIndex(IndexInfo index) {
+		String createQuery = index.getCreateQuery();
+		DatabaseLog.d(createQuery);
+		database.execSQL(createQuery);
 	}
 
 }
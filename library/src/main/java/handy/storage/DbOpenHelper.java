@@ -10,6 +10,7 @@ import java.util.List;
 import android.content.Context;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.os.Build;
 
 /**
  * SQLiteOpenHelper for database engine.
@@ -23,6 +24,10 @@ class DbOpenHelper extends SQLiteOpenHelper {
 		super(context, schema.getDatabaseInfo().getDatabaseName(), null, schema.getDatabaseInfo().getDatabaseVersion());
 		onUpdatePolicy = schema.getDatabaseInfo().getOnDatabaseUpdatePolicy();
 		this.schema = schema;
+		if (schema.getConfiguration().concurrentReads() && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+			// readers get their own connections and don't wait for the writer
+			setWriteAheadLoggingEnabled(true);
+		}
 	}
 
 	@Override
@@ -43,6 +48,7 @@ class DbOpenHelper extends SQLiteOpenHelper {
 		for (OnDatabaseUpdateAction action : actions) {
 			action.execute(schemaEditor, db);
 		}
+		schemaEditor.updateIndexes();
 		PerformanceTimer.endInterval();
 	}
 	
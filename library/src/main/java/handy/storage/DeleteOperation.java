@@ -1,7 +1,9 @@
 package handy.storage;
 
-import android.text.TextUtils;
+import java.util.Collection;
+import java.util.concurrent.Future;
 
+import handy.storage.api.Callback;
 import handy.storage.api.Delete;
 import handy.storage.api.Model;
 import handy.storage.api.Select;
@@ -20,6 +22,8 @@ public class DeleteOperation<T extends Model> extends BaseOperation<DeleteOperat
 	
 	private boolean limitedMode = false;
 	private Select<T> selectToDelete;
+	private ColumnInfo keyColumn;
+	private Collection<?> keys;
 
 	DeleteOperation(WritableTable<T> table) {
 		super(table);
@@ -31,21 +35,42 @@ public class DeleteOperation<T extends Model> extends BaseOperation<DeleteOperat
 	 */
 	@Override
 	public int execute() throws OperationException {
+		return getAsyncExecutors().writeAndWait(this::executeNow);
+	}
+
+	private int executeNow() throws OperationException {
 		PerformanceTimer.startInterval("delete");
 		int removedCount = limitedMode ? executeLimited() : executeNormal();
 		PerformanceTimer.endInterval();
 		return removedCount;
 	}
 
+	/**
+	 * Tells that the selection matches only the rows whose column has one of
+	 * these values, so only they are evicted from the entity cache.
+	 */
+	DeleteOperation<T> setDeletedKeys(ColumnInfo column, Collection<?> values) {
+		keyColumn = column;
+		keys = values;
+		return this;
+	}
+
 	private int executeNormal() throws OperationException {
-		return getDatabaseAdapter().remove(getOwner().getTableEntity(), getWhereClause());
+		Table owner = getOwner();
+		int removedCount = getDatabaseAdapter().remove(owner.getTableEntity(), getWhereClause(), getWhereArguments());
+		if (keys != null) {
+			getEntityCaches().onRowsChanged(owner.getTableName(), keyColumn, keys);
+		} else {
+			getEntityCaches().onTableChanged(owner.getTableName());
+		}
+		return removedCount;
 	}
 	
 	@SuppressWarnings("unchecked")
 	private int executeLimited() throws OperationException {
-		String where = getWhereClause();		
-		if (!TextUtils.isEmpty(where)) {
-			selectToDelete.where(getOwner().expressions().raw(where));
+		Expression where = getWhereExpression();
+		if (where != null) {
+			selectToDelete.where(where);
 		}
 		return ((WritableTable<T>) getOwner()).deleteAllFrom(selectToDelete);
 	}
@@ -80,6 +105,14 @@ public class DeleteOperation<T extends Model> extends BaseOperation<DeleteOperat
 		return this;
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Future<Integer> executeAsync(Callback<? super Integer> callback) {
+		return getAsyncExecutors().write(this::execute, callback);
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -0,0 +1,215 @@
+package handy.storage;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import handy.storage.base.DatabaseAdapter;
+
+/**
+ * Keeps recently read objects of one table by the values of their primary
+ * key. The least recently used objects are evicted when the cache is full.
+ * Cached objects are shared by all readers, so they must not be modified.
+ */
+final class EntityCache {
+
+	/**
+	 * Cache parameters of a table.
+	 */
+	static final class Settings {
+
+		private final int maxSize;
+		private final long timeToLiveMillis;
+
+		/**
+		 * @param maxSize          maximum number of cached objects
+		 * @param timeToLiveMillis how long an object stays valid, 0 means
+		 *                         forever
+		 */
+		Settings(int maxSize, long timeToLiveMillis) {
+			this.maxSize = maxSize;
+			this.timeToLiveMillis = timeToLiveMillis;
+		}
+
+	}
+
+	/**
+	 * Cached object.
+	 */
+	private static final class Entry {
+
+		private final Object object;
+		private final long expirationTime;
+		private final Object[] uniqueValues;
+
+		Entry(Object object, long expirationTime, Object[] uniqueValues) {
+			this.object = object;
+			this.expirationTime = expirationTime;
+			this.uniqueValues = uniqueValues;
+		}
+
+	}
+
+	private final DatabaseAdapter databaseAdapter;
+	private final int maxSize;
+	private final long timeToLiveNanos;
+	private final ColumnInfo keyColumn;
+	private final List<ColumnInfo> uniqueColumns = new ArrayList<>();
+	private final LinkedHashMap<Object, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+	private final Map<ColumnInfo, Map<Object, Object>> uniqueKeys = new HashMap<>();
+
+	private long generation = 0;
+
+	EntityCache(DatabaseAdapter databaseAdapter, TableInfo tableInfo, Settings settings) {
+		this.databaseAdapter = databaseAdapter;
+		maxSize = settings.maxSize;
+		timeToLiveNanos = settings.timeToLiveMillis * 1000000L;
+		keyColumn = tableInfo.getPrimaryKeyColumn();
+		for (ColumnInfo column : tableInfo.getColumns()) {
+			if (column != keyColumn && column.isUniqueFlagSet() && column.getField() != null) {
+				uniqueColumns.add(column);
+				uniqueKeys.put(column, new HashMap<>());
+			}
+		}
+	}
+
+	/**
+	 * Whether objects can be looked up by values of this column.
+	 */
+	boolean isKeyColumn(ColumnInfo column) {
+		return column == keyColumn || uniqueKeys.containsKey(column);
+	}
+
+	ColumnInfo getPrimaryKeyColumn() {
+		return keyColumn;
+	}
+
+	/**
+	 * Returns the cached object whose column has this value or
+	 * <code>null</code>.
+	 */
+	synchronized Object get(ColumnInfo column, Object value) {
+		Object key = column == keyColumn ? normalizeKey(value) : findPrimaryKey(column, value);
+		Entry entry = key == null ? null : entries.get(key);
+		if (entry != null && timeToLiveNanos > 0 && System.nanoTime() - entry.expirationTime > 0) {
+			remove(key);
+			entry = null;
+		}
+		return entry == null ? null : entry.object;
+	}
+
+	private Object findPrimaryKey(ColumnInfo column, Object value) {
+		Map<Object, Object> keys = uniqueKeys.get(column);
+		return keys == null ? null : keys.get(normalizeKey(value));
+	}
+
+	/**
+	 * Must be called before the query whose result will be passed to
+	 * {@link #put(CacheReadMark, Object)}.
+	 */
+	synchronized CacheReadMark markRead() {
+		return new CacheReadMark(generation, databaseAdapter);
+	}
+
+	/**
+	 * Caches the object read by a query unless the mark is no longer valid.
+	 */
+	synchronized void put(CacheReadMark mark, Object object) {
+		if (!mark.isValid(generation, databaseAdapter)) {
+			return;
+		}
+		Object key = normalizeKey(keyColumn.getFieldAccessor().get(object));
+		if (key == null) {
+			return;
+		}
+		remove(key);
+		Object[] uniqueValues = new Object[uniqueColumns.size()];
+		for (int i = 0; i < uniqueValues.length; i++) {
+			ColumnInfo column = uniqueColumns.get(i);
+			uniqueValues[i] = normalizeKey(column.getFieldAccessor().get(object));
+			if (uniqueValues[i] != null) {
+				uniqueKeys.get(column).put(uniqueValues[i], key);
+			}
+		}
+		long expirationTime = timeToLiveNanos > 0 ? System.nanoTime() + timeToLiveNanos : 0;
+		entries.put(key, new Entry(object, expirationTime, uniqueValues));
+		trimToSize();
+	}
+
+	private void trimToSize() {
+		Iterator<Map.Entry<Object, Entry>> eldest = entries.entrySet().iterator();
+		while (entries.size() > maxSize) {
+			Map.Entry<Object, Entry> entry = eldest.next();
+			eldest.remove();
+			removeUniqueKeys(entry.getKey(), entry.getValue());
+		}
+	}
+
+	/**
+	 * Removes objects whose column has these values.
+	 */
+	synchronized void evict(ColumnInfo column, Collection<?> values) {
+		generation++;
+		if (!isKeyColumn(column)) {
+			clearEntries();
+			return;
+		}
+		for (Object value : values) {
+			Object key = column == keyColumn ? normalizeKey(value) : findPrimaryKey(column, value);
+			if (key != null) {
+				remove(key);
+			}
+		}
+	}
+
+	/**
+	 * Removes all objects.
+	 */
+	synchronized void clear() {
+		generation++;
+		clearEntries();
+	}
+
+	private void clearEntries() {
+		entries.clear();
+		for (Map<Object, Object> keys : uniqueKeys.values()) {
+			keys.clear();
+		}
+	}
+
+	private void remove(Object key) {
+		Entry entry = entries.remove(key);
+		if (entry != null) {
+			removeUniqueKeys(key, entry);
+		}
+	}
+
+	private void removeUniqueKeys(Object key, Entry entry) {
+		for (int i = 0; i < entry.uniqueValues.length; i++) {
+			Map<Object, Object> keys = uniqueKeys.get(uniqueColumns.get(i));
+			Object value = entry.uniqueValues[i];
+			if (value != null && key.equals(keys.get(value))) {
+				keys.remove(value);
+			}
+		}
+	}
+
+	/**
+	 * Brings numbers of different classes to the same key, so
+	 * <code>1</code> and <code>1L</code> find the same object.
+	 */
+	private static Object normalizeKey(Object value) {
+		if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+			return ((Number) value).longValue();
+		}
+		if (value instanceof Float) {
+			return ((Float) value).doubleValue();
+		}
+		return value;
+	}
+
+}
@@ -0,0 +1,101 @@
+package handy.storage;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import handy.storage.base.DatabaseAdapter;
+import handy.storage.exception.InvalidDatabaseSchemaException;
+
+/**
+ * Holds {@link EntityCache} instances of the database tables and invalidates
+ * them on changes. A change of a table also clears the caches of its
+ * {@link TableDependencies dependent tables}.
+ */
+final class EntityCaches {
+
+	private final Map<String, EntityCache> caches = new HashMap<>();
+	private final TableDependencies dependencies;
+
+	EntityCaches(DatabaseAdapter databaseAdapter, List<TableInfo> tables, TableDependencies dependencies, Map<Class<?>, EntityCache.Settings> settings) {
+		this.dependencies = dependencies;
+		for (TableInfo table : tables) {
+			EntityCache.Settings tableSettings = settings.get(table.getOriginClass());
+			if (tableSettings != null) {
+				ColumnInfo primaryKey = table.getPrimaryKeyColumn();
+				if (primaryKey == null || primaryKey.getField() == null) {
+					throw new InvalidDatabaseSchemaException("table " + table.getName() + " needs a single primary key column to be cached");
+				}
+				caches.put(table.getName(), new EntityCache(databaseAdapter, table, tableSettings));
+			}
+		}
+	}
+
+	/**
+	 * Whether no table is cached.
+	 */
+	boolean isEmpty() {
+		return caches.isEmpty();
+	}
+
+	/**
+	 * Returns the cache of this table or <code>null</code> if the table isn't
+	 * cached.
+	 */
+	EntityCache get(String tableName) {
+		return caches.get(tableName);
+	}
+
+	/**
+	 * Invalidates the rows of the table whose column has these values.
+	 */
+	void onRowsChanged(String tableName, ColumnInfo column, Collection<?> values) {
+		if (caches.isEmpty()) {
+			return;
+		}
+		EntityCache cache = caches.get(tableName);
+		if (cache != null) {
+			cache.evict(column, values);
+		}
+		clearDependentTables(tableName);
+	}
+
+	/**
+	 * Invalidates all rows of the table.
+	 */
+	void onTableChanged(String tableName) {
+		if (caches.isEmpty()) {
+			return;
+		}
+		if (!dependencies.isTable(tableName)) {
+			// not a plain table (e.g. an aggregation), its source is unknown
+			clear();
+			return;
+		}
+		EntityCache cache = caches.get(tableName);
+		if (cache != null) {
+			cache.clear();
+		}
+		clearDependentTables(tableName);
+	}
+
+	private void clearDependentTables(String tableName) {
+		for (String dependent : dependencies.getDependentTables(tableName)) {
+			EntityCache cache = caches.get(dependent);
+			if (cache != null) {
+				cache.clear();
+			}
+		}
+	}
+
+	/**
+	 * Invalidates all the caches.
+	 */
+	void clear() {
+		for (EntityCache cache : caches.values()) {
+			cache.clear();
+		}
+	}
+
+}
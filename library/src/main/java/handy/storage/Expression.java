@@ -2,10 +2,12 @@ package handy.storage;
 
 import android.text.TextUtils;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import handy.storage.api.ColumnCondition;
+import handy.storage.base.SqlArguments;
 
 /**
  * Selection expression. Can be get a factory for it using {@link Table#expressions()} method.
@@ -29,22 +31,45 @@ public final class Expression {
 
 	}
 
+	private static final Object[] NO_ARGUMENTS = new Object[0];
+
 	private final QueryAdapter queryAdapter;
 	private final String selection;
+	private final Object[] arguments;
 
 	Expression(String selection, QueryAdapter queryAdapter) {
+		this(selection, NO_ARGUMENTS, queryAdapter);
+	}
+
+	Expression(String selection, Object[] arguments, QueryAdapter queryAdapter) {
 		this.selection = selection;
+		this.arguments = arguments;
 		this.queryAdapter = queryAdapter;
 	}
 
 	/**
-	 * Returns SQLite's string representation of this expression.
+	 * Returns SQLite's string representation of this expression (with all
+	 * values inlined).
 	 */
 	@Override
 	public String toString() {
+		return SqlArguments.inline(selection, arguments);
+	}
+
+	/**
+	 * Returns the expression with "?" placeholders instead of values.
+	 */
+	String getSelection() {
 		return selection;
 	}
 
+	/**
+	 * Returns values for the placeholders of {@link #getSelection()}.
+	 */
+	Object[] getArguments() {
+		return arguments;
+	}
+
 	/**
 	 * Returns hashcode of the table this expression was created for.
 	 */
@@ -86,7 +111,7 @@ public final class Expression {
 	 * Returns new Expression opposite to this one.
 	 */
 	public Expression invert() {
-		return new Expression("NOT (" + selection + ")", queryAdapter);
+		return new Expression("NOT (" + selection + ")", arguments, queryAdapter);
 	}
 
 	/**
@@ -107,22 +132,30 @@ public final class Expression {
 		QueryAdapter queryAdapter = expressions[0].queryAdapter;
 		switch (operator) {
 			case AND:
-				return new Expression(joinSelection(" AND ", expressions), queryAdapter);
+				return new Expression(joinSelection(" AND ", expressions), joinArguments(expressions), queryAdapter);
 			case OR:
-				return new Expression(joinSelection(" OR ", expressions), queryAdapter);
+				return new Expression(joinSelection(" OR ", expressions), joinArguments(expressions), queryAdapter);
 			default:
 				throw new IllegalArgumentException("Unknown operator");
 		}
 	}
 
 	private static String joinSelection(String op, Expression[] expressions) {
-		List<String> stringRepresentations = new LinkedList<>();
+		List<String> stringRepresentations = new ArrayList<>(expressions.length);
 		for (Expression expression : expressions) {
-			stringRepresentations.add("(" + expression.toString() + ")");
+			stringRepresentations.add("(" + expression.selection + ")");
 		}
 		return TextUtils.join(op, stringRepresentations);
 	}
 
+	private static Object[] joinArguments(Expression[] expressions) {
+		List<Object> arguments = new ArrayList<>();
+		for (Expression expression : expressions) {
+			Collections.addAll(arguments, expression.arguments);
+		}
+		return arguments.toArray();
+	}
+
 	/**
 	 * Helps build composite selection.
 	 *
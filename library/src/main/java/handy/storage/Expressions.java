@@ -97,7 +97,10 @@ public class Expressions<T> {
 
 	/**
 	 * Creates a new {@link Expression} instance limiting the objects to be
-	 * <b>one of the <code>objects</code></b>.
+	 * <b>one of the <code>objects</code></b>. Prefer
+	 * {@link WritableTable#delete(Collection)} and
+	 * {@link WritableTable#update(Collection)} to change many objects, they
+	 * split a large collection into several statements.
 	 *
 	 * @throws IllegalUsageException if the table is not bound to a model class or the table has no unique or primary key column
 	 */
@@ -137,8 +140,8 @@ public class Expressions<T> {
 		QueryParams query = select.asQueryParams();
 		query.columns(uniqueColumnName);
 		return including
-			? newColumnExpressionBuilder(uniqueColumnName).inTable(query.toRawSqlQuery())
-			: newColumnExpressionBuilder(uniqueColumnName).notInTable(query.toRawSqlQuery());
+			? newColumnExpressionBuilder(uniqueColumnName).inTable(query)
+			: newColumnExpressionBuilder(uniqueColumnName).notInTable(query);
 	}
 
 	ColumnExpressionBuilder<Expression> newColumnExpressionBuilder(String column) {
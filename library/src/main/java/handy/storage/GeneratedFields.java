@@ -0,0 +1,93 @@
+package handy.storage;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import handy.storage.util.GeneratedAdapter;
+import handy.storage.util.GeneratedAdapters;
+
+/**
+ * Columns of a model written and read by the adapter generated for one of
+ * its classes, see {@link GeneratedAdapter}. References are always accessed
+ * through the field accessors, since their fields don't hold the column
+ * values.
+ */
+final class GeneratedFields {
+
+	private final GeneratedAdapter adapter;
+	private final int[] columnIndexes;
+
+	private GeneratedFields(GeneratedAdapter adapter, int[] columnIndexes) {
+		this.adapter = adapter;
+		this.columnIndexes = columnIndexes;
+	}
+
+	GeneratedAdapter getAdapter() {
+		return adapter;
+	}
+
+	/**
+	 * Returns the index of the field's column in the list passed to
+	 * {@link #find(List, boolean[])} or -1 if the field isn't handled by the
+	 * adapter.
+	 */
+	int getColumnIndex(int field) {
+		return columnIndexes[field];
+	}
+
+	int getFieldCount() {
+		return columnIndexes.length;
+	}
+
+	/**
+	 * Finds the generated adapters of the classes declaring the columns'
+	 * fields.
+	 *
+	 * @param generated set to <code>true</code> for the columns handled by
+	 *                  the found adapters
+	 */
+	static List<GeneratedFields> find(List<ColumnInfo> columns, boolean[] generated) {
+		Map<Class<?>, Map<String, Integer>> columnsByClass = new LinkedHashMap<>();
+		for (int i = 0; i < columns.size(); i++) {
+			ColumnInfo column = columns.get(i);
+			Field field = column.getField();
+			if (field == null || column.isReferenceToTable()) {
+				continue;
+			}
+			Map<String, Integer> classColumns = columnsByClass.get(field.getDeclaringClass());
+			if (classColumns == null) {
+				classColumns = new LinkedHashMap<>();
+				columnsByClass.put(field.getDeclaringClass(), classColumns);
+			}
+			classColumns.put(field.getName(), i);
+		}
+		List<GeneratedFields> result = new ArrayList<>();
+		for (Map.Entry<Class<?>, Map<String, Integer>> entry : columnsByClass.entrySet()) {
+			GeneratedAdapter adapter = GeneratedAdapters.find(entry.getKey());
+			if (adapter == null) {
+				continue;
+			}
+			String[] fieldNames = adapter.getFieldNames();
+			int[] columnIndexes = new int[fieldNames.length];
+			Arrays.fill(columnIndexes, -1);
+			boolean found = false;
+			for (int field = 0; field < fieldNames.length; field++) {
+				Integer columnIndex = entry.getValue().get(fieldNames[field]);
+				if (columnIndex != null) {
+					columnIndexes[field] = columnIndex;
+					generated[columnIndex] = true;
+					found = true;
+				}
+			}
+			if (found) {
+				result.add(new GeneratedFields(adapter, columnIndexes));
+			}
+		}
+		return result;
+	}
+
+}
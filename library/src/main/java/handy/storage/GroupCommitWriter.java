@@ -0,0 +1,275 @@
+package handy.storage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import handy.storage.api.Callback;
+import handy.storage.base.DatabaseAdapter;
+import handy.storage.base.DatabaseAdapter.TransactionControl;
+import handy.storage.log.DatabaseLog;
+
+/**
+ * Executes queued writes in batches, each batch in one transaction, so many
+ * small writes share one commit. A batch is started by the first queued
+ * write and collects the following ones until it's full or its maximum
+ * latency passes. The results are delivered after the commit. If any write
+ * of a batch fails, the batch is rolled back and its writes are executed
+ * again one by one, so only the failing write gets the error. The rollback
+ * undoes the changes the writes made to their objects, such as the rowids
+ * set after insertion (see {@link DatabaseCore#addRollbackAction(Runnable)}).
+ */
+final class GroupCommitWriter {
+
+	private final int maxBatchSize;
+	private final long maxLatencyNanos;
+	private final Executor callbackExecutor;
+	private final DatabaseAdapter databaseAdapter;
+	private final Runnable initializer;
+	private final BlockingQueue<PendingWrite<?>> queue = new LinkedBlockingQueue<>();
+	private final Thread thread;
+
+	// written under the lock of this writer, so no write is queued after the stop
+	private volatile boolean stopped = false;
+
+	/**
+	 * @param initializer prepares the database before the first batch
+	 */
+	GroupCommitWriter(String name, DatabaseConfiguration configuration, DatabaseAdapter databaseAdapter, Runnable initializer) {
+		maxBatchSize = configuration.groupCommitMaxBatchSize();
+		maxLatencyNanos = TimeUnit.MILLISECONDS.toNanos(configuration.groupCommitMaxLatency());
+		callbackExecutor = configuration.callbackExecutor();
+		this.databaseAdapter = databaseAdapter;
+		this.initializer = initializer;
+		thread = AsyncExecutors.createThreadFactory(name).newThread(this::run);
+		thread.start();
+	}
+
+	/**
+	 * Queues the write.
+	 *
+	 * @param callback callback or <code>null</code>
+	 */
+	synchronized <R> Future<R> write(OperationCall<R> call, Callback<? super R> callback) {
+		if (stopped) {
+			throw new IllegalStateException("the database is closed");
+		}
+		PendingWrite<R> write = new PendingWrite<>(call, callback);
+		queue.add(write);
+		return write;
+	}
+
+	/**
+	 * Whether the current thread is the one executing the writes.
+	 */
+	boolean isWriterThread() {
+		return Thread.currentThread() == thread;
+	}
+
+	/**
+	 * Stops the writer after the already queued writes are executed.
+	 */
+	synchronized void stop() {
+		stopped = true;
+		// wakes the writer up if it's waiting
+		queue.add(new PendingWrite<Void>(() -> null, null));
+	}
+
+	private void run() {
+		List<PendingWrite<?>> batch = new ArrayList<>(maxBatchSize);
+		while (!stopped || !queue.isEmpty()) {
+			try {
+				collectBatch(batch);
+			} catch (InterruptedException e) {
+				DatabaseLog.logException(e);
+				queue.drainTo(batch, maxBatchSize - batch.size());
+			}
+			if (!batch.isEmpty()) {
+				executeBatch(batch);
+				batch.clear();
+			}
+		}
+	}
+
+	private void collectBatch(List<PendingWrite<?>> batch) throws InterruptedException {
+		batch.add(queue.take());
+		long deadline = System.nanoTime() + maxLatencyNanos;
+		while (batch.size() < maxBatchSize) {
+			long timeout = deadline - System.nanoTime();
+			PendingWrite<?> write = timeout > 0 ? queue.poll(timeout, TimeUnit.NANOSECONDS) : queue.poll();
+			if (write == null) {
+				break;
+			}
+			batch.add(write);
+		}
+	}
+
+	private void executeBatch(List<PendingWrite<?>> batch) {
+		try {
+			initializer.run();
+		} catch (RuntimeException e) {
+			for (PendingWrite<?> write : batch) {
+				write.fail(e);
+			}
+			return;
+		}
+		if (batch.size() > 1 && executeInTransaction(batch)) {
+			for (PendingWrite<?> write : batch) {
+				write.complete();
+			}
+		} else {
+			for (PendingWrite<?> write : batch) {
+				write.executeAlone();
+			}
+		}
+	}
+
+	/**
+	 * Executes the writes in one transaction.
+	 *
+	 * @return whether the transaction has been committed
+	 */
+	private boolean executeInTransaction(List<PendingWrite<?>> batch) {
+		try {
+			TransactionControl transaction = databaseAdapter.startTransaction();
+			try {
+				for (PendingWrite<?> write : batch) {
+					write.execute();
+				}
+				transaction.setSuccessful();
+			} finally {
+				transaction.end();
+			}
+			return true;
+		} catch (Exception e) {
+			DatabaseLog.i("group commit of " + batch.size() + " writes failed, executing them one by one");
+			return false;
+		}
+	}
+
+	/**
+	 * Queued write and its future result.
+	 *
+	 * @param <R> type of the result
+	 */
+	private final class PendingWrite<R> implements Future<R> {
+
+		private final OperationCall<R> call;
+		private final Callback<? super R> callback;
+		private final CountDownLatch done = new CountDownLatch(1);
+
+		private boolean started = false;
+		private boolean cancelled = false;
+		private R result;
+		private Exception exception;
+
+		PendingWrite(OperationCall<R> call, Callback<? super R> callback) {
+			this.call = call;
+			this.callback = callback;
+		}
+
+		/**
+		 * Executes the write as a part of a batch, the result is delivered
+		 * by {@link #complete()}.
+		 */
+		void execute() throws Exception {
+			if (start()) {
+				result = call.call();
+			}
+		}
+
+		void executeAlone() {
+			if (!start()) {
+				return;
+			}
+			try {
+				result = call.call();
+			} catch (Exception e) {
+				fail(e);
+				return;
+			}
+			complete();
+		}
+
+		private synchronized boolean start() {
+			started = true;
+			return !cancelled;
+		}
+
+		void complete() {
+			if (isCancelled()) {
+				return;
+			}
+			R completedResult = result;
+			done.countDown();
+			if (callback != null) {
+				callbackExecutor.execute(() -> callback.onResult(completedResult));
+			}
+		}
+
+		void fail(Exception e) {
+			if (isCancelled()) {
+				return;
+			}
+			exception = e;
+			done.countDown();
+			if (callback != null) {
+				callbackExecutor.execute(() -> callback.onError(e));
+			}
+		}
+
+		@Override
+		public synchronized boolean cancel(boolean mayInterruptIfRunning) {
+			if (started) {
+				return false;
+			}
+			cancelled = true;
+			done.countDown();
+			return true;
+		}
+
+		@Override
+		public synchronized boolean isCancelled() {
+			return cancelled;
+		}
+
+		@Override
+		public boolean isDone() {
+			return done.getCount() == 0;
+		}
+
+		@Override
+		public R get() throws InterruptedException, ExecutionException {
+			done.await();
+			return getResult();
+		}
+
+		@Override
+		public R get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+			if (!done.await(timeout, unit)) {
+				throw new TimeoutException();
+			}
+			return getResult();
+		}
+
+		private R getResult() throws ExecutionException {
+			if (isCancelled()) {
+				throw new CancellationException();
+			}
+			if (exception != null) {
+				throw new ExecutionException(exception);
+			}
+			return result;
+		}
+
+	}
+
+}
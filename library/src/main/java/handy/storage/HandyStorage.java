@@ -8,6 +8,7 @@ import handy.storage.annotation.GsonSerializable;
 import handy.storage.api.Model;
 import handy.storage.api.ObjectCreator;
 import handy.storage.log.DatabaseLog;
+import handy.storage.util.Factory;
 import handy.storage.util.ReflectionUtils;
 
 /**
@@ -122,6 +123,16 @@ public final class HandyStorage {
 			return this;
 		}
 
+		/**
+		 * Sets the factory to create empty table model instances with, before
+		 * the fields are filled by the default object creator. Use it to replace
+		 * the reflective call of the default constructor with a direct one.
+		 */
+		public <T extends Model> Builder setInstantiator(Class<T> modelClass, Factory<T> instantiator) {
+			dataAdapters.addInstantiator(modelClass, instantiator);
+			return this;
+		}
+
 		/**
 		 * Sets the {@link Gson} object to use for the serialization of columns
 		 * annotated with {@link GsonSerializable} instead of the default one.
@@ -0,0 +1,137 @@
+package handy.storage;
+
+import android.text.TextUtils;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import handy.storage.annotation.CompositeIndex;
+import handy.storage.annotation.Index;
+
+/**
+ * Describes an index declared with {@link Index} or {@link CompositeIndex}
+ * annotation.
+ */
+final class IndexInfo {
+
+	private final String name;
+	private final String table;
+	private final List<String> columns;
+	private final Set<String> descendingColumns;
+	private final boolean unique;
+	private final String where;
+
+	private IndexInfo(String table, String name, List<String> columns, Set<String> descendingColumns, boolean unique, String where) {
+		this.table = table;
+		this.name = getIndexNamePrefix(table) + name;
+		this.columns = columns;
+		this.descendingColumns = descendingColumns;
+		this.unique = unique;
+		this.where = where;
+	}
+
+	static IndexInfo forColumn(String table, String column, Index annotation) {
+		String name = TextUtils.isEmpty(annotation.name()) ? column : annotation.name();
+		Set<String> descending = annotation.descending() ? Collections.singleton(column) : Collections.<String>emptySet();
+		return new IndexInfo(table, name, Collections.singletonList(column), descending, annotation.unique(), annotation.where());
+	}
+
+	static IndexInfo forColumns(String table, CompositeIndex annotation) {
+		List<String> columns = new ArrayList<>(Arrays.asList(annotation.columns()));
+		String name = TextUtils.isEmpty(annotation.name()) ? TextUtils.join("_", columns) : annotation.name();
+		Set<String> descending = new HashSet<>(Arrays.asList(annotation.descending()));
+		return new IndexInfo(table, name, columns, descending, annotation.unique(), annotation.where());
+	}
+
+	/**
+	 * Writes the index to a schema snapshot, see {@link SchemaSnapshot}.
+	 */
+	void write(DataOutputStream output) throws IOException {
+		output.writeUTF(name.substring(getIndexNamePrefix(table).length()));
+		SchemaSnapshot.writeStrings(output, columns);
+		SchemaSnapshot.writeStrings(output, new ArrayList<>(descendingColumns));
+		output.writeBoolean(unique);
+		output.writeUTF(where);
+	}
+
+	/**
+	 * Reads an index of the table written by {@link #write(DataOutputStream)}.
+	 */
+	static IndexInfo read(DataInputStream input, String table) throws IOException {
+		String name = input.readUTF();
+		List<String> columns = SchemaSnapshot.readStrings(input);
+		Set<String> descending = new HashSet<>(SchemaSnapshot.readStrings(input));
+		boolean unique = input.readBoolean();
+		return new IndexInfo(table, name, columns, descending, unique, input.readUTF());
+	}
+
+	/**
+	 * Returns the prefix of names of all indexes declared for the table.
+	 */
+	static String getIndexNamePrefix(String table) {
+		return "index_" + table + "_";
+	}
+
+	String getName() {
+		return name;
+	}
+
+	List<String> getColumns() {
+		return columns;
+	}
+
+	Set<String> getDescendingColumns() {
+		return descendingColumns;
+	}
+
+	String getCreateQuery() {
+		return buildCreateQuery(true);
+	}
+
+	/**
+	 * Returns the statement the way SQLite keeps it in the schema, used to
+	 * compare indexes.
+	 */
+	String getDeclaration() {
+		return buildCreateQuery(false);
+	}
+
+	private String buildCreateQuery(boolean ifNotExists) {
+		StringBuilder sb = new StringBuilder("CREATE ");
+		if (unique) {
+			sb.append("UNIQUE ");
+		}
+		sb.append("INDEX ");
+		if (ifNotExists) {
+			sb.append("IF NOT EXISTS ");
+		}
+		sb.append(name);
+		sb.append(" ON ");
+		sb.append(table);
+		sb.append(" (");
+		for (int i = 0; i < columns.size(); i++) {
+			String column = columns.get(i);
+			if (i > 0) {
+				sb.append(", ");
+			}
+			sb.append(column);
+			if (descendingColumns.contains(column)) {
+				sb.append(" DESC");
+			}
+		}
+		sb.append(')');
+		if (!TextUtils.isEmpty(where)) {
+			sb.append(" WHERE ");
+			sb.append(where);
+		}
+		return sb.toString();
+	}
+
+}
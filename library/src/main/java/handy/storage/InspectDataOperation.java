@@ -1,10 +1,13 @@
 package handy.storage;
 
-import android.database.Cursor;
 import android.text.TextUtils;
 
+import java.util.concurrent.Future;
+
+import handy.storage.api.Callback;
 import handy.storage.api.Function;
 import handy.storage.api.InspectData;
+import handy.storage.api.LiveQuery;
 import handy.storage.api.Result;
 import handy.storage.exception.OperationException;
 import handy.storage.log.DatabaseLog;
@@ -25,9 +28,36 @@ public class InspectDataOperation extends BaseOperation<InspectDataOperation> im
 	@Override
 	public int count() throws OperationException {
 		PerformanceTimer.startInterval("count");
-		int count = getDatabaseAdapter().count(getOwner().getTableEntity(), getWhereClause());
-		PerformanceTimer.endInterval();
-		return count;
+		try {
+			ResultCache resultCache = getResultCache();
+			if (resultCache == null) {
+				return countRows();
+			}
+			ResultCache.Key key = createCacheKey("count", "SELECT COUNT(*) FROM ");
+			Integer cachedCount = (Integer) resultCache.get(key);
+			if (cachedCount != null) {
+				return cachedCount;
+			}
+			CacheReadMark mark = resultCache.markRead();
+			int count = countRows();
+			resultCache.put(mark, key, count);
+			return count;
+		} finally {
+			PerformanceTimer.endInterval();
+		}
+	}
+
+	private int countRows() throws OperationException {
+		return getDatabaseAdapter().count(getOwner().getTableEntity(), getWhereClause(), getWhereArguments());
+	}
+
+	private ResultCache.Key createCacheKey(String resultType, String sqlPrefix) {
+		StringBuilder sql = new StringBuilder(sqlPrefix).append(getOwner().getTableEntity());
+		String whereClause = getWhereClause();
+		if (!TextUtils.isEmpty(whereClause)) {
+			sql.append(" WHERE ").append(whereClause);
+		}
+		return new ResultCache.Key(resultType, sql.toString(), getWhereArguments());
 	}
 
 	/**
@@ -61,20 +91,32 @@ public class InspectDataOperation extends BaseOperation<InspectDataOperation> im
 		selectBuilder.append(")");
 		String select = selectBuilder.toString();
 		DatabaseLog.d(select);
-		Cursor cursor = getDatabaseAdapter().rawQuery(select);
-		boolean result = false;
+		boolean result;
 		try {
-			if (cursor.moveToFirst()) {
-				result = cursor.getInt(0) != 0;
-			}
+			result = queryExists(select);
 		} finally {
-			cursor.close();
 			PerformanceTimer.endInterval();
 		}
 		DatabaseLog.i("result is " + result);
 		return result;
 	}
 
+	private boolean queryExists(String select) throws OperationException {
+		ResultCache resultCache = getResultCache();
+		if (resultCache == null) {
+			return getDatabaseAdapter().simpleQueryForLong(select, getWhereArguments()) != 0;
+		}
+		ResultCache.Key key = new ResultCache.Key("exists", select, getWhereArguments());
+		Boolean cachedResult = (Boolean) resultCache.get(key);
+		if (cachedResult != null) {
+			return cachedResult;
+		}
+		CacheReadMark mark = resultCache.markRead();
+		boolean result = getDatabaseAdapter().simpleQueryForLong(select, getWhereArguments()) != 0;
+		resultCache.put(mark, key, result);
+		return result;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -88,6 +130,44 @@ public class InspectDataOperation extends BaseOperation<InspectDataOperation> im
 		}
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public LiveQuery<Integer> liveCount() {
+		return createLiveQuery(this::count);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public LiveQuery<Boolean> liveExists() {
+		return createLiveQuery(this::exists);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Future<Integer> countAsync(Callback<? super Integer> callback) {
+		return getAsyncExecutors().read(this::count, callback);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Future<Boolean> existsAsync(Callback<? super Boolean> callback) {
+		return getAsyncExecutors().read(this::exists, callback);
+	}
+
+	private <R> LiveQuery<R> createLiveQuery(OperationCall<R> query) {
+		String whereClause = getWhereClause();
+		String sql = TextUtils.isEmpty(whereClause) ? getOwner().getTableEntity() : getOwner().getTableEntity() + " WHERE " + whereClause;
+		return getOwner().getDatabaseCore().createLiveQuery(sql, query);
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
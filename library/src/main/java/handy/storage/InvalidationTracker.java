@@ -0,0 +1,138 @@
+package handy.storage;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import handy.storage.api.Model;
+import handy.storage.api.TableObserver;
+import handy.storage.log.DatabaseLog;
+
+/**
+ * Collects the tables changed by a transaction and notifies the observers of
+ * these tables once the transaction is committed. Changes made outside a
+ * transaction are reported once the statement has been executed, after
+ * the database is unlocked. A change of a table is also reported
+ * to the observers of its {@link TableDependencies dependent tables}.
+ */
+final class InvalidationTracker {
+
+	/**
+	 * Registered observer.
+	 */
+	private static final class ObserverEntry {
+
+		private final TableObserver observer;
+		private final Set<Class<? extends Model>> tables;
+
+		/**
+		 * @param tables observed tables, empty set means all tables
+		 */
+		ObserverEntry(TableObserver observer, Set<Class<? extends Model>> tables) {
+			this.observer = observer;
+			this.tables = tables;
+		}
+
+	}
+
+	private final TableDependencies dependencies;
+	private final Map<String, Class<? extends Model>> modelsByTable = new HashMap<>();
+	private final List<ObserverEntry> observers = new CopyOnWriteArrayList<>();
+	// guarded by this
+	private final Set<String> changedTables = new HashSet<>();
+
+	InvalidationTracker(List<TableInfo> tables, TableDependencies dependencies) {
+		this.dependencies = dependencies;
+		for (TableInfo table : tables) {
+			modelsByTable.put(table.getName(), table.getOriginClass());
+		}
+	}
+
+	void addObserver(TableObserver observer, Set<Class<? extends Model>> tables) {
+		observers.add(new ObserverEntry(observer, tables));
+	}
+
+	void removeObserver(TableObserver observer) {
+		for (ObserverEntry entry : observers) {
+			if (entry.observer == observer) {
+				observers.remove(entry);
+			}
+		}
+	}
+
+	/**
+	 * Called after a statement changing the table has been executed.
+	 *
+	 * @param table name of the table or <code>null</code> if any table might
+	 *              have been changed
+	 */
+	void onTableChanged(String table) {
+		if (observers.isEmpty()) {
+			return;
+		}
+		String changedTable = table != null ? dependencies.findTable(table) : null;
+		synchronized (this) {
+			if (changedTable != null) {
+				changedTables.add(changedTable);
+			} else {
+				changedTables.addAll(dependencies.getTableNames());
+			}
+		}
+	}
+
+	/**
+	 * Notifies the observers about the tables changed since the last commit.
+	 * Called without holding the database lock.
+	 */
+	void onCommit() {
+		Set<Class<? extends Model>> affectedTables = takeAffectedTables();
+		if (affectedTables.isEmpty()) {
+			return;
+		}
+		for (ObserverEntry entry : observers) {
+			Set<Class<? extends Model>> tables;
+			if (entry.tables.isEmpty()) {
+				tables = affectedTables;
+			} else {
+				tables = new HashSet<>(entry.tables);
+				tables.retainAll(affectedTables);
+			}
+			if (!tables.isEmpty()) {
+				notifyObserver(entry.observer, Collections.unmodifiableSet(tables));
+			}
+		}
+	}
+
+	private synchronized Set<Class<? extends Model>> takeAffectedTables() {
+		Set<Class<? extends Model>> result = new HashSet<>();
+		for (String table : changedTables) {
+			result.add(modelsByTable.get(table));
+			for (String dependent : dependencies.getDependentTables(table)) {
+				result.add(modelsByTable.get(dependent));
+			}
+		}
+		changedTables.clear();
+		return result;
+	}
+
+	private static void notifyObserver(TableObserver observer, Set<Class<? extends Model>> tables) {
+		try {
+			observer.onTablesChanged(tables);
+		} catch (RuntimeException e) {
+			// the changes are already committed, a failing observer mustn't look like a failed write
+			DatabaseLog.logException(e);
+		}
+	}
+
+	/**
+	 * Forgets the changes of a rolled back transaction.
+	 */
+	synchronized void onRollback() {
+		changedTables.clear();
+	}
+
+}
@@ -0,0 +1,125 @@
+package handy.storage;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import handy.storage.api.LiveQuery;
+import handy.storage.api.Model;
+import handy.storage.api.TableObserver;
+import handy.storage.exception.OperationException;
+import handy.storage.log.DatabaseLog;
+
+/**
+ * Implementation of {@link LiveQuery}. Changes of the tables schedule the
+ * query to run after a delay, and further changes made before it runs
+ * don't schedule it again, so a burst of changes leads to one execution.
+ *
+ * @param <R> type of the result
+ */
+final class LiveQueryImpl<R> implements LiveQuery<R> {
+
+	private final DatabaseCore databaseCore;
+	private final OperationCall<R> query;
+	private final Set<Class<? extends Model>> tables;
+	private final List<Observer<? super R>> observers = new CopyOnWriteArrayList<>();
+	private final AtomicBoolean scheduled = new AtomicBoolean();
+	private final TableObserver tableObserver;
+
+	private volatile R result;
+	private volatile boolean hasResult = false;
+
+	/**
+	 * @param tables tables the query reads from, empty set means the query
+	 *               depends on all tables
+	 */
+	LiveQueryImpl(DatabaseCore databaseCore, OperationCall<R> query, Set<Class<? extends Model>> tables) {
+		this.databaseCore = databaseCore;
+		this.query = query;
+		this.tables = tables;
+		long delay = databaseCore.getConfiguration().liveQueryDelay();
+		tableObserver = changedTables -> schedule(delay);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public R getResult() {
+		return result;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized void addObserver(Observer<? super R> observer) {
+		boolean first = observers.isEmpty();
+		observers.add(observer);
+		if (first) {
+			databaseCore.getInvalidationTracker().addObserver(tableObserver, tables);
+			schedule(0);
+		} else if (hasResult) {
+			R lastResult = result;
+			databaseCore.getBackgroundExecutor().execute(() -> notifyObserver(observer, lastResult));
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public synchronized void removeObserver(Observer<? super R> observer) {
+		if (observers.remove(observer) && observers.isEmpty()) {
+			databaseCore.getInvalidationTracker().removeObserver(tableObserver);
+		}
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void refresh() {
+		schedule(0);
+	}
+
+	private void schedule(long delay) {
+		if (scheduled.compareAndSet(false, true)) {
+			databaseCore.getBackgroundExecutor().schedule(this::run, delay, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	private void run() {
+		// changes made during the execution must schedule it again
+		scheduled.set(false);
+		if (observers.isEmpty()) {
+			return;
+		}
+		R newResult;
+		try {
+			newResult = query.call();
+		} catch (OperationException | RuntimeException e) {
+			DatabaseLog.logException(e);
+			return;
+		}
+		if (hasResult && newResult != null && newResult.equals(result)) {
+			return;
+		}
+		result = newResult;
+		hasResult = true;
+		for (Observer<? super R> observer : observers) {
+			notifyObserver(observer, newResult);
+		}
+	}
+
+	private static <R> void notifyObserver(Observer<? super R> observer, R result) {
+		try {
+			observer.onResult(result);
+		} catch (RuntimeException e) {
+			DatabaseLog.logException(e);
+		}
+	}
+
+}
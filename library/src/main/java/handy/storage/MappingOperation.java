@@ -6,8 +6,11 @@ import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Future;
 
+import handy.storage.api.Callback;
 import handy.storage.api.CursorValues;
+import handy.storage.api.LiveQuery;
 import handy.storage.api.Mapping;
 import handy.storage.api.Model;
 import handy.storage.api.ObjectCreator;
@@ -28,10 +31,16 @@ import handy.storage.util.Factory;
 public class MappingOperation<K, V> extends BaseSelectOperation<Mapping<K, V>, MappingOperation<K, V>> implements Mapping<K, V> {
 
 	private final Factory<MapDataCollector<K, V>> dataCollectorFactory;
+	private final Object resultType;
 
-	MappingOperation(Table table, List<ColumnInfo> queryColumns, Factory<QueryParams> queryParamsFactory, Factory<MapDataCollector<K, V>> dataCollectorFactory) {
+	/**
+	 * @param resultType describes how rows are converted to the map, used
+	 *                   to cache the results
+	 */
+	MappingOperation(Table table, List<ColumnInfo> queryColumns, Factory<QueryParams> queryParamsFactory, Factory<MapDataCollector<K, V>> dataCollectorFactory, Object resultType) {
 		super(table, queryColumns, queryParamsFactory);
 		this.dataCollectorFactory = dataCollectorFactory;
+		this.resultType = resultType;
 		getQueryParams().distinct(true);
 	}
 
@@ -41,6 +50,24 @@ public class MappingOperation<K, V> extends BaseSelectOperation<Mapping<K, V>, M
 	@Override
 	public Map<K, V> execute() throws OperationException {
 		completeConfiguringQuery();
+		ResultCache resultCache = getResultCache();
+		if (resultCache == null) {
+			return readData();
+		}
+		QueryParams queryParams = getQueryParams();
+		ResultCache.Key key = new ResultCache.Key(resultType, queryParams.toRawSqlQuery(), queryParams.getArguments());
+		@SuppressWarnings("unchecked")
+		Map<K, V> cachedResult = (Map<K, V>) resultCache.get(key);
+		if (cachedResult != null) {
+			return dataCollectorFactory.newObject().copyData(cachedResult);
+		}
+		CacheReadMark mark = resultCache.markRead();
+		Map<K, V> result = readData();
+		resultCache.put(mark, key, dataCollectorFactory.newObject().copyData(result));
+		return result;
+	}
+
+	private Map<K, V> readData() throws OperationException {
 		DataReader dataReader = getDataReaderFactory().newDataReader(getOwner(), getQueryColumns(), getQueryParams());
 		MapDataCollector<K, V> dataCollector = dataCollectorFactory.newObject();
 		dataReader.readData(dataCollector);
@@ -61,6 +88,23 @@ public class MappingOperation<K, V> extends BaseSelectOperation<Mapping<K, V>, M
 		}
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public LiveQuery<Map<K, V>> live() {
+		completeConfiguringQuery();
+		return getOwner().getDatabaseCore().createLiveQuery(getQueryParams().toRawSqlQuery(), this::execute);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Future<Map<K, V>> executeAsync(Callback<? super Map<K, V>> callback) {
+		return getAsyncExecutors().read(this::execute, callback);
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -81,14 +125,16 @@ public class MappingOperation<K, V> extends BaseSelectOperation<Mapping<K, V>, M
 		private final Class<T> modelClass;
 		private final Table table;
 		private final ColumnInfo keyColumn;
+		private final Class<K> keyClass;
 		private final GetValueMethod<K> getKeyMethod;
 
 		private List<ColumnInfo> columns;
 
-		private Builder(Table table, Class<T> originalModelClass, ColumnInfo keyColumn) {
+		private Builder(Table table, Class<T> originalModelClass, ColumnInfo keyColumn, Class<K> keyClass) {
 			this.modelClass = originalModelClass;
 			this.table = table;
 			this.keyColumn = keyColumn;
+			this.keyClass = keyClass;
 			this.getKeyMethod = getValueMethod(keyColumn.getName(), null);
 		}
 
@@ -131,7 +177,8 @@ public class MappingOperation<K, V> extends BaseSelectOperation<Mapping<K, V>, M
 		private <V> Mapping<K, List<V>> createMappingToList(Value value, Class<V> valueClass) {
 			prepareMappingToColumn(value, valueClass);
 			return createMapping(
-				listDataCollectorFactory(getValueMethod(value.getName(), valueClass))
+				listDataCollectorFactory(getValueMethod(value.getName(), valueClass)),
+				Arrays.asList(keyClass, List.class, valueClass)
 			);
 		}
 
@@ -151,7 +198,8 @@ public class MappingOperation<K, V> extends BaseSelectOperation<Mapping<K, V>, M
 		private <V> Mapping<K, V> createMappingToValue(Value value, Class<V> valueClass) {
 			prepareMappingToColumn(value, valueClass);
 			return createMapping(
-				flatDataCollectorFactory(getValueMethod(value.getName(), valueClass))
+				flatDataCollectorFactory(getValueMethod(value.getName(), valueClass)),
+				Arrays.asList(keyClass, valueClass)
 			);
 		}
 
@@ -162,7 +210,8 @@ public class MappingOperation<K, V> extends BaseSelectOperation<Mapping<K, V>, M
 		public Mapping<K, T> toModel() {
 			prepareMappingToModel();
 			return createMapping(
-				flatDataCollectorFactory(getModelMethod())
+				flatDataCollectorFactory(getModelMethod()),
+				Arrays.asList(keyClass, modelClass)
 			);
 		}
 
@@ -173,7 +222,8 @@ public class MappingOperation<K, V> extends BaseSelectOperation<Mapping<K, V>, M
 		public Mapping<K, List<T>> toListOfModels() {
 			prepareMappingToModel();
 			return createMapping(
-				listDataCollectorFactory(getModelMethod())
+				listDataCollectorFactory(getModelMethod()),
+				Arrays.asList(keyClass, List.class, modelClass)
 			);
 		}
 
@@ -203,12 +253,13 @@ public class MappingOperation<K, V> extends BaseSelectOperation<Mapping<K, V>, M
 			}
 		}
 
-		private <V> Mapping<K, V> createMapping(Factory<MapDataCollector<K, V>> dataCollectorFactory) {
+		private <V> Mapping<K, V> createMapping(Factory<MapDataCollector<K, V>> dataCollectorFactory, Object resultType) {
 			return new MappingOperation<>(
 				table,
 				columns,
 				table.getQueryParamsFactory(),
-				dataCollectorFactory);
+				dataCollectorFactory,
+				resultType);
 		}
 
 		private <V> Factory<MapDataCollector<K, V>> flatDataCollectorFactory(GetValueMethod<V> getValueMethod) {
@@ -230,7 +281,7 @@ public class MappingOperation<K, V> extends BaseSelectOperation<Mapping<K, V>, M
 	}
 
 	static <T extends Model, K> Builder<T, K> builder(Table table, Value keyValue, Class<K> columnClass, Class<T> modelClass) {
-		return new Builder<>(table, modelClass, Builder.createColumnInfo(table, keyValue, columnClass));
+		return new Builder<>(table, modelClass, Builder.createColumnInfo(table, keyValue, columnClass), columnClass);
 	}
 
 	/**
@@ -240,6 +291,11 @@ public class MappingOperation<K, V> extends BaseSelectOperation<Mapping<K, V>, M
 	 */
 	private interface MapDataCollector<K, V> extends DataCollector {
 		Map<K, V> getData();
+
+		/**
+		 * Copies collected data, so the copy can be modified independently.
+		 */
+		Map<K, V> copyData(Map<K, V> data);
 	}
 
 	/**
@@ -277,10 +333,21 @@ public class MappingOperation<K, V> extends BaseSelectOperation<Mapping<K, V>, M
 
 		protected abstract void acceptKeyAndValue(K key, E value);
 
+		protected abstract V copyValue(V value);
+
 		public Map<K, V> getData() {
 			return data;
 		}
 
+		@Override
+		public Map<K, V> copyData(Map<K, V> data) {
+			Map<K, V> copy = new LinkedHashMap<>(data.size());
+			for (Map.Entry<K, V> entry : data.entrySet()) {
+				copy.put(entry.getKey(), copyValue(entry.getValue()));
+			}
+			return copy;
+		}
+
 		@Override
 		public void init(int size) {
 			data = new LinkedHashMap<>(size);
@@ -308,6 +375,11 @@ public class MappingOperation<K, V> extends BaseSelectOperation<Mapping<K, V>, M
 			getData().put(key, value);
 		}
 
+		@Override
+		protected V copyValue(V value) {
+			return value;
+		}
+
 	}
 
 	/**
@@ -337,6 +409,11 @@ public class MappingOperation<K, V> extends BaseSelectOperation<Mapping<K, V>, M
 			values.add(value);
 		}
 
+		@Override
+		protected List<V> copyValue(List<V> value) {
+			return new ArrayList<>(value);
+		}
+
 	}
 
 	/**
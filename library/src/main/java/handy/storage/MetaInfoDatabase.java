@@ -7,8 +7,12 @@ import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteOpenHelper;
 import android.text.TextUtils;
 
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.TreeSet;
 
 import handy.storage.base.DatabaseAdapter;
 import handy.storage.base.QueryParams;
@@ -229,11 +233,47 @@ final class MetaInfoDatabase {
 		}
 	}
 
+	/**
+	 * Returns a digest of the fingerprint of the database schema which is
+	 * saved by {@link #onCheckChanges(Context, DatabaseCore)}.
+	 */
+	static String getFingerprintDigest(DatabaseCore databaseCore) {
+		DatabaseFingerprint databaseFingerprint = getDatabaseFingerprint(databaseCore);
+		StringBuilder sb = new StringBuilder();
+		appendSorted(sb, databaseFingerprint.tableDeclarations);
+		appendSorted(sb, databaseFingerprint.enumValues);
+		return digest(sb.toString());
+	}
+
+	/**
+	 * Returns the hex SHA-1 digest of the string or an empty string if it
+	 * can't be computed.
+	 */
+	static String digest(String value) {
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-1").digest(value.getBytes("UTF-8"));
+			StringBuilder hex = new StringBuilder(digest.length * 2);
+			for (byte b : digest) {
+				hex.append(String.format("%02x", b));
+			}
+			return hex.toString();
+		} catch (NoSuchAlgorithmException | UnsupportedEncodingException e) {
+			DatabaseLog.logException(e);
+			return "";
+		}
+	}
+
+	private static void appendSorted(StringBuilder sb, Map<String, String> values) {
+		for (String key : new TreeSet<>(values.keySet())) {
+			sb.append(key).append('=').append(values.get(key)).append('\n');
+		}
+	}
+
 	private static DatabaseFingerprint getDatabaseFingerprint(DatabaseCore databaseCore) {
 		Map<String, String> tableDeclarations = new HashMap<>();
 		Map<String, String> enumValues = new HashMap<>();
 		for (TableInfo tableInfo : databaseCore.getTables()) {
-			tableDeclarations.put(tableInfo.getName(), tableInfo.getCreateQuery());
+			tableDeclarations.put(tableInfo.getName(), tableInfo.getDeclaration());
 			for (ColumnInfo column : tableInfo.getColumns()) {
 				Class<?> fieldType = column.getFieldType();
 				if (fieldType != null) {
@@ -0,0 +1,218 @@
+package handy.storage;
+
+import android.database.sqlite.SQLiteStatement;
+import android.text.TextUtils;
+
+import java.util.List;
+
+import handy.storage.ColumnInfo.ReferenceInfo;
+import handy.storage.api.ColumnType;
+import handy.storage.base.OnConflictStrategy;
+import handy.storage.base.StatementBinder;
+import handy.storage.exception.IllegalUsageException;
+import handy.storage.util.FieldAccessor;
+import handy.storage.util.GeneratedAdapter.FieldWriter;
+
+/**
+ * Binds models' field values directly to a compiled INSERT statement. Column
+ * types and type adapters are resolved once, so the same instance can be used
+ * for a large number of objects. Fields handled by the generated adapters of
+ * the model are bound by them, see {@link GeneratedFields}. Produces the same
+ * values as {@link ContentValuesParser}.
+ *
+ * @param <T> model class
+ */
+class ModelStatementBinder<T> implements StatementBinder<T> {
+
+	private static final int BIND_OBJECT = 0;
+	private static final int BIND_LONG = 1;
+	private static final int BIND_DOUBLE = 2;
+
+	private final String tableName;
+	private final ColumnInfo[] columns;
+	private final TypeAdapter<?>[] typeAdapters;
+	private final boolean[] autoIncrementIds;
+	private final int[] primitiveBindings;
+	private final boolean[] generated;
+	private final List<GeneratedFields> generatedFields;
+
+	ModelStatementBinder(DataAdapters dataAdapters, TableInfo tableInfo) {
+		tableName = tableInfo.getName();
+		List<ColumnInfo> tableColumns = tableInfo.getColumns();
+		int count = tableColumns.size();
+		columns = tableColumns.toArray(new ColumnInfo[count]);
+		typeAdapters = new TypeAdapter<?>[count];
+		autoIncrementIds = new boolean[count];
+		primitiveBindings = new int[count];
+		for (int i = 0; i < count; i++) {
+			ColumnInfo column = columns[i];
+			Class<?> type = column.isReferenceToTable()
+				? column.getReference().getForeignColumn().getField().getType()
+				: column.getField().getType();
+			typeAdapters[i] = dataAdapters.getTypeAdapter(type);
+			autoIncrementIds[i] = isAutoIncrementId(column);
+			primitiveBindings[i] = getPrimitiveBinding(column, typeAdapters[i]);
+		}
+		generated = new boolean[count];
+		generatedFields = GeneratedFields.find(tableColumns, generated);
+	}
+
+	/**
+	 * Primitive fields with the built-in type adapters are bound without
+	 * boxing their values.
+	 */
+	private static int getPrimitiveBinding(ColumnInfo column, TypeAdapter<?> typeAdapter) {
+		if (column.isReferenceToTable() || isAutoIncrementId(column)) {
+			return BIND_OBJECT;
+		}
+		FieldAccessor accessor = column.getFieldAccessor();
+		if (accessor.isIntegral() && TypeAdapter.isIntegralAdapter(typeAdapter)) {
+			return BIND_LONG;
+		} else if (accessor.isFloatingPoint() && TypeAdapter.isFloatingPointAdapter(typeAdapter)) {
+			return BIND_DOUBLE;
+		} else {
+			return BIND_OBJECT;
+		}
+	}
+
+	/**
+	 * Returns the INSERT statement for all columns of the table.
+	 */
+	String createInsertQuery(OnConflictStrategy onConflictStrategy) {
+		StringBuilder sb = new StringBuilder("INSERT ");
+		if (onConflictStrategy != OnConflictStrategy.DEFAULT) {
+			sb.append("OR ");
+			sb.append(onConflictStrategy.name());
+			sb.append(' ');
+		}
+		sb.append("INTO ");
+		sb.append(tableName);
+		sb.append(" (");
+		String[] names = new String[columns.length];
+		String[] placeholders = new String[columns.length];
+		for (int i = 0; i < columns.length; i++) {
+			names[i] = columns[i].getName();
+			placeholders[i] = "?";
+		}
+		sb.append(TextUtils.join(", ", names));
+		sb.append(") VALUES (");
+		sb.append(TextUtils.join(", ", placeholders));
+		sb.append(')');
+		return sb.toString();
+	}
+
+	@Override
+	public void bind(SQLiteStatement statement, T model) {
+		if (!generatedFields.isEmpty()) {
+			GeneratedFieldsWriter writer = new GeneratedFieldsWriter(statement, model);
+			for (GeneratedFields fields : generatedFields) {
+				writer.fields = fields;
+				fields.getAdapter().writeFields(model, writer);
+			}
+		}
+		for (int i = 0; i < columns.length; i++) {
+			if (generated[i]) {
+				continue;
+			}
+			int primitiveBinding = primitiveBindings[i];
+			if (primitiveBinding == BIND_LONG) {
+				statement.bindLong(i + 1, columns[i].getFieldAccessor().getLong(model));
+			} else if (primitiveBinding == BIND_DOUBLE) {
+				statement.bindDouble(i + 1, columns[i].getFieldAccessor().getDouble(model));
+			} else {
+				bindValue(statement, i, getColumnValue(model, columns[i]));
+			}
+		}
+	}
+
+	private void bindValue(SQLiteStatement statement, int column, Object value) {
+		int index = column + 1;
+		if (value == null || autoIncrementIds[column] && isEmptyId(value)) {
+			// NULL makes SQLite generate the rowid for an empty id
+			statement.bindNull(index);
+		} else {
+			typeAdapters[column].bindValueObject(statement, index, value);
+		}
+	}
+
+	private static Object getColumnValue(Object model, ColumnInfo column) {
+		Object value = column.getFieldAccessor().get(model);
+		if (value != null && column.isReferenceToTable()) {
+			ReferenceInfo ref = column.getReference();
+			ColumnInfo foreignColumn = ref.getForeignColumn();
+			Object foreignValue = foreignColumn.getFieldAccessor().get(value);
+			if (isAutoIncrementId(foreignColumn) && isEmptyId(foreignValue)) {
+				throw new IllegalUsageException("you should insert the referenced object first");
+			}
+			value = foreignValue;
+		}
+		return value;
+	}
+
+	private static boolean isAutoIncrementId(ColumnInfo column) {
+		return column.getField() != null && column.getType() == ColumnType.INTEGER && column.isAutoIncrementFlagSet() && column.isPrimaryKeyFlagSet();
+	}
+
+	private static boolean isEmptyId(Object value) {
+		return value == null || (Long) value <= 0;
+	}
+
+	/**
+	 * Binds the values passed by a generated adapter to the columns of its
+	 * fields.
+	 */
+	private final class GeneratedFieldsWriter implements FieldWriter {
+
+		private final SQLiteStatement statement;
+		private final Object model;
+		private GeneratedFields fields;
+
+		GeneratedFieldsWriter(SQLiteStatement statement, Object model) {
+			this.statement = statement;
+			this.model = model;
+		}
+
+		@Override
+		public void writeLong(int field, long value) {
+			int column = fields.getColumnIndex(field);
+			if (column == -1) {
+				return;
+			}
+			if (primitiveBindings[column] == BIND_LONG) {
+				statement.bindLong(column + 1, value);
+			} else {
+				// boxed as the field type expected by its type adapter
+				bindValue(statement, column, columns[column].getFieldAccessor().get(model));
+			}
+		}
+
+		@Override
+		public void writeDouble(int field, double value) {
+			int column = fields.getColumnIndex(field);
+			if (column == -1) {
+				return;
+			}
+			if (primitiveBindings[column] == BIND_DOUBLE) {
+				statement.bindDouble(column + 1, value);
+			} else {
+				// boxed as the field type expected by its type adapter
+				bindValue(statement, column, columns[column].getFieldAccessor().get(model));
+			}
+		}
+
+		@Override
+		public void writeBoolean(int field, boolean value) {
+			writeObject(field, value);
+		}
+
+		@Override
+		public void writeObject(int field, Object value) {
+			int column = fields.getColumnIndex(field);
+			if (column != -1) {
+				bindValue(statement, column, value);
+			}
+		}
+
+	}
+
+}
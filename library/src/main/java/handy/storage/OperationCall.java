@@ -0,0 +1,14 @@
+package handy.storage;
+
+import handy.storage.exception.OperationException;
+
+/**
+ * Call of an operation producing a result.
+ *
+ * @param <R> type of the result
+ */
+interface OperationCall<R> {
+
+	R call() throws OperationException;
+
+}
@@ -1,11 +1,8 @@
 package handy.storage;
 
-import java.lang.reflect.Field;
-
 import handy.storage.api.ColumnType;
-import handy.storage.api.Value;
 import handy.storage.log.DatabaseLog;
-import handy.storage.util.ReflectionUtils;
+import handy.storage.util.FieldAccessor;
 
 /**
  * Converts column's names and values for database queries.
@@ -26,16 +23,16 @@ class QueryAdapter {
 		return tableHashCode;
 	}
 
-	String convertToDatabaseValue(String fullColumnName, Object value) {
-		if (value != null && value instanceof Value) {
-			return ((Value) value).getName();
-		}
+	/**
+	 * Converts the value to a typed argument to bind to a query.
+	 */
+	Object convertToDatabaseArgument(String fullColumnName, Object value) {
 		ColumnInfo columnInfo = tableInfo.getColumnInfo(fullColumnName);
 		if (columnInfo != null && columnInfo.getFieldType() != null) {
 			Object databaseValue = value;
 			if (columnInfo.isReferenceToTable()) {
-				Field uniqueField = columnInfo.getReference().getForeignColumn().getField();
-				databaseValue = ReflectionUtils.getFieldValue(uniqueField, value);
+				FieldAccessor uniqueField = columnInfo.getReference().getForeignColumn().getFieldAccessor();
+				databaseValue = uniqueField.get(value);
 			}
 			return convertValue(databaseValue, columnInfo.getFieldType());
 		} else {
@@ -45,25 +42,35 @@ class QueryAdapter {
 				if (dataAdapters.hasTypeAdapter(valueClass)) {
 					return convertValue(value, valueClass);
 				}
+				return String.valueOf(value);
 			}
-			return String.valueOf(value);
+			return null;
 		}
 	}
 
-	private String convertValue(Object value, Class<?> valueType) {
+	private Object convertValue(Object value, Class<?> valueType) {
+		if (value == null) {
+			return null;
+		}
 		TypeAdapter<?> typeAdapter = dataAdapters.getTypeAdapter(valueType);
-		String convertedValue = typeAdapter.convertValue(value);
-		if (typeAdapter.getColumnType() == ColumnType.TEXT) {
-			convertedValue = wrapString(convertedValue);
+		if (typeAdapter.getColumnType() == ColumnType.BLOB && value instanceof byte[]) {
+			return value;
 		}
-		return convertedValue;
-	}
-
-	static String wrapString(String value) {
-		if (value == null) {
+		String convertedValue = typeAdapter.convertValue(value);
+		if (convertedValue == null) {
 			return null;
-		} else {
-			return "'" + value.replaceAll("'", "''") + "'";
+		}
+		try {
+			switch (typeAdapter.getColumnType()) {
+				case INTEGER:
+					return Long.parseLong(convertedValue);
+				case REAL:
+					return Double.parseDouble(convertedValue);
+				default:
+					return convertedValue;
+			}
+		} catch (NumberFormatException e) {
+			return convertedValue;
 		}
 	}
 
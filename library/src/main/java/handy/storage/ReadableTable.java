@@ -20,24 +20,41 @@ import handy.storage.util.Factory;
  */
 public class ReadableTable<T extends Model> extends Table implements Iterable<T> {
 
-	private final Class<T> modelClass;
+	private final TablePlan<T> plan;
 
-	protected ReadableTable(Class<T> modelClass, TableInfo tableInfo, DatabaseAdapter databaseAdapter, DatabaseCore databaseCore, Factory<QueryParams> queryParamsFactory) {
-		super(tableInfo, databaseAdapter, databaseCore, queryParamsFactory);
-		this.modelClass = modelClass;
+	protected ReadableTable(TablePlan<T> plan, DatabaseAdapter databaseAdapter, DatabaseCore databaseCore, Factory<QueryParams> queryParamsFactory) {
+		super(plan.getTableInfo(), databaseAdapter, databaseCore, queryParamsFactory);
+		this.plan = plan;
+	}
+
+	TablePlan<T> getPlan() {
+		return plan;
 	}
 
 	protected ContentValuesParser<T> getContentValuesParser() {
-		return new ContentValuesParser<>(getDataAdapters(), getTableInfo());
+		return plan.getContentValuesParser();
 	}
 
 	protected ObjectCreator<T> getObjectCreator() {
-		return getDataAdapters().getObjectCreator(modelClass, getTableInfo());
+		return plan.getObjectCreator();
+	}
+
+	/**
+	 * Returns the reader of the plan if all the model columns are queried, so
+	 * the queries share its slots layout.
+	 */
+	@Override
+	CursorReader getCursorReader(List<ColumnInfo> queryColumns) {
+		CursorReader cursorReader = plan.getCursorReader();
+		if (cursorReader.getColumns().equals(queryColumns)) {
+			return cursorReader;
+		}
+		return super.getCursorReader(queryColumns);
 	}
 
 	@Override
 	protected Class<T> getModelClass() {
-		return modelClass;
+		return plan.getModelClass();
 	}
 
 	/**
@@ -56,6 +73,10 @@ public class ReadableTable<T extends Model> extends Table implements Iterable<T>
 		return select().execute();
 	}
 
+	/**
+	 * Returns an iterator over all the records of this table, see
+	 * {@link Select#iterator()}.
+	 */
 	@Override
 	public Iterator<T> iterator() {
 		return select().iterator();
@@ -83,7 +104,30 @@ public class ReadableTable<T extends Model> extends Table implements Iterable<T>
 	 * @throws OperationException if any error happen
 	 */
 	public T selectByColumnValue(String column, Object value) throws OperationException {
-		return select().where(column).equalsTo(value).executeSingle();
+		EntityCache cache = getEntityCache();
+		ColumnInfo columnInfo = cache == null ? null : getTableInfo().getColumnInfo(column);
+		if (columnInfo == null || !cache.isKeyColumn(columnInfo)) {
+			return select().where(column).equalsTo(value).executeSingle();
+		}
+		@SuppressWarnings("unchecked")
+		T cached = (T) cache.get(columnInfo, value);
+		if (cached != null) {
+			return cached;
+		}
+		CacheReadMark mark = cache.markRead();
+		T object = select().where(column).equalsTo(value).executeSingle();
+		if (object != null) {
+			cache.put(mark, object);
+		}
+		return object;
+	}
+
+	/**
+	 * Returns the cache of this table's objects or <code>null</code> if they
+	 * aren't cached.
+	 */
+	EntityCache getEntityCache() {
+		return null;
 	}
 
 	/**
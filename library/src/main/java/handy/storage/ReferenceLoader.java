@@ -0,0 +1,262 @@
+package handy.storage;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import handy.storage.api.CursorValues;
+import handy.storage.api.Model;
+import handy.storage.api.ObjectCreator;
+import handy.storage.exception.OperationException;
+import handy.storage.log.DatabaseLog;
+import handy.storage.util.FieldAccessor;
+
+/**
+ * Loads objects referenced by the rows of a query level by level: the keys
+ * of a whole level are requested at once in chunks of limited size, then
+ * the keys referenced by the loaded objects form the next level. Every object
+ * is read once even if it is referenced from different levels. A loaded
+ * object is registered before its own references are resolved, so cyclic
+ * references point to the same instances.
+ */
+class ReferenceLoader {
+
+	/**
+	 * Maximum number of keys requested by one query.
+	 */
+	static final int MAX_KEYS_PER_QUERY = ColumnExpressionBuilder.MAX_BOUND_LIST_SIZE;
+
+	private final DatabaseCore core;
+	private final ReferencedObjectsBundle bundle = new ReferencedObjectsBundle();
+	private final Map<Class<?>, Set<Object>> requestedKeys = new HashMap<>();
+	private Map<Class<?>, RequestedKeys> pendingKeys = new LinkedHashMap<>();
+	private final List<UnresolvedReference> unresolvedReferences = new ArrayList<>();
+	private final List<CachedObjects> objectsToCache = new ArrayList<>();
+
+	ReferenceLoader(DatabaseCore core) {
+		this.core = core;
+	}
+
+	/**
+	 * Returns all objects loaded so far.
+	 */
+	ReferencedObjectsBundle getBundle() {
+		return bundle;
+	}
+
+	/**
+	 * Requests the referenced objects with these key values, the keys
+	 * requested earlier are skipped. The objects are loaded by
+	 * {@link #loadRequested()}.
+	 */
+	void request(ColumnInfo.ReferenceInfo reference, Collection<Object> keyValues) {
+		Class<? extends Model> referencedClass = reference.getModelClass();
+		Set<Object> requested = requestedKeys.get(referencedClass);
+		if (requested == null) {
+			requested = new HashSet<>();
+			requestedKeys.put(referencedClass, requested);
+		}
+		RequestedKeys pending = pendingKeys.get(referencedClass);
+		for (Object key : keyValues) {
+			if (requested.add(key)) {
+				if (pending == null) {
+					pending = new RequestedKeys(reference);
+					pendingKeys.put(referencedClass, pending);
+				}
+				pending.keys.add(key);
+			}
+		}
+	}
+
+	/**
+	 * Loads all requested objects and the objects referenced by them, then
+	 * resolves the references of the loaded objects.
+	 */
+	void loadRequested() throws OperationException {
+		while (!pendingKeys.isEmpty()) {
+			Map<Class<?>, RequestedKeys> level = pendingKeys;
+			pendingKeys = new LinkedHashMap<>();
+			for (RequestedKeys requested : level.values()) {
+				load(requested.reference, requested.keys);
+			}
+		}
+		for (UnresolvedReference reference : unresolvedReferences) {
+			reference.resolve(bundle);
+		}
+		unresolvedReferences.clear();
+		// the objects are complete only now
+		for (CachedObjects cachedObjects : objectsToCache) {
+			cachedObjects.put();
+		}
+		objectsToCache.clear();
+	}
+
+	private void load(ColumnInfo.ReferenceInfo reference, List<Object> keys) throws OperationException {
+		Class<? extends Model> referencedClass = reference.getModelClass();
+		ReadableTable<? extends Model> table = core.getTablesFactory().getTable(referencedClass);
+		ColumnInfo keyColumn = reference.getForeignColumn();
+		EntityCache cache = table.getEntityCache();
+		List<Object> missingKeys = keys;
+		if (cache != null && cache.isKeyColumn(keyColumn)) {
+			missingKeys = takeCachedObjects(cache, referencedClass, keyColumn, missingKeys);
+			if (missingKeys.isEmpty()) {
+				return;
+			}
+		} else {
+			cache = null;
+		}
+		DatabaseLog.d(String.format("loading %d objects of %s", missingKeys.size(), referencedClass.getName()));
+		CachedObjects cachedObjects = cache != null ? new CachedObjects(cache) : null;
+		for (int start = 0; start < missingKeys.size(); start += MAX_KEYS_PER_QUERY) {
+			int end = Math.min(start + MAX_KEYS_PER_QUERY, missingKeys.size());
+			List<? extends Model> objects = select(table, keyColumn, missingKeys.subList(start, end));
+			if (cachedObjects != null) {
+				cachedObjects.objects.addAll(objects);
+			}
+		}
+		if (cachedObjects != null) {
+			objectsToCache.add(cachedObjects);
+		}
+	}
+
+	/**
+	 * Puts the cached objects to the bundle and returns the keys of the
+	 * objects that aren't cached.
+	 */
+	private List<Object> takeCachedObjects(EntityCache cache, Class<? extends Model> referencedClass, ColumnInfo keyColumn, List<Object> keys) {
+		List<Object> missingKeys = new ArrayList<>(keys.size());
+		for (Object key : keys) {
+			Object object = cache.get(keyColumn, key);
+			if (object != null) {
+				bundle.put(referencedClass, keyColumn.getFieldAccessor().get(object), object);
+			} else {
+				missingKeys.add(key);
+			}
+		}
+		return missingKeys;
+	}
+
+	private <T extends Model> List<T> select(ReadableTable<T> table, ColumnInfo keyColumn, List<Object> keys) throws OperationException {
+		return SelectOperation.createReferencedModelSelect(table, () -> new ReferencedObjectsCollector<>(table, keyColumn))
+			.where(keyColumn.getName()).in(keys)
+			.execute();
+	}
+
+	/**
+	 * Keys of one model requested on the same level.
+	 */
+	private static final class RequestedKeys {
+
+		private final ColumnInfo.ReferenceInfo reference;
+		private final List<Object> keys = new ArrayList<>();
+
+		RequestedKeys(ColumnInfo.ReferenceInfo reference) {
+			this.reference = reference;
+		}
+
+	}
+
+	/**
+	 * Reference of a loaded object resolved after all levels are loaded.
+	 */
+	private static final class UnresolvedReference {
+
+		private final Object object;
+		private final ColumnInfo column;
+		private final Object key;
+
+		UnresolvedReference(Object object, ColumnInfo column, Object key) {
+			this.object = object;
+			this.column = column;
+			this.key = key;
+		}
+
+		void resolve(ReferencedObjectsBundle bundle) {
+			column.getFieldAccessor().set(object, bundle.get(column.getReferencedTable(), key));
+		}
+
+	}
+
+	/**
+	 * Loaded objects put to the entity cache when their references are
+	 * resolved.
+	 */
+	private static final class CachedObjects {
+
+		private final EntityCache cache;
+		private final CacheReadMark mark;
+		private final List<Object> objects = new ArrayList<>();
+
+		CachedObjects(EntityCache cache) {
+			this.cache = cache;
+			mark = cache.markRead();
+		}
+
+		void put() {
+			for (Object object : objects) {
+				cache.put(mark, object);
+			}
+		}
+
+	}
+
+	/**
+	 * Creates the referenced objects without their own references, registers
+	 * them in the bundle and requests the objects they refer to.
+	 *
+	 * @param <T> model type
+	 */
+	private final class ReferencedObjectsCollector<T extends Model> extends SelectOperation.ListDataCollector<T> {
+
+		private final Class<T> modelClass;
+		private final ObjectCreator<T> objectCreator;
+		private final FieldAccessor keyField;
+		private final List<ColumnInfo> referenceColumns = new ArrayList<>();
+		private int[] referenceSlots;
+
+		ReferencedObjectsCollector(ReadableTable<T> table, ColumnInfo keyColumn) {
+			modelClass = table.getPlan().getModelClass();
+			objectCreator = table.getObjectCreator();
+			keyField = keyColumn.getFieldAccessor();
+			for (ColumnInfo column : table.getTableInfo().getColumns()) {
+				if (column.isReferenceToTable()) {
+					referenceColumns.add(column);
+				}
+			}
+		}
+
+		@Override
+		public void accept(CursorValues values) {
+			CursorValuesImpl slotValues = (CursorValuesImpl) values;
+			if (referenceSlots == null) {
+				referenceSlots = new int[referenceColumns.size()];
+				for (int i = 0; i < referenceSlots.length; i++) {
+					referenceSlots[i] = slotValues.getSlot(referenceColumns.get(i).getName());
+				}
+			}
+			Object[] keys = new Object[referenceSlots.length];
+			for (int i = 0; i < referenceSlots.length; i++) {
+				keys[i] = slotValues.getValue(referenceSlots[i]);
+				slotValues.setValue(referenceSlots[i], null);
+			}
+			T object = objectCreator.createObject(values);
+			bundle.put(modelClass, keyField.get(object), object);
+			for (int i = 0; i < keys.length; i++) {
+				if (keys[i] != null) {
+					ColumnInfo column = referenceColumns.get(i);
+					unresolvedReferences.add(new UnresolvedReference(object, column, keys[i]));
+					request(column.getReference(), Collections.singletonList(keys[i]));
+				}
+			}
+			acceptValue(object);
+		}
+
+	}
+
+}
@@ -0,0 +1,184 @@
+package handy.storage;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import handy.storage.base.DatabaseAdapter;
+
+/**
+ * Keeps results of recent queries by their SQL and arguments. A result is
+ * dropped when any table it is read from is changed. The tables are found
+ * among the identifiers of the query, so joins and subqueries are taken into
+ * account. Referenced objects are read by separate queries, so a change of a
+ * table also drops the results read from its {@link TableDependencies
+ * dependent tables}.
+ */
+final class ResultCache {
+
+	/**
+	 * Identifies a result.
+	 */
+	static final class Key {
+
+		private final Object resultType;
+		private final String sql;
+		private final Object[] arguments;
+		private final int hashCode;
+
+		/**
+		 * @param resultType describes how the rows are converted to the
+		 *                   result, the same query may produce different
+		 *                   results
+		 */
+		Key(Object resultType, String sql, Object[] arguments) {
+			this.resultType = resultType;
+			this.sql = sql;
+			this.arguments = arguments;
+			hashCode = 31 * (31 * resultType.hashCode() + sql.hashCode()) + Arrays.hashCode(arguments);
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) obj;
+			return hashCode == other.hashCode
+				&& sql.equals(other.sql)
+				&& resultType.equals(other.resultType)
+				&& Arrays.equals(arguments, other.arguments);
+		}
+
+	}
+
+	/**
+	 * Cached result.
+	 */
+	private static final class Entry {
+
+		private final Object result;
+		private final Set<String> tables;
+
+		Entry(Object result, Set<String> tables) {
+			this.result = result;
+			this.tables = tables;
+		}
+
+	}
+
+	private final DatabaseAdapter databaseAdapter;
+	private final TableDependencies dependencies;
+	private final int maxSize;
+	private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+
+	private long generation = 0;
+
+	ResultCache(DatabaseAdapter databaseAdapter, TableDependencies dependencies, int maxSize) {
+		this.databaseAdapter = databaseAdapter;
+		this.dependencies = dependencies;
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * Returns the cached result or <code>null</code>.
+	 */
+	synchronized Object get(Key key) {
+		Entry entry = entries.get(key);
+		if (entry == null) {
+			misses.incrementAndGet();
+			return null;
+		}
+		hits.incrementAndGet();
+		return entry.result;
+	}
+
+	/**
+	 * Must be called before the query whose result will be passed to
+	 * {@link #put(CacheReadMark, Key, Object)}.
+	 */
+	synchronized CacheReadMark markRead() {
+		return new CacheReadMark(generation, databaseAdapter);
+	}
+
+	/**
+	 * Caches the result of a query unless the mark is no longer valid.
+	 */
+	synchronized void put(CacheReadMark mark, Key key, Object result) {
+		if (!mark.isValid(generation, databaseAdapter)) {
+			return;
+		}
+		entries.put(key, new Entry(result, dependencies.findTables(key.sql)));
+		Iterator<Key> eldest = entries.keySet().iterator();
+		while (entries.size() > maxSize) {
+			eldest.next();
+			eldest.remove();
+		}
+	}
+
+	/**
+	 * Drops the results read from this table or its dependent tables.
+	 *
+	 * @param table name of the table or <code>null</code> if any table might
+	 *              have been changed
+	 */
+	synchronized void onTableChanged(String table) {
+		generation++;
+		if (entries.isEmpty()) {
+			return;
+		}
+		String changedTable = table != null ? dependencies.findTable(table) : null;
+		if (changedTable == null) {
+			entries.clear();
+			return;
+		}
+		Set<String> changedTables = new HashSet<>(dependencies.getDependentTables(changedTable));
+		changedTables.add(changedTable);
+		Iterator<Entry> iterator = entries.values().iterator();
+		while (iterator.hasNext()) {
+			if (intersect(iterator.next().tables, changedTables)) {
+				iterator.remove();
+			}
+		}
+	}
+
+	private static boolean intersect(Collection<String> tables, Set<String> changedTables) {
+		for (String table : tables) {
+			if (changedTables.contains(table)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Drops all results.
+	 */
+	synchronized void clear() {
+		generation++;
+		entries.clear();
+	}
+
+	long getHits() {
+		return hits.get();
+	}
+
+	long getMisses() {
+		return misses.get();
+	}
+
+}
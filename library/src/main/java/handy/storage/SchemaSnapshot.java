@@ -0,0 +1,292 @@
+package handy.storage;
+
+import android.content.Context;
+import android.content.pm.PackageInfo;
+import android.content.pm.PackageManager;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import handy.storage.ColumnInfo.ReferenceInfo;
+import handy.storage.api.Model;
+import handy.storage.exception.InvalidDatabaseSchemaException;
+import handy.storage.log.DatabaseLog;
+import handy.storage.log.PerformanceTimer;
+import handy.storage.util.ReflectionUtils;
+
+/**
+ * Snapshot of the parsed model tables, stored in a small file per database
+ * with the fingerprint of the schema last checked against the meta info
+ * database. A warm start loads the tables instead of parsing the models
+ * while the key of the models is the same: a digest of the installed
+ * package version and the names and types of the models' fields, computed
+ * without reading the annotations. The fields are found by their names on
+ * load, the tables are parsed again if one of them is missing or has
+ * changed its type.
+ */
+final class SchemaSnapshot {
+
+	private static final int FORMAT_VERSION = 3;
+	private static final String FILE_PREFIX = "handy.storage.schema.";
+
+	private final String modelsKey;
+	private final List<TableInfo> tables;
+	// guarded by this
+	private String checkedFingerprint;
+	private boolean tablesSaved;
+
+	private SchemaSnapshot(String modelsKey, String checkedFingerprint, List<TableInfo> tables) {
+		this.modelsKey = modelsKey;
+		this.checkedFingerprint = checkedFingerprint;
+		this.tables = tables;
+		tablesSaved = tables != null;
+	}
+
+	/**
+	 * Reads the snapshot of the database. Its tables are <code>null</code>
+	 * if the snapshot is missing or outdated.
+	 */
+	static SchemaSnapshot read(Context context, DatabaseCore core) {
+		DatabaseInfo databaseInfo = core.getDatabaseInfo();
+		String modelsKey = getModelsKey(context, core);
+		File file = getFile(context, databaseInfo.getDatabaseName());
+		if (!file.exists()) {
+			return new SchemaSnapshot(modelsKey, "", null);
+		}
+		PerformanceTimer.startInterval("read schema snapshot");
+		try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+			if (input.readInt() != FORMAT_VERSION
+				|| !input.readUTF().equals(databaseInfo.getDatabaseName())
+				|| input.readInt() != databaseInfo.getDatabaseVersion()) {
+				return new SchemaSnapshot(modelsKey, "", null);
+			}
+			String checkedFingerprint = input.readUTF();
+			List<TableInfo> tables = null;
+			if (!modelsKey.isEmpty() && input.readUTF().equals(modelsKey)) {
+				try {
+					tables = readTables(input, core);
+				} catch (IOException | IllegalArgumentException | InvalidDatabaseSchemaException e) {
+					DatabaseLog.i("the schema snapshot is outdated: " + e.getMessage());
+				}
+			}
+			return new SchemaSnapshot(modelsKey, checkedFingerprint, tables);
+		} catch (IOException e) {
+			DatabaseLog.logException(e);
+			return new SchemaSnapshot(modelsKey, "", null);
+		} finally {
+			PerformanceTimer.endInterval();
+		}
+	}
+
+	/**
+	 * Returns the loaded tables in the creation order or <code>null</code> if
+	 * the models have to be parsed.
+	 */
+	List<TableInfo> getTables() {
+		return tables;
+	}
+
+	/**
+	 * Whether the schema with this fingerprint has already been checked.
+	 */
+	synchronized boolean isChecked(String fingerprint) {
+		return !fingerprint.isEmpty() && fingerprint.equals(checkedFingerprint);
+	}
+
+	/**
+	 * Saves the tables if all of them have been parsed and they aren't saved
+	 * yet.
+	 */
+	synchronized void save(Context context, DatabaseCore core) {
+		save(context, core, checkedFingerprint);
+	}
+
+	/**
+	 * Saves the fingerprint of the checked schema and the tables if all of
+	 * them have been parsed. Does nothing if the saved snapshot is up to
+	 * date.
+	 *
+	 * @param fingerprint fingerprint of the checked schema, empty if it
+	 *                    hasn't been checked
+	 */
+	synchronized void save(Context context, DatabaseCore core, String fingerprint) {
+		boolean saveTables = !tablesSaved && !modelsKey.isEmpty() && core.areTablesParsed();
+		if (!saveTables && fingerprint.equals(checkedFingerprint)) {
+			return;
+		}
+		DatabaseInfo databaseInfo = core.getDatabaseInfo();
+		File file = getFile(context, databaseInfo.getDatabaseName());
+		try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+			output.writeInt(FORMAT_VERSION);
+			output.writeUTF(databaseInfo.getDatabaseName());
+			output.writeInt(databaseInfo.getDatabaseVersion());
+			output.writeUTF(fingerprint);
+			if (tablesSaved || saveTables) {
+				List<TableInfo> parsedTables = core.getTables();
+				output.writeUTF(modelsKey);
+				output.writeInt(parsedTables.size());
+				for (TableInfo table : parsedTables) {
+					table.write(output);
+				}
+			} else {
+				output.writeUTF("");
+			}
+			checkedFingerprint = fingerprint;
+			tablesSaved |= saveTables;
+		} catch (IOException e) {
+			DatabaseLog.logException(e);
+			delete(context, databaseInfo.getDatabaseName());
+		}
+	}
+
+	/**
+	 * Deletes the snapshot of the database.
+	 */
+	static void delete(Context context, String databaseName) {
+		File file = getFile(context, databaseName);
+		if (file.exists() && !file.delete()) {
+			DatabaseLog.w("can't delete " + file);
+		}
+	}
+
+	private static File getFile(Context context, String databaseName) {
+		// database name may be a path
+		return new File(context.getFilesDir(), FILE_PREFIX + Integer.toHexString(databaseName.hashCode()));
+	}
+
+	/**
+	 * Reads the tables and binds their foreign columns in the creation order,
+	 * the way {@link TablesCreator} does.
+	 */
+	private static List<TableInfo> readTables(DataInputStream input, DatabaseCore core) throws IOException {
+		Map<String, Class<? extends Model>> models = new HashMap<>();
+		for (Class<? extends Model> model : core.getDatabaseInfo().getRegisteredModels()) {
+			models.put(model.getName(), model);
+		}
+		int count = input.readInt();
+		if (count != models.size()) {
+			throw new IOException("the registered models have changed");
+		}
+		List<TableInfo> tables = new ArrayList<>(count);
+		Map<String, TableInfo> tablesByName = new HashMap<>(count);
+		for (int i = 0; i < count; i++) {
+			TableInfo table = TableInfo.read(input, models, core.getDataAdapters());
+			tables.add(table);
+			tablesByName.put(table.getName(), table);
+		}
+		for (TableInfo table : tables) {
+			for (ColumnInfo column : table.getColumns()) {
+				if (!column.isForeignKey()) {
+					continue;
+				}
+				ReferenceInfo reference = column.getReference();
+				TableInfo foreignTable = tablesByName.get(reference.getForeignTableName());
+				ColumnInfo foreignColumn = foreignTable != null ? foreignTable.getColumnInfo(reference.getForeignColumnName()) : null;
+				if (foreignColumn == null) {
+					throw new IOException("can't find the foreign column of " + column.getFullName());
+				}
+				ColumnInfo.bindForeignColumn(column, foreignColumn, foreignTable.getName());
+			}
+		}
+		return tables;
+	}
+
+	/**
+	 * Returns the key of the models the snapshot is valid for or an empty
+	 * string if it can't be computed. Code swaps which don't reinstall the
+	 * package can't add fields or annotations, so the fields' names and types
+	 * are enough to tell that a model has been changed.
+	 */
+	private static String getModelsKey(Context context, DatabaseCore core) {
+		StringBuilder sb = new StringBuilder();
+		try {
+			PackageInfo packageInfo = context.getPackageManager().getPackageInfo(context.getPackageName(), 0);
+			sb.append(packageInfo.versionCode).append(' ').append(packageInfo.lastUpdateTime).append('\n');
+		} catch (PackageManager.NameNotFoundException e) {
+			DatabaseLog.logException(e);
+			return "";
+		}
+		DatabaseConfiguration configuration = core.getConfiguration();
+		sb.append(configuration.addFieldsFromSuperclasses()).append(' ').append(configuration.enforceColumnNameConstants()).append('\n');
+		List<String> models = new ArrayList<>();
+		for (Class<? extends Model> model : core.getDatabaseInfo().getRegisteredModels()) {
+			List<String> fields = new ArrayList<>();
+			for (Field field : ReflectionUtils.getFields(model, configuration.addFieldsFromSuperclasses())) {
+				if (!Modifier.isStatic(field.getModifiers())) {
+					fields.add(field.getDeclaringClass().getName() + '.' + field.getName() + ':' + field.getType().getName());
+				}
+			}
+			Collections.sort(fields);
+			models.add(model.getName() + fields);
+		}
+		Collections.sort(models);
+		for (String model : models) {
+			sb.append(model).append('\n');
+		}
+		return MetaInfoDatabase.digest(sb.toString());
+	}
+
+	/**
+	 * Finds the field declared in the model class or its superclass.
+	 *
+	 * @throws IOException if there is no such field or it has another type
+	 */
+	static Field findField(Class<?> modelClass, String declaringClassName, String name, String typeName) throws IOException {
+		for (Class<?> type = modelClass; type != null; type = type.getSuperclass()) {
+			if (type.getName().equals(declaringClassName)) {
+				try {
+					Field field = type.getDeclaredField(name);
+					if (field.getType().getName().equals(typeName)) {
+						return field;
+					}
+				} catch (NoSuchFieldException e) {
+					// reported below
+				}
+				break;
+			}
+		}
+		throw new IOException("field " + declaringClassName + "." + name + " has changed");
+	}
+
+	static void writeStrings(DataOutputStream output, Collection<String> strings) throws IOException {
+		output.writeInt(strings.size());
+		for (String string : strings) {
+			output.writeUTF(string);
+		}
+	}
+
+	static List<String> readStrings(DataInputStream input) throws IOException {
+		int size = input.readInt();
+		List<String> strings = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			strings.add(input.readUTF());
+		}
+		return strings;
+	}
+
+	static void writeNullableString(DataOutputStream output, String string) throws IOException {
+		output.writeBoolean(string != null);
+		if (string != null) {
+			output.writeUTF(string);
+		}
+	}
+
+	static String readNullableString(DataInputStream input) throws IOException {
+		return input.readBoolean() ? input.readUTF() : null;
+	}
+
+}
@@ -1,15 +1,21 @@
 package handy.storage;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.concurrent.Future;
 
+import handy.storage.api.Callback;
 import handy.storage.api.CursorValues;
+import handy.storage.api.ItemHandler;
 import handy.storage.api.JoinType;
+import handy.storage.api.LiveQuery;
 import handy.storage.api.Model;
 import handy.storage.api.ObjectCreator;
+import handy.storage.api.ResultIterator;
 import handy.storage.api.Select;
 import handy.storage.base.QueryParams;
 import handy.storage.exception.OperationException;
@@ -24,10 +30,22 @@ import handy.storage.util.Factory;
  */
 public abstract class SelectOperation<T> extends BaseSelectOperation<Select<T>, SelectOperation<T>> implements Select<T> {
 
+	private Object resultType;
+
 	SelectOperation(Table table, List<ColumnInfo> queryColumns, Factory<QueryParams> queryParamsFactory) {
 		super(table, queryColumns, queryParamsFactory);
 	}
 
+	/**
+	 * Allows the results of this select to be cached.
+	 *
+	 * @param type describes how rows are converted to the result objects
+	 */
+	SelectOperation<T> cacheResultsAs(Object type) {
+		resultType = type;
+		return this;
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -56,11 +74,35 @@ public abstract class SelectOperation<T> extends BaseSelectOperation<Select<T>,
 	 */
 	@Override
 	public Iterator<T> iterator() {
+		return executeSafely().iterator();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public ResultIterator<T> openIterator() throws OperationException {
+		completeConfiguringQuery();
+		return doOpenIterator(getQueryParams(), getQueryColumns());
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public void forEachItem(ItemHandler<? super T> handler) throws OperationException {
+		ResultIterator<T> iterator = openIterator();
 		try {
-			return execute().iterator();
-		} catch (OperationException e) {
-			DatabaseLog.logException(e);
-			return Collections.<T>emptyList().iterator();
+			while (iterator.hasNext()) {
+				handler.handle(iterator.next());
+			}
+		} catch (IllegalStateException e) {
+			if (e.getCause() instanceof OperationException) {
+				throw (OperationException) e.getCause();
+			}
+			throw e;
+		} finally {
+			iterator.close();
 		}
 	}
 
@@ -78,6 +120,23 @@ public abstract class SelectOperation<T> extends BaseSelectOperation<Select<T>,
 		}
 	}
 
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public LiveQuery<List<T>> live() {
+		completeConfiguringQuery();
+		return getOwner().getDatabaseCore().createLiveQuery(getQueryParams().toRawSqlQuery(), this::execute);
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Future<List<T>> executeAsync(Callback<? super List<T>> callback) {
+		return getAsyncExecutors().read(this::execute, callback);
+	}
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -97,27 +156,57 @@ public abstract class SelectOperation<T> extends BaseSelectOperation<Select<T>,
 	@Override
 	public final List<T> execute() throws OperationException {
 		completeConfiguringQuery();
-		List<T> result = doExecute(getQueryParams(), getQueryColumns());
+		ResultCache resultCache = resultType != null ? getResultCache() : null;
+		List<T> result = resultCache != null
+			? executeCached(resultCache)
+			: doExecute(getQueryParams(), getQueryColumns());
 		DatabaseLog.i(String.format("read %d objects from table '%s'", result.size(), getTableInfo().getEntity()));
 		return result;
 	}
 
+	private List<T> executeCached(ResultCache resultCache) throws OperationException {
+		QueryParams queryParams = getQueryParams();
+		ResultCache.Key key = new ResultCache.Key(resultType, queryParams.toRawSqlQuery(), queryParams.getArguments());
+		@SuppressWarnings("unchecked")
+		List<T> cachedResult = (List<T>) resultCache.get(key);
+		if (cachedResult != null) {
+			return new ArrayList<>(cachedResult);
+		}
+		CacheReadMark mark = resultCache.markRead();
+		List<T> result = doExecute(queryParams, getQueryColumns());
+		resultCache.put(mark, key, new ArrayList<>(result));
+		return result;
+	}
+
 	protected abstract List<T> doExecute(QueryParams filledQueryParams, List<ColumnInfo> queryColumns) throws OperationException;
 
+	protected abstract ResultIterator<T> doOpenIterator(QueryParams filledQueryParams, List<ColumnInfo> queryColumns) throws OperationException;
+
 	static <M extends Model> Select<M> createModelSelect(final ReadableTable<M> table, Factory<QueryParams> queryParamsFactory) {
-		return createModelSelect(table, table.getObjectCreator(), queryParamsFactory);
+		return createModelSelect(table, table.getObjectCreator(), queryParamsFactory)
+			.cacheResultsAs(table.getModelClass());
 	}
 
-	static <M extends Model> Select<M> createModelSelect(Table table, final ObjectCreator<M> objectCreator, Factory<QueryParams> queryParamsFactory) {
+	static <M extends Model> SelectOperation<M> createModelSelect(Table table, final ObjectCreator<M> objectCreator, Factory<QueryParams> queryParamsFactory) {
 		List<ColumnInfo> columns = new LinkedList<>(table.getTableInfo().getColumns());
 		return new SimpleSelectOperation<>(table, columns, queryParamsFactory, getDataReaderFactory(), () -> new ModelListDataCollector<>(objectCreator));
 	}
 
+	/**
+	 * Creates a select of referenced models which doesn't load their own
+	 * references: the collector gets the key values of the references
+	 * instead.
+	 */
+	static <M extends Model> SelectOperation<M> createReferencedModelSelect(ReadableTable<M> table, Factory<ListDataCollector<M>> dataCollectorFactory) {
+		List<ColumnInfo> columns = new LinkedList<>(table.getTableInfo().getColumns());
+		return new SimpleSelectOperation<>(table, columns, table.getQueryParamsFactory(), getDataReaderFactory(false), dataCollectorFactory);
+	}
+
 	static <C> Select<C> createColumnValuesSelect(Table table, ColumnInfo column, Class<C> type, Factory<QueryParams> queryParamsFactory) {
 		final String columnName = column.getName();
 		List<ColumnInfo> columns = Collections.singletonList(column);
 		final TypeAdapter<C> typeAdapter = table.getDataAdapters().getTypeAdapter(type);
-		return new SimpleSelectOperation<>(table, columns, queryParamsFactory,
+		return new SimpleSelectOperation<C>(table, columns, queryParamsFactory,
 			new DataReaderFactory() {
 				@Override
 				public DataReader newDataReader(Table table, List<ColumnInfo> queryColumns, QueryParams queryParams) {
@@ -125,11 +214,12 @@ public abstract class SelectOperation<T> extends BaseSelectOperation<Select<T>,
 				}
 			},
 			() -> new ColumnListDataCollector<>(columnName)
-		);
+		).cacheResultsAs(type);
 	}
 
 	static <C extends Model> Select<C> createReferencedColumnValuesSelect(Table table, ColumnInfo column, Class<C> type, Factory<QueryParams> queryParamsFactory) {
-		return new ReferencedColumnSelect<>(table, column, type, queryParamsFactory);
+		return new ReferencedColumnSelect<>(table, column, type, queryParamsFactory)
+			.cacheResultsAs(Arrays.asList(ReferencedColumnSelect.class, type));
 	}
 
 	/**
@@ -153,6 +243,12 @@ public abstract class SelectOperation<T> extends BaseSelectOperation<Select<T>,
 			dataReader.readData(dataConsumer);
 			return dataConsumer.getData();
 		}
+
+		@Override
+		protected ResultIterator<T> doOpenIterator(QueryParams filledQueryParams, List<ColumnInfo> queryColumns) throws OperationException {
+			DataReader dataReader = dataReaderFactory.newDataReader(getOwner(), queryColumns, filledQueryParams);
+			return new StreamingIterator<>(dataReader.openWindowReader(), dataConsumerFactory.newObject());
+		}
 	}
 
 	/**
@@ -177,8 +273,17 @@ public abstract class SelectOperation<T> extends BaseSelectOperation<Select<T>,
 
 		@Override
 		protected List<T> doExecute(QueryParams queryParams, List<ColumnInfo> queryColumns) throws OperationException {
+			return createReferencedModelSelect().execute();
+		}
+
+		@Override
+		protected ResultIterator<T> doOpenIterator(QueryParams queryParams, List<ColumnInfo> queryColumns) throws OperationException {
+			return createReferencedModelSelect().openIterator();
+		}
+
+		private SelectOperation<T> createReferencedModelSelect() {
 			DatabaseCore core = getOwner().getDatabaseCore();
-			Table referencedTable = core.getTablesFactory().createTable(column.getReferencedTable());
+			Table referencedTable = core.getTablesFactory().getTable(column.getReferencedTable());
 			Table joinedTable = asTable("temp_table")
 				.join(referencedTable, JoinType.LEFT_OUTER)
 				.onReference()
@@ -195,7 +300,7 @@ public abstract class SelectOperation<T> extends BaseSelectOperation<Select<T>,
 					}
 				}
 			};
-			return createModelSelect(joinedTable, objectCreator, queryParamsFactory).execute();
+			return createModelSelect(joinedTable, objectCreator, queryParamsFactory);
 		}
 
 	}
@@ -256,14 +361,25 @@ public abstract class SelectOperation<T> extends BaseSelectOperation<Select<T>,
 	static class ColumnListDataCollector<T> extends ListDataCollector<T> {
 
 		private final String columnName;
+		private int slot = -1;
 
 		ColumnListDataCollector(String columnName) {
 			this.columnName = columnName;
 		}
 
 		@Override
+		@SuppressWarnings("unchecked")
 		public void accept(CursorValues values) {
-			T value = values.getValue(columnName);
+			T value;
+			if (values instanceof CursorValuesImpl) {
+				CursorValuesImpl slotValues = (CursorValuesImpl) values;
+				if (slot == -1) {
+					slot = slotValues.getSlot(columnName);
+				}
+				value = slot == -1 ? null : (T) slotValues.getValue(slot);
+			} else {
+				value = values.getValue(columnName);
+			}
 			acceptValue(value);
 		}
 	}
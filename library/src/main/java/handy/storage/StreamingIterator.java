@@ -0,0 +1,73 @@
+package handy.storage;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import handy.storage.api.ResultIterator;
+import handy.storage.exception.OperationException;
+
+/**
+ * Reads objects from an open cursor window by window.
+ *
+ * @param <T> type of objects
+ */
+class StreamingIterator<T> implements ResultIterator<T> {
+
+	private final DataReader.WindowReader windowReader;
+	private final SelectOperation.ListDataCollector<T> dataCollector;
+
+	private Iterator<T> window = Collections.<T>emptyList().iterator();
+	private boolean closed = false;
+
+	StreamingIterator(DataReader.WindowReader windowReader, SelectOperation.ListDataCollector<T> dataCollector) {
+		this.windowReader = windowReader;
+		this.dataCollector = dataCollector;
+	}
+
+	@Override
+	public boolean hasNext() {
+		while (!window.hasNext()) {
+			if (closed || !readNextWindow()) {
+				close();
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private boolean readNextWindow() {
+		try {
+			if (windowReader.readWindow(dataCollector, windowReader.getWindowSize())) {
+				window = dataCollector.getData().iterator();
+				return true;
+			}
+			return false;
+		} catch (OperationException | RuntimeException e) {
+			close();
+			throw new IllegalStateException("can't read the next objects", e);
+		}
+	}
+
+	@Override
+	public T next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		return window.next();
+	}
+
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException("remove");
+	}
+
+	@Override
+	public void close() {
+		if (!closed) {
+			closed = true;
+			windowReader.close();
+		}
+	}
+
+}
@@ -0,0 +1,108 @@
+package handy.storage;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Knows which tables may be affected by a change of a table: the tables
+ * referencing to it, directly or through other tables. Their objects contain
+ * the changed ones and their rows may be changed by foreign key actions.
+ */
+final class TableDependencies {
+
+	private static final Pattern IDENTIFIER_PATTERN = Pattern.compile("[A-Za-z_][A-Za-z0-9_$]*");
+
+	private final Set<String> tableNames = new HashSet<>();
+	private final Map<String, String> tableNamesByLowerCase = new HashMap<>();
+	private final Map<String, Set<String>> dependentTables = new HashMap<>();
+
+	TableDependencies(List<TableInfo> tables) {
+		Map<String, Set<String>> referencedTables = new HashMap<>();
+		for (TableInfo table : tables) {
+			Set<String> referenced = new HashSet<>();
+			for (ColumnInfo column : table.getColumns()) {
+				if (column.isForeignKey()) {
+					referenced.add(column.getForeignKeyInfo().getForeignTableName());
+				}
+			}
+			referencedTables.put(table.getName(), referenced);
+			tableNames.add(table.getName());
+			tableNamesByLowerCase.put(table.getName().toLowerCase(Locale.US), table.getName());
+		}
+		for (String table : tableNames) {
+			Set<String> allReferenced = new HashSet<>();
+			collectReferencedTables(table, referencedTables, allReferenced);
+			for (String referenced : allReferenced) {
+				Set<String> dependents = dependentTables.get(referenced);
+				if (dependents == null) {
+					dependents = new HashSet<>();
+					dependentTables.put(referenced, dependents);
+				}
+				dependents.add(table);
+			}
+		}
+	}
+
+	private static void collectReferencedTables(String table, Map<String, Set<String>> referencedTables, Set<String> result) {
+		Set<String> referenced = referencedTables.get(table);
+		if (referenced != null) {
+			for (String referencedTable : referenced) {
+				if (result.add(referencedTable)) {
+					collectReferencedTables(referencedTable, referencedTables, result);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Whether it's a name of a database table.
+	 */
+	boolean isTable(String tableName) {
+		return tableNames.contains(tableName);
+	}
+
+	Set<String> getTableNames() {
+		return tableNames;
+	}
+
+	/**
+	 * Returns the name of the table as it's declared or <code>null</code> if
+	 * there is no such table. SQLite names are case insensitive.
+	 */
+	String findTable(String name) {
+		return tableNamesByLowerCase.get(name.toLowerCase(Locale.US));
+	}
+
+	/**
+	 * Returns the tables the SQL statement refers to. They are found among
+	 * its identifiers, so joins and subqueries are taken into account.
+	 */
+	Set<String> findTables(String sql) {
+		Set<String> tables = new HashSet<>();
+		Matcher matcher = IDENTIFIER_PATTERN.matcher(sql);
+		while (matcher.find()) {
+			String table = findTable(matcher.group());
+			if (table != null) {
+				tables.add(table);
+			}
+		}
+		return tables;
+	}
+
+	/**
+	 * Returns the tables referencing to this one directly or indirectly. May
+	 * include the table itself if it references to itself.
+	 */
+	Set<String> getDependentTables(String tableName) {
+		Set<String> dependents = dependentTables.get(tableName);
+		return dependents != null ? dependents : Collections.<String>emptySet();
+	}
+
+}
@@ -2,6 +2,9 @@ package handy.storage;
 
 import android.text.TextUtils;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -9,6 +12,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeSet;
@@ -35,6 +39,7 @@ final class TableInfo {
 	private Set<String> ambiguousColumnNames = new HashSet<>();
 	private List<String> primaryKeyColumns;
 	private Set<UniqueRestriction> compositeUniques = Collections.emptySet();
+	private List<IndexInfo> indexes = Collections.emptyList();
 	private OnConflictStrategy primaryKeySetOnConflict;
 	private boolean isSelect = false;
 
@@ -171,6 +176,26 @@ final class TableInfo {
 		return "DROP TABLE IF EXISTS " + name;
 	}
 
+	List<IndexInfo> getIndexes() {
+		return indexes;
+	}
+
+	/**
+	 * Returns the full declaration of the table including its indexes.
+	 */
+	String getDeclaration() {
+		String createQuery = getCreateQuery();
+		if (indexes.isEmpty()) {
+			return createQuery;
+		}
+		StringBuilder sb = new StringBuilder(createQuery);
+		for (IndexInfo index : indexes) {
+			sb.append("; ");
+			sb.append(index.getDeclaration());
+		}
+		return sb.toString();
+	}
+
 	ColumnInfo getReferenceableColumn() {
 		ColumnInfo rowidColumn = null;
 		boolean hasRestriction = !compositeUniques.isEmpty();
@@ -206,6 +231,18 @@ final class TableInfo {
 		return getFirstColumnWithFlag(ColumnInfo.PRIMARY_KEY_AUTO_INCREMENT);
 	}
 
+	/**
+	 * Returns names of the primary key columns, either the single one or the
+	 * ones declared with CompositePrimaryKey.
+	 */
+	List<String> getPrimaryKeyColumnNames() {
+		if (!primaryKeyColumns.isEmpty()) {
+			return primaryKeyColumns;
+		}
+		ColumnInfo primaryKey = getPrimaryKeyColumn();
+		return primaryKey != null ? Collections.singletonList(primaryKey.getName()) : Collections.<String>emptyList();
+	}
+
 	ColumnInfo getPrimaryKeyColumn() {
 		return getFirstColumnWithFlag(ColumnInfo.PRIMARY_KEY);
 	}
@@ -219,6 +256,54 @@ final class TableInfo {
 		return null;
 	}
 
+	/**
+	 * Whether the table has unique columns besides the primary key.
+	 */
+	boolean hasUniqueRestrictions() {
+		if (!compositeUniques.isEmpty()) {
+			return true;
+		}
+		for (ColumnInfo column : columnInfos) {
+			if (column.isUniqueFlagSet() && !column.isPrimaryKeyFlagSet()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Whether these columns are the primary key, a unique column or a set
+	 * declared with {@link CompositeUnique}.
+	 */
+	boolean isUniqueKey(Collection<String> columns) {
+		if (columns.size() == 1) {
+			ColumnInfo column = getColumnInfo(columns.iterator().next());
+			if (column != null && (column.isUniqueFlagSet()
+				|| column.isPrimaryKeyFlagSet() && getPrimaryKeyColumnNames().size() == 1)) {
+				return true;
+			}
+		}
+		String joinedColumns = joinSortedColumns(columns);
+		if (joinedColumns.equals(joinSortedColumns(primaryKeyColumns))) {
+			return true;
+		}
+		for (UniqueRestriction restriction : compositeUniques) {
+			if (joinedColumns.equals(joinSortedColumns(Arrays.asList(restriction.columns.split(", "))))) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static String joinSortedColumns(Collection<String> columns) {
+		List<String> sortedColumns = new ArrayList<>(columns.size());
+		for (String column : columns) {
+			sortedColumns.add(column.toLowerCase(Locale.US));
+		}
+		Collections.sort(sortedColumns);
+		return TextUtils.join(", ", sortedColumns);
+	}
+
 	ColumnInfo getUniqueColumn() {
 		ColumnInfo result = null;
 		for (ColumnInfo column : columnInfos) {
@@ -232,6 +317,72 @@ final class TableInfo {
 		return result;
 	}
 
+	/**
+	 * Writes the model table to a schema snapshot, see {@link SchemaSnapshot}.
+	 */
+	void write(DataOutputStream output) throws IOException {
+		output.writeUTF(originClass.getName());
+		output.writeUTF(name);
+		output.writeUTF(entity);
+		output.writeUTF(primaryKeySetOnConflict.name());
+		SchemaSnapshot.writeStrings(output, primaryKeyColumns);
+		output.writeInt(compositeUniques.size());
+		for (UniqueRestriction restriction : compositeUniques) {
+			output.writeUTF(restriction.columns);
+			output.writeUTF(restriction.onConflictStrategy.name());
+		}
+		output.writeInt(indexes.size());
+		for (IndexInfo index : indexes) {
+			index.write(output);
+		}
+		output.writeInt(columnInfos.size());
+		for (ColumnInfo column : columnInfos) {
+			column.write(output);
+		}
+	}
+
+	/**
+	 * Reads a model table written by {@link #write(DataOutputStream)}. The
+	 * foreign columns of its columns aren't bound.
+	 *
+	 * @param models registered models by their names
+	 * @throws IOException if the model isn't registered or its fields have
+	 *                     changed
+	 */
+	static TableInfo read(DataInputStream input, Map<String, Class<? extends Model>> models, DataAdapters dataAdapters) throws IOException {
+		String className = input.readUTF();
+		Class<? extends Model> modelClass = models.get(className);
+		if (modelClass == null) {
+			throw new IOException(className + " isn't registered");
+		}
+		String tableName = input.readUTF();
+		Builder builder = new Builder(tableName, input.readUTF());
+		builder.setOriginClass(modelClass);
+		OnConflictStrategy primaryKeyOnConflict = OnConflictStrategy.valueOf(input.readUTF());
+		List<String> primaryKeyColumns = SchemaSnapshot.readStrings(input);
+		Set<UniqueRestriction> compositeUniques = new TreeSet<>();
+		int compositeUniqueCount = input.readInt();
+		for (int i = 0; i < compositeUniqueCount; i++) {
+			String columns = input.readUTF();
+			compositeUniques.add(new UniqueRestriction(columns, OnConflictStrategy.valueOf(input.readUTF())));
+		}
+		List<IndexInfo> indexes = new ArrayList<>();
+		int indexCount = input.readInt();
+		for (int i = 0; i < indexCount; i++) {
+			indexes.add(IndexInfo.read(input, tableName));
+		}
+		int columnCount = input.readInt();
+		for (int i = 0; i < columnCount; i++) {
+			builder.addColumn(ColumnInfo.read(input, modelClass, models, dataAdapters));
+		}
+		TableInfo tableInfo = builder.build();
+		tableInfo.primaryKeySetOnConflict = primaryKeyOnConflict;
+		tableInfo.primaryKeyColumns.addAll(primaryKeyColumns);
+		tableInfo.compositeUniques = compositeUniques;
+		tableInfo.indexes = indexes;
+		return tableInfo;
+	}
+
 	/**
 	 * Helps build {@link TableInfo} object.
 	 */
@@ -291,6 +442,27 @@ final class TableInfo {
 			return this;
 		}
 
+		Builder setIndexes(List<IndexInfo> indexes) {
+			Set<String> names = new HashSet<>();
+			for (IndexInfo index : indexes) {
+				if (!names.add(index.getName())) {
+					TableParser.throwDeclarationException(tableInfo.originClass, "Duplicate index " + index.getName() + ".");
+				}
+				for (String column : index.getColumns()) {
+					if (!columnInfos.containsKey(new ColumnId(column, tableInfo.name))) {
+						TableParser.throwDeclarationException(tableInfo.originClass, "Can't find column \"" + column
+							+ "\" declared in index " + index.getName());
+					}
+				}
+				if (!index.getColumns().containsAll(index.getDescendingColumns())) {
+					TableParser.throwDeclarationException(tableInfo.originClass, "Descending columns of index "
+						+ index.getName() + " must be listed in its columns.");
+				}
+			}
+			tableInfo.indexes = new ArrayList<>(indexes);
+			return this;
+		}
+
 		private void checkRestrictionColumns(String... columns) {
 			if (columns.length < 1) {
 				TableParser.throwDeclarationException(tableInfo.originClass, "No columns declared in CompositeUnique or CompositePrimaryKey.");
@@ -376,6 +548,11 @@ final class TableInfo {
 			onConflictStrategy = annotation.onConflictStrategy();
 		}
 
+		UniqueRestriction(String columns, OnConflictStrategy onConflictStrategy) {
+			this.columns = columns;
+			this.onConflictStrategy = onConflictStrategy;
+		}
+
 		@Override
 		public int compareTo(UniqueRestriction o) {
 			return columns.compareTo(o.columns);
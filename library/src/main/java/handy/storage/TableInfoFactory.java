@@ -79,7 +79,7 @@ final class TableInfoFactory {
 				}
 			}
 			ColumnInfo.Builder columnBuilder = new ColumnInfo.Builder(columnId, null)
-					.setField(projectionColumn.getField())
+					.setFieldOf(projectionColumn)
 					.setFieldType(projectionColumn.getFieldType()) // if field is null
 					.setEntity(projectionColumn.getEntity());
 			if (entityColumn != null) {
@@ -174,7 +174,7 @@ final class TableInfoFactory {
 
 	private static ColumnInfo cloneColumn(ColumnInfo column, ColumnId columnId) {
 		ColumnInfo.Builder columnBuilder = new ColumnInfo.Builder(columnId, column.getType());
-		columnBuilder.setField(column.getField());
+		columnBuilder.setFieldOf(column);
 		columnBuilder.setFieldType(column.getFieldType());
 		columnBuilder.setFlags(column.getFlags());
 		//columnBuilder.setOnConflict(column.getOnConflict());
@@ -18,12 +18,15 @@ import handy.storage.TableInfo.Builder;
 import handy.storage.annotation.AliasFor;
 import handy.storage.annotation.AutoIncrement;
 import handy.storage.annotation.Column;
+import handy.storage.annotation.CompositeIndex;
+import handy.storage.annotation.CompositeIndexes;
 import handy.storage.annotation.CompositePrimaryKey;
 import handy.storage.annotation.CompositeUnique;
 import handy.storage.annotation.CompositeUniques;
 import handy.storage.annotation.ForeignKey;
 import handy.storage.annotation.FunctionResult;
 import handy.storage.annotation.GsonSerializable;
+import handy.storage.annotation.Index;
 import handy.storage.annotation.NotNull;
 import handy.storage.annotation.PrimaryKey;
 import handy.storage.annotation.Reference;
@@ -86,9 +89,14 @@ final class TableParser {
 		builder.setOriginClass(modelClass);
 		List<Field> fields = getColumnFields(modelClass, configuration);
 		Set<String> constants = ReflectionUtils.getStringConstantNames(modelClass);
+		List<IndexInfo> indexes = new ArrayList<>();
 		for (Field field : fields) {
 			ColumnInfo columnInfo = parseColumn(modelClass, field, tableName, dataAdapters);
 			builder.addColumn(columnInfo);
+			Index index = field.getAnnotation(Index.class);
+			if (index != null) {
+				indexes.add(IndexInfo.forColumn(tableName, columnInfo.getName(), index));
+			}
 			if (configuration.enforceColumnNameConstants()) {
 				checkConvenientColumnConstant(constants, columnInfo.getName(), modelClass);
 			}
@@ -101,6 +109,11 @@ final class TableParser {
 
 		builder.setCompositeUniques(parseCompositeUniques(modelClass));
 
+		for (CompositeIndex compositeIndex : parseCompositeIndexes(modelClass)) {
+			indexes.add(IndexInfo.forColumns(tableName, compositeIndex));
+		}
+		builder.setIndexes(indexes);
+
 		TableInfo tableInfo = builder.buildDatabaseTable();
 
 		PerformanceTimer.endInterval();
@@ -129,6 +142,26 @@ final class TableParser {
 
 	}
 
+	private static CompositeIndex[] parseCompositeIndexes(Class<?> modelClass) {
+		CompositeIndexes compositeIndexes = modelClass.getAnnotation(CompositeIndexes.class);
+		CompositeIndex compositeIndex = modelClass.getAnnotation(CompositeIndex.class);
+		if (compositeIndexes != null) {
+			if (compositeIndex != null) {
+				throwDeclarationException(modelClass, "Don't use " + CompositeIndex.class.getName() + " and "
+					+ CompositeIndexes.class.getName() + " annotations simultaneously.");
+			}
+			CompositeIndex[] result = compositeIndexes.value();
+			if (result.length == 0) {
+				throwDeclarationException(modelClass, "Empty value for annotation " + CompositeIndexes.class.getName() + ".");
+			}
+			return result;
+		} else if (compositeIndex != null) {
+			return new CompositeIndex[]{compositeIndex};
+		} else {
+			return new CompositeIndex[0];
+		}
+	}
+
 	private static ColumnInfo parseColumn(Class<?> modelClass, Field field, String tableName, DataAdapters dataAdapters) {
 		ColumnId columnId = resolveColumnId(field).withTableName(tableName);
 		if (field.isAnnotationPresent(Reference.class)) {
@@ -0,0 +1,82 @@
+package handy.storage;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import handy.storage.api.ObjectCreator;
+import handy.storage.base.OnConflictStrategy;
+
+/**
+ * Immutable objects resolved once for a model: the converter to
+ * {@link android.content.ContentValues}, the object creator, the cursor
+ * reader of the model columns and, for
+ * database tables, the statement binder and the insert queries. A plan is
+ * shared by all table instances of the model and can be used from any
+ * thread.
+ *
+ * @param <T> model class
+ */
+final class TablePlan<T> {
+
+	private final Class<T> modelClass;
+	private final TableInfo tableInfo;
+	private final ContentValuesParser<T> contentValuesParser;
+	private final ObjectCreator<T> objectCreator;
+	private final CursorReader cursorReader;
+	private final ModelStatementBinder<T> statementBinder;
+	private final Map<OnConflictStrategy, String> insertQueries;
+
+	/**
+	 * @param writable whether the plan is for a database table, the insert
+	 *                 plans aren't created for projections
+	 */
+	TablePlan(Class<T> modelClass, TableInfo tableInfo, DataAdapters dataAdapters, boolean writable) {
+		this.modelClass = modelClass;
+		this.tableInfo = tableInfo;
+		contentValuesParser = new ContentValuesParser<>(dataAdapters, tableInfo);
+		objectCreator = dataAdapters.getObjectCreator(modelClass, tableInfo);
+		cursorReader = new CursorReader(tableInfo.getColumns(), dataAdapters);
+		if (writable) {
+			statementBinder = new ModelStatementBinder<>(dataAdapters, tableInfo);
+			insertQueries = new EnumMap<>(OnConflictStrategy.class);
+			for (OnConflictStrategy onConflictStrategy : OnConflictStrategy.values()) {
+				insertQueries.put(onConflictStrategy, statementBinder.createInsertQuery(onConflictStrategy));
+			}
+		} else {
+			statementBinder = null;
+			insertQueries = null;
+		}
+	}
+
+	Class<T> getModelClass() {
+		return modelClass;
+	}
+
+	TableInfo getTableInfo() {
+		return tableInfo;
+	}
+
+	ContentValuesParser<T> getContentValuesParser() {
+		return contentValuesParser;
+	}
+
+	ObjectCreator<T> getObjectCreator() {
+		return objectCreator;
+	}
+
+	/**
+	 * Returns the reader of all the model columns.
+	 */
+	CursorReader getCursorReader() {
+		return cursorReader;
+	}
+
+	ModelStatementBinder<T> getStatementBinder() {
+		return statementBinder;
+	}
+
+	String getInsertQuery(OnConflictStrategy onConflictStrategy) {
+		return insertQueries.get(onConflictStrategy);
+	}
+
+}
@@ -11,6 +11,7 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import handy.storage.api.Model;
 import handy.storage.exception.InvalidDatabaseSchemaException;
@@ -18,29 +19,114 @@ import handy.storage.log.DatabaseLog;
 import handy.storage.util.ClassCast;
 
 /**
- * Creates tables for the database.
+ * Creates tables for the database. A model is parsed on demand together with
+ * the models it references, the rest of the models are parsed only when all
+ * tables are needed. Duplicate table names and cyclic references among the
+ * models that haven't been parsed yet are reported then.
  */
 class TablesCreator {
 
 	private final DatabaseConfiguration config;
 	private final DataAdapters dataAdapters;
+	private final Set<Class<?>> registeredModels;
+	// a table is added with all tables it references and bound foreign keys
+	private final Map<Class<?>, TableInfo> parsedTables = new ConcurrentHashMap<>();
+	// guarded by this
+	private final Set<String> tableNames = new HashSet<>();
 
-	TablesCreator(DatabaseConfiguration config, DataAdapters dataAdapters) {
+	TablesCreator(DatabaseConfiguration config, DataAdapters dataAdapters, Collection<Class<? extends Model>> registeredModels) {
 		this.config = config;
 		this.dataAdapters = dataAdapters;
+		this.registeredModels = new HashSet<Class<?>>(registeredModels);
 	}
 
-	List<TableInfo> parseTables(Collection<Class<? extends Model>> registeredModels) {
-		Map<Class<?>, TableInfo> databaseTables = parseModelsData(registeredModels);
-		List<Class<?>> orderedTables = orderTables(databaseTables);
+	/**
+	 * Returns the table of the model. The model and the models it references
+	 * are parsed on the first call.
+	 *
+	 * @return the table or <code>null</code> if the model isn't registered
+	 */
+	TableInfo getTable(Class<?> modelClass) {
+		TableInfo table = parsedTables.get(modelClass);
+		if (table == null && registeredModels.contains(modelClass)) {
+			table = parseReachableTables(modelClass);
+		}
+		return table;
+	}
+
+	/**
+	 * Sets the tables of all registered models loaded instead of parsing
+	 * them.
+	 */
+	synchronized void setTables(List<TableInfo> tables) {
+		for (TableInfo table : tables) {
+			tableNames.add(table.getName());
+			parsedTables.put(table.getOriginClass(), table);
+		}
+	}
+
+	/**
+	 * Parses all registered models.
+	 *
+	 * @return the tables in the creation order
+	 */
+	synchronized List<TableInfo> parseTables() {
+		for (Class<?> modelClass : registeredModels) {
+			if (!parsedTables.containsKey(modelClass)) {
+				parseReachableTables(modelClass);
+			}
+		}
+		List<Class<?>> orderedTables = orderTables(parsedTables.keySet(), parsedTables);
+		DatabaseLog.d("creating the tables in the order:");
 		List<TableInfo> tables = new ArrayList<>(orderedTables.size());
 		for (Class<?> tableClass : orderedTables) {
-			tables.add(databaseTables.get(tableClass));
+			DatabaseLog.d(String.format("%d) %s", tables.size() + 1, tableClass.getName()));
+			tables.add(parsedTables.get(tableClass));
 		}
-		resolveForeignKeys(tables, databaseTables);
 		return tables;
 	}
 
+	/**
+	 * Parses the model and the models it references directly or indirectly
+	 * which haven't been parsed yet.
+	 */
+	@SuppressWarnings("unchecked")
+	private synchronized TableInfo parseReachableTables(Class<?> modelClass) {
+		TableInfo parsedTable = parsedTables.get(modelClass);
+		if (parsedTable != null) {
+			return parsedTable;
+		}
+		Map<Class<?>, TableInfo> newTables = new HashMap<>();
+		Set<String> newTableNames = new HashSet<>(tableNames);
+		LinkedList<Class<?>> queue = new LinkedList<>();
+		queue.add(modelClass);
+		while (!queue.isEmpty()) {
+			Class<?> tableClass = queue.removeFirst();
+			// unregistered references are reported by orderTables()
+			if (!registeredModels.contains(tableClass) || parsedTables.containsKey(tableClass) || newTables.containsKey(tableClass)) {
+				continue;
+			}
+			TableInfo table = TableParser.parseTableFromIModel((Class<? extends Model>) tableClass, config, dataAdapters);
+			addTable(newTables, newTableNames, table);
+			for (ColumnInfo column : table.getColumns()) {
+				if (column.isForeignKey()) {
+					queue.add(column.getReferencedTable());
+				}
+			}
+		}
+		Map<Class<?>, TableInfo> allTables = new HashMap<>(parsedTables);
+		allTables.putAll(newTables);
+		List<Class<?>> orderedTables = orderTables(newTables.keySet(), allTables);
+		List<TableInfo> tables = new ArrayList<>(orderedTables.size());
+		for (Class<?> tableClass : orderedTables) {
+			tables.add(newTables.get(tableClass));
+		}
+		resolveForeignKeys(tables, allTables);
+		tableNames.addAll(newTableNames);
+		parsedTables.putAll(newTables);
+		return newTables.get(modelClass);
+	}
+
 	private void resolveForeignKeys(List<TableInfo> orderedTables, Map<Class<?>, TableInfo> databaseTables) {
 		for (TableInfo table : orderedTables) {
 			for (ColumnInfo column : table.getColumns()) {
@@ -88,16 +174,6 @@ class TablesCreator {
 		ColumnInfo.bindForeignColumn(column, uniqueColumn, referencedTable.getName());
 	}
 
-	private Map<Class<?>, TableInfo> parseModelsData(Collection<Class<? extends Model>> registeredModels) {
-		int size = registeredModels.size();
-		Set<String> tableNames = new HashSet<>(size);
-		Map<Class<?>, TableInfo> databaseTables = new HashMap<>(size);
-		for (Class<? extends Model> modelClass : registeredModels) {
-			addTable(databaseTables, tableNames, TableParser.parseTableFromIModel(modelClass, config, dataAdapters));
-		}
-		return databaseTables;
-	}
-
 	private void addTable(Map<Class<?>, TableInfo> databaseTables, Set<String> tableNames, TableInfo tableInfo) {
 		String tableName = tableInfo.getName();
 		if (!tableNames.contains(tableName)) {
@@ -136,8 +212,12 @@ class TablesCreator {
 		return models;
 	}
 
-	private List<Class<?>> orderTables(final Map<Class<?>, TableInfo> allTables) {
-		Collection<Class<?>> tableClasses = allTables.keySet();
+	/**
+	 * Orders the tables by their dependency levels.
+	 *
+	 * @param allTables these tables and all tables they reference
+	 */
+	private List<Class<?>> orderTables(Collection<Class<?>> tableClasses, final Map<Class<?>, TableInfo> allTables) {
 		for (Class<?> tableClass : tableClasses) {
 			Set<Class<?>> references = getReferencedModels(new LinkedList<>(), tableClass, allTables);
 			if (!references.isEmpty()) {
@@ -160,11 +240,6 @@ class TablesCreator {
 			}
 			return result;
 		});
-		DatabaseLog.d("creating the tables in the order:");
-		int i = 1;
-		for (Class<?> tableClass : sortedTableClasses) {
-			DatabaseLog.d(String.format("%d) %s", i++, tableClass.getName()));
-		}
 		return sortedTableClasses;
 	}
 
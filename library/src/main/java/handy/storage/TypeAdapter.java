@@ -2,6 +2,8 @@ package handy.storage;
 
 import android.content.ContentValues;
 import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteProgram;
 import android.net.Uri;
 import android.text.TextUtils;
 
@@ -9,6 +11,8 @@ import com.google.gson.Gson;
 
 import java.util.Calendar;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
 
 import handy.storage.api.ColumnType;
 
@@ -23,6 +27,8 @@ import handy.storage.api.ColumnType;
  */
 abstract class TypeAdapter<T> {
 
+	private static final String BIND_KEY = "value";
+
 	/**
 	 * This method should transform a passed <code>value</code> to a value that
 	 * should be stored to the database, and then put this new value in the
@@ -62,11 +68,51 @@ abstract class TypeAdapter<T> {
 		return String.valueOf(value);
 	}
 
+	/**
+	 * Binds a value (not <code>null</code>) to the compiled statement the same
+	 * way as {@link #putValue(ContentValues, String, Object)} stores it. The
+	 * default implementation puts the value into a temporary
+	 * {@link ContentValues}.
+	 *
+	 * @param statement statement to bind to
+	 * @param index     index of the parameter (starting with 1)
+	 * @param value     value to bind
+	 */
+	protected void bindValue(SQLiteProgram statement, int index, T value) {
+		ContentValues cv = new ContentValues(1);
+		putValue(cv, BIND_KEY, value);
+		DatabaseUtils.bindObjectToProgram(statement, index, cv.get(BIND_KEY));
+	}
+
 	@SuppressWarnings("unchecked")
 	final void putValueObject(ContentValues cv, String key, Object value) {
 		putValue(cv, key, (T) value);
 	}
 
+	@SuppressWarnings("unchecked")
+	final void bindValueObject(SQLiteProgram statement, int index, Object value) {
+		bindValue(statement, index, (T) value);
+	}
+
+	/**
+	 * Whether the adapter is the built-in one of long, int, short or byte, so
+	 * values of these fields can be bound and read as longs without boxing.
+	 */
+	static boolean isIntegralAdapter(TypeAdapter<?> typeAdapter) {
+		return typeAdapter == LONG_TYPE_ADAPTER
+			|| typeAdapter == INT_TYPE_ADAPTER
+			|| typeAdapter == SHORT_TYPE_ADAPTER
+			|| typeAdapter == BYTE_TYPE_ADAPTER;
+	}
+
+	/**
+	 * Whether the adapter is the built-in one of double or float, so values of
+	 * these fields can be bound and read as doubles without boxing.
+	 */
+	static boolean isFloatingPointAdapter(TypeAdapter<?> typeAdapter) {
+		return typeAdapter == DOUBLE_TYPE_ADAPTER || typeAdapter == FLOAT_TYPE_ADAPTER;
+	}
+
 	/**
 	 * Realization for byte.
 	 */
@@ -77,6 +123,11 @@ abstract class TypeAdapter<T> {
 			cv.put(key, value);
 		}
 
+		@Override
+		public void bindValue(SQLiteProgram statement, int index, Byte value) {
+			statement.bindLong(index, value);
+		}
+
 		@Override
 		public Byte getValue(Cursor cursor, int columnIndex) {
 			return (byte) cursor.getShort(columnIndex);
@@ -99,6 +150,11 @@ abstract class TypeAdapter<T> {
 			cv.put(key, value);
 		}
 
+		@Override
+		public void bindValue(SQLiteProgram statement, int index, Short value) {
+			statement.bindLong(index, value);
+		}
+
 		@Override
 		public Short getValue(Cursor cursor, int columnIndex) {
 			return cursor.getShort(columnIndex);
@@ -121,6 +177,11 @@ abstract class TypeAdapter<T> {
 			cv.put(key, value);
 		}
 
+		@Override
+		public void bindValue(SQLiteProgram statement, int index, Integer value) {
+			statement.bindLong(index, value);
+		}
+
 		@Override
 		public Integer getValue(Cursor cursor, int columnIndex) {
 			return cursor.getInt(columnIndex);
@@ -143,6 +204,11 @@ abstract class TypeAdapter<T> {
 			cv.put(key, value);
 		}
 
+		@Override
+		public void bindValue(SQLiteProgram statement, int index, Long value) {
+			statement.bindLong(index, value);
+		}
+
 		@Override
 		public Long getValue(Cursor cursor, int columnIndex) {
 			return cursor.getLong(columnIndex);
@@ -165,6 +231,11 @@ abstract class TypeAdapter<T> {
 			cv.put(key, value ? 1 : 0);
 		}
 
+		@Override
+		public void bindValue(SQLiteProgram statement, int index, Boolean value) {
+			statement.bindLong(index, value ? 1 : 0);
+		}
+
 		@Override
 		public Boolean getValue(Cursor cursor, int columnIndex) {
 			return cursor.getInt(columnIndex) != 0;
@@ -199,6 +270,11 @@ abstract class TypeAdapter<T> {
 			cv.put(key, value);
 		}
 
+		@Override
+		public void bindValue(SQLiteProgram statement, int index, String value) {
+			statement.bindString(index, value);
+		}
+
 		@Override
 		public String getValue(Cursor cursor, int columnIndex) {
 			return cursor.getString(columnIndex);
@@ -221,6 +297,11 @@ abstract class TypeAdapter<T> {
 			cv.put(key, value);
 		}
 
+		@Override
+		public void bindValue(SQLiteProgram statement, int index, byte[] value) {
+			statement.bindBlob(index, value);
+		}
+
 		@Override
 		public byte[] getValue(Cursor cursor, int columnIndex) {
 			return cursor.getBlob(columnIndex);
@@ -247,6 +328,11 @@ abstract class TypeAdapter<T> {
 			cv.put(key, value);
 		}
 
+		@Override
+		public void bindValue(SQLiteProgram statement, int index, Double value) {
+			statement.bindDouble(index, value);
+		}
+
 		@Override
 		public Double getValue(Cursor cursor, int columnIndex) {
 			return cursor.getDouble(columnIndex);
@@ -268,6 +354,11 @@ abstract class TypeAdapter<T> {
 			cv.put(key, value);
 		}
 
+		@Override
+		public void bindValue(SQLiteProgram statement, int index, Float value) {
+			statement.bindDouble(index, value);
+		}
+
 		@Override
 		public Float getValue(Cursor cursor, int columnIndex) {
 			return cursor.getFloat(columnIndex);
@@ -289,6 +380,11 @@ abstract class TypeAdapter<T> {
 			cv.put(key, value.getTime());
 		}
 
+		@Override
+		public void bindValue(SQLiteProgram statement, int index, Date value) {
+			statement.bindLong(index, value.getTime());
+		}
+
 		@Override
 		public Date getValue(Cursor cursor, int columnIndex) {
 			return new Date(cursor.getLong(columnIndex));
@@ -319,6 +415,11 @@ abstract class TypeAdapter<T> {
 			cv.put(key, value.getTimeInMillis());
 		}
 
+		@Override
+		public void bindValue(SQLiteProgram statement, int index, Calendar value) {
+			statement.bindLong(index, value.getTimeInMillis());
+		}
+
 		@Override
 		public Calendar getValue(Cursor cursor, int columnIndex) {
 			Calendar calendar = Calendar.getInstance();
@@ -362,9 +463,17 @@ abstract class TypeAdapter<T> {
 	static final class EnumTypeAdapter extends TypeAdapter<Enum<?>> {
 
 		private final Class<Enum<?>> enumClass;
+		private final Enum<?>[] constants;
+		private final Map<String, String> ordinalsByName;
 
 		public EnumTypeAdapter(Class<Enum<?>> enumClass) {
 			this.enumClass = enumClass;
+			// getEnumConstants() returns a new copy on each call
+			constants = enumClass.getEnumConstants();
+			ordinalsByName = new HashMap<>(constants.length);
+			for (Enum<?> constant : constants) {
+				ordinalsByName.put(constant.name(), String.valueOf(constant.ordinal()));
+			}
 		}
 
 		@Override
@@ -372,10 +481,15 @@ abstract class TypeAdapter<T> {
 			cv.put(key, value.ordinal());
 		}
 
+		@Override
+		public void bindValue(SQLiteProgram statement, int index, Enum<?> value) {
+			statement.bindLong(index, value.ordinal());
+		}
+
 		@Override
 		public Enum<?> getValue(Cursor cursor, int columnIndex) {
 			int ordinal = cursor.getInt(columnIndex);
-			return enumClass.getEnumConstants()[ordinal];
+			return constants[ordinal];
 		}
 
 		@Override
@@ -385,12 +499,11 @@ abstract class TypeAdapter<T> {
 
 		@Override
 		public String convertValue(Object value) {
-			for (Enum<?> enumValue : enumClass.getEnumConstants()) {
-				if (enumValue == value || enumValue.name().equals(value)) {
-					return String.valueOf(enumValue.ordinal());
-				}
+			if (value instanceof Enum && ((Enum<?>) value).getDeclaringClass() == enumClass) {
+				return String.valueOf(((Enum<?>) value).ordinal());
 			}
-			return super.convertValue(value);
+			String ordinal = value instanceof String ? ordinalsByName.get(value) : null;
+			return ordinal != null ? ordinal : super.convertValue(value);
 		}
 
 	}
@@ -415,6 +528,11 @@ abstract class TypeAdapter<T> {
 			cv.put(key, gson.toJson(value));
 		}
 
+		@Override
+		public void bindValue(SQLiteProgram statement, int index, Object value) {
+			statement.bindString(index, gson.toJson(value));
+		}
+
 		@Override
 		public T getValue(Cursor cursor, int columnIndex) {
 			return gson.fromJson(cursor.getString(columnIndex), objectClass);
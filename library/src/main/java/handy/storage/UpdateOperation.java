@@ -1,17 +1,20 @@
 package handy.storage;
 
 import android.content.ContentValues;
-import android.database.Cursor;
 import android.text.TextUtils;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Future;
 
+import handy.storage.api.Callback;
 import handy.storage.api.ColumnType;
 import handy.storage.api.Update;
 import handy.storage.base.DatabaseAdapter;
-import handy.storage.base.DatabaseAdapter.TransactionControl;
 import handy.storage.base.OnConflictStrategy;
 import handy.storage.exception.ColumnNotFoundException;
 import handy.storage.exception.IllegalUsageException;
@@ -27,20 +30,28 @@ public class UpdateOperation extends BaseOperation<UpdateOperation> implements U
 
 	private final TableInfo tableInfo;
 	private final DataAdapters dataAdapters;
-	private final Expression limitingExpression;
+	private final ColumnInfo keyColumn;
+	private final List<?> keys;
+	private Expression limitingExpression;
 
 	private UpdateValues updateValues = new UpdateValues();
 
 	UpdateOperation(ReadableTable<?> table) {
-		this(table, null);
+		this(table, null, null);
 	}
 
-	UpdateOperation(ReadableTable<?> table, Expression limitingExpression) {
+	/**
+	 * @param keyColumn unique column
+	 * @param keys      values of the column, only the rows with these values
+	 *                  are updated and evicted from the entity cache
+	 */
+	UpdateOperation(ReadableTable<?> table, ColumnInfo keyColumn, List<?> keys) {
 		super(table);
 		Table owner = getOwner();
 		tableInfo = owner.getTableInfo();
 		dataAdapters = owner.getDataAdapters();
-		this.limitingExpression = limitingExpression;
+		this.keyColumn = keyColumn;
+		this.keys = keys;
 	}
 
 	/**
@@ -65,31 +76,64 @@ public class UpdateOperation extends BaseOperation<UpdateOperation> implements U
 	 */
 	@Override
 	public int execute(OnConflictStrategy onConflictStrategy) throws OperationException {
+		return getAsyncExecutors().writeAndWait(() -> executeNow(onConflictStrategy));
+	}
+
+	private int executeNow(OnConflictStrategy onConflictStrategy) throws OperationException {
 		if (updateValues.isEmpty()) {
 			throw new IllegalUsageException("No columns were set to update");
 		}
 		PerformanceTimer.startInterval("update");
-		DatabaseAdapter databaseAdapter = getDatabaseAdapter();
-		int result = 0;
-		Cursor cursor = null;
-		TransactionControl transaction = databaseAdapter.startTransaction();
 		try {
-			String updateQuery = createUpdateQuery(onConflictStrategy);
-			DatabaseLog.d(updateQuery);
-			databaseAdapter.executeSql(updateQuery);
-			cursor = databaseAdapter.rawQuery("SELECT CHANGES() FROM " + tableInfo.getEntity());
-			if (cursor.moveToFirst()) {
-				result = cursor.getInt(0);
+			int chunkSize = ColumnExpressionBuilder.MAX_BOUND_LIST_SIZE;
+			if (keys == null || keys.size() <= chunkSize) {
+				return executeStatement(onConflictStrategy, keys);
 			}
-			transaction.setSuccessful();
-		} finally {
-			if (cursor != null) {
-				cursor.close();
+			int updatedCount = 0;
+			DatabaseAdapter.TransactionControl transactionControl = getDatabaseAdapter().startTransaction();
+			try {
+				for (int start = 0; start < keys.size(); start += chunkSize) {
+					int end = Math.min(start + chunkSize, keys.size());
+					updatedCount += executeStatement(onConflictStrategy, keys.subList(start, end));
+				}
+				transactionControl.setSuccessful();
+			} finally {
+				transactionControl.end();
 			}
-			transaction.end();
+			return updatedCount;
+		} finally {
 			PerformanceTimer.endInterval();
 		}
-		return result;
+	}
+
+	/**
+	 * Updates the rows with these keys or all selected rows if
+	 * <code>statementKeys</code> is <code>null</code>.
+	 */
+	private int executeStatement(OnConflictStrategy onConflictStrategy, List<?> statementKeys) throws OperationException {
+		limitingExpression = statementKeys != null
+			? getOwner().expressions().column(keyColumn.getColumnId().getFullName()).in(statementKeys)
+			: null;
+		List<Object> arguments = new ArrayList<>();
+		String updateQuery = createUpdateQuery(onConflictStrategy, arguments);
+		DatabaseLog.d(updateQuery);
+		int updatedCount = getDatabaseAdapter().executeUpdateDelete(updateQuery, arguments.toArray());
+		String tableName = getOwner().getTableName();
+		if (statementKeys != null && onConflictStrategy != OnConflictStrategy.REPLACE) {
+			getEntityCaches().onRowsChanged(tableName, keyColumn, statementKeys);
+		} else {
+			// any rows might have been changed or replaced
+			getEntityCaches().onTableChanged(tableName);
+		}
+		return updatedCount;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Future<Integer> executeAsync(Callback<? super Integer> callback) {
+		return getAsyncExecutors().write(this::execute, callback);
 	}
 
 	/**
@@ -151,7 +195,7 @@ public class UpdateOperation extends BaseOperation<UpdateOperation> implements U
 		return this;
 	}
 
-	private String createUpdateQuery(OnConflictStrategy onConflictStrategy) {
+	private String createUpdateQuery(OnConflictStrategy onConflictStrategy, List<Object> arguments) {
 		StringBuilder sb = new StringBuilder();
 		sb.append("UPDATE ");
 		if (onConflictStrategy != OnConflictStrategy.DEFAULT) {
@@ -170,12 +214,18 @@ public class UpdateOperation extends BaseOperation<UpdateOperation> implements U
 			}
 			sb.append(column);
 			sb.append(" = ");
-			sb.append(updateValues.getNewValue(column));
+			if (updateValues.isEntity(column)) {
+				sb.append(updateValues.getEntity(column));
+			} else {
+				sb.append('?');
+				arguments.add(updateValues.getValue(column));
+			}
 		}
 		String where = getWhereClause();
 		if (!TextUtils.isEmpty(where)) {
 			sb.append(" WHERE ");
 			sb.append(where);
+			Collections.addAll(arguments, getWhereArguments());
 		}
 		return sb.toString();
 	}
@@ -234,13 +284,16 @@ public class UpdateOperation extends BaseOperation<UpdateOperation> implements U
 			return entitiesMap.keySet();
 		}
 
-		String getNewValue(String column) {
-			String value = contentValues.getAsString(column);
-			if (entitiesMap.get(column)) {
-				return value;
-			} else {
-				return QueryAdapter.wrapString(value);
-			}
+		boolean isEntity(String column) {
+			return entitiesMap.get(column);
+		}
+
+		String getEntity(String column) {
+			return contentValues.getAsString(column);
+		}
+
+		Object getValue(String column) {
+			return contentValues.get(column);
 		}
 
 	}
@@ -0,0 +1,159 @@
+package handy.storage;
+
+import android.text.TextUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import handy.storage.api.Model;
+import handy.storage.api.Upsert;
+import handy.storage.base.OnConflictStrategy;
+import handy.storage.exception.ColumnNotFoundException;
+import handy.storage.exception.IllegalUsageException;
+import handy.storage.exception.OperationException;
+import handy.storage.log.PerformanceTimer;
+
+/**
+ * Implementation of {@link Upsert} with an
+ * <code>INSERT ... ON CONFLICT DO UPDATE</code> statement.
+ *
+ * @param <T> model class
+ */
+public class UpsertOperation<T extends Model> implements Upsert<T> {
+
+	private final WritableTable<T> table;
+	private List<String> conflictColumns;
+	private List<String> updatedColumns;
+
+	UpsertOperation(WritableTable<T> table) {
+		this.table = table;
+		conflictColumns = table.getTableInfo().getPrimaryKeyColumnNames();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Upsert<T> onConflict(String... columns) {
+		List<String> columnList = Arrays.asList(columns);
+		if (!table.getTableInfo().isUniqueKey(columnList)) {
+			throw new IllegalArgumentException("columns " + columnList + " aren't a unique key of table \"" + table.getTableName() + "\"");
+		}
+		conflictColumns = columnList;
+		return this;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public Upsert<T> updateColumns(String... columns) {
+		for (String column : columns) {
+			if (table.getTableInfo().getColumnInfo(column) == null) {
+				throw new ColumnNotFoundException("there is no column \"" + column + "\" in table \"" + table.getTableName() + "\"");
+			}
+		}
+		updatedColumns = Arrays.asList(columns);
+		return this;
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int execute(T object) throws OperationException {
+		return execute(Collections.singletonList(object));
+	}
+
+	/**
+	 * {@inheritDoc}
+	 */
+	@Override
+	public int execute(Collection<T> objects) throws OperationException {
+		return table.getDatabaseCore().getAsyncExecutors().writeAndWait(() -> executeNow(objects));
+	}
+
+	private int executeNow(Collection<T> objects) throws OperationException {
+		if (conflictColumns.isEmpty()) {
+			throw new IllegalUsageException("table \"" + table.getTableName() + "\" has no primary key, set the conflicting columns");
+		}
+		PerformanceTimer.startInterval("upsert");
+		try {
+			ModelStatementBinder<T> binder = table.getStatementBinder();
+			String sql = createUpsertQuery(binder.createInsertQuery(OnConflictStrategy.DEFAULT));
+			int changed = table.getDatabaseAdapter().executeBatch(sql, objects, binder);
+			onRowsChanged(objects);
+			return changed;
+		} finally {
+			PerformanceTimer.endInterval();
+		}
+	}
+
+	private String createUpsertQuery(String insertQuery) {
+		List<String> columns = updatedColumns != null ? updatedColumns : getDefaultUpdatedColumns();
+		StringBuilder sb = new StringBuilder(insertQuery);
+		sb.append(" ON CONFLICT (");
+		sb.append(TextUtils.join(", ", conflictColumns));
+		sb.append(") DO ");
+		if (columns.isEmpty()) {
+			sb.append("NOTHING");
+			return sb.toString();
+		}
+		String tableName = table.getTableName();
+		List<String> assignments = new ArrayList<>(columns.size());
+		List<String> differences = new ArrayList<>(columns.size());
+		for (String column : columns) {
+			assignments.add(column + " = excluded." + column);
+			differences.add(tableName + "." + column + " IS NOT excluded." + column);
+		}
+		sb.append("UPDATE SET ");
+		sb.append(TextUtils.join(", ", assignments));
+		// unchanged rows aren't rewritten
+		sb.append(" WHERE ");
+		sb.append(TextUtils.join(" OR ", differences));
+		return sb.toString();
+	}
+
+	private List<String> getDefaultUpdatedColumns() {
+		TableInfo tableInfo = table.getTableInfo();
+		List<String> columns = new ArrayList<>();
+		for (ColumnInfo column : tableInfo.getColumns()) {
+			if (!column.isPrimaryKeyFlagSet() && !containsIgnoreCase(conflictColumns, column.getName())
+				&& !containsIgnoreCase(tableInfo.getPrimaryKeyColumnNames(), column.getName())) {
+				columns.add(column.getName());
+			}
+		}
+		return columns;
+	}
+
+	private static boolean containsIgnoreCase(List<String> names, String name) {
+		for (String item : names) {
+			if (item.equalsIgnoreCase(name)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Evicts the updated rows from the entity cache.
+	 */
+	private void onRowsChanged(Collection<T> objects) {
+		EntityCaches entityCaches = table.getDatabaseCore().getEntityCaches();
+		if (entityCaches.isEmpty()) {
+			return;
+		}
+		ColumnInfo primaryKey = table.getTableInfo().getPrimaryKeyColumn();
+		if (primaryKey != null && primaryKey.getField() != null
+			&& conflictColumns.size() == 1 && conflictColumns.get(0).equalsIgnoreCase(primaryKey.getName())) {
+			entityCaches.onRowsChanged(table.getTableName(), primaryKey, table.getColumnValues(objects, primaryKey));
+		} else {
+			// the updated rows are found by other columns
+			entityCaches.onTableChanged(table.getTableName());
+		}
+	}
+
+}
@@ -2,46 +2,40 @@ package handy.storage;
 
 import android.content.ContentValues;
 
-import java.lang.reflect.Field;
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.Future;
 
-import handy.storage.ColumnInfo.ColumnId;
+import handy.storage.api.Callback;
 import handy.storage.api.Delete;
 import handy.storage.api.Model;
 import handy.storage.api.Select;
 import handy.storage.api.Update;
+import handy.storage.api.Upsert;
 import handy.storage.base.DatabaseAdapter;
 import handy.storage.base.OnConflictStrategy;
 import handy.storage.base.QueryParams;
 import handy.storage.exception.ConstraintFailedException;
 import handy.storage.exception.OperationException;
 import handy.storage.log.PerformanceTimer;
-import handy.storage.util.ReflectionUtils;
+import handy.storage.util.FieldAccessor;
 
 /**
- * Represents database table.
+ * Represents database table. The instances are immutable and shared.
  *
  * @param <T> model class
  */
 public class WritableTable<T extends Model> extends ReadableTable<T> {
 
-	private boolean setIdOnInsert = true;
-
-	WritableTable(Class<T> modelClass, TableInfo tableInfo, DatabaseAdapter databaseAdapter, DatabaseCore databaseCore) {
-		super(modelClass, tableInfo, databaseAdapter, databaseCore, QueryParams.DEFAULT_FACTORY);
-		setIdOnInsert = databaseCore.getConfiguration().setIdOnInsertByDefault();
+	WritableTable(TablePlan<T> plan, DatabaseAdapter databaseAdapter, DatabaseCore databaseCore) {
+		super(plan, databaseAdapter, databaseCore, QueryParams.DEFAULT_FACTORY);
 	}
 
-	/**
-	 * Enables/disables setting rowids to objects after insertion.
-	 */
-	public void setIdOnInsert(boolean set) {
-		setIdOnInsert = set;
+	private boolean setIdOnInsertByDefault() {
+		return getDatabaseCore().getConfiguration().setIdOnInsertByDefault();
 	}
 
 	/**
@@ -67,6 +61,31 @@ public class WritableTable<T extends Model> extends ReadableTable<T> {
 		return insert(objects, OnConflictStrategy.DEFAULT);
 	}
 
+	/**
+	 * Inserts the object (with the default on conflict strategy) in background
+	 * on the write executor set by
+	 * {@link DatabaseBuilder#setWriteExecutor(java.util.concurrent.Executor)}.
+	 *
+	 * @param object   object to insert
+	 * @param callback callback getting the rowid or <code>null</code>
+	 * @return the future rowid
+	 */
+	public Future<Long> insertAsync(T object, Callback<? super Long> callback) {
+		return getDatabaseCore().getAsyncExecutors().write(() -> insert(object), callback);
+	}
+
+	/**
+	 * Inserts the objects (with the default on conflict strategy) in a single
+	 * transaction in background on the write executor.
+	 *
+	 * @param objects  objects to insert
+	 * @param callback callback getting the rowids or <code>null</code>
+	 * @return the future list of rowids
+	 */
+	public Future<List<Long>> insertAsync(Collection<T> objects, Callback<? super List<Long>> callback) {
+		return getDatabaseCore().getAsyncExecutors().write(() -> insert(objects), callback);
+	}
+
 	/**
 	 * Inserts the object in the table, replaces all old conflicting rows and
 	 * returns its rowid.
@@ -98,6 +117,23 @@ public class WritableTable<T extends Model> extends ReadableTable<T> {
 	 * @throws OperationException if any error happen
 	 */
 	public long insert(T object, OnConflictStrategy onConflictStrategy) throws OperationException {
+		return insert(object, onConflictStrategy, setIdOnInsertByDefault());
+	}
+
+	/**
+	 * Inserts the object with the specified on conflict strategy in the table
+	 * and returns its rowid.
+	 *
+	 * @param object object to insert
+	 * @param setId  whether the rowid is set to the object after insertion,
+	 *               overrides {@link DatabaseBuilder#setIdOnInsertByDefault(boolean)}
+	 * @throws OperationException if any error happen
+	 */
+	public long insert(T object, OnConflictStrategy onConflictStrategy, boolean setId) throws OperationException {
+		return getDatabaseCore().getAsyncExecutors().writeAndWait(() -> insertObject(object, onConflictStrategy, setId));
+	}
+
+	private long insertObject(T object, OnConflictStrategy onConflictStrategy, boolean setId) throws OperationException {
 		PerformanceTimer.startInterval("insertWithOnConflict, single object");
 		PerformanceTimer.startInterval("convert model to ContentValues");
 		ContentValues cv = getContentValuesParser().parseContentValues(object);
@@ -108,9 +144,12 @@ public class WritableTable<T extends Model> extends ReadableTable<T> {
 		} else {
 			id = getDatabaseAdapter().insert(getTableName(), cv, onConflictStrategy);
 		}
-		if (setIdOnInsert) {
+		if (setId) {
 			setIdToObjects(Collections.singleton(object), Collections.singletonList(id));
 		}
+		if (onConflictStrategy == OnConflictStrategy.REPLACE) {
+			onRowsReplaced(Collections.singleton(object));
+		}
 		PerformanceTimer.endInterval();
 		return id;
 	}
@@ -124,36 +163,64 @@ public class WritableTable<T extends Model> extends ReadableTable<T> {
 	 * @throws OperationException if any error happen
 	 */
 	public List<Long> insert(Collection<T> objects, OnConflictStrategy onConflictStrategy) throws OperationException {
-		PerformanceTimer.startInterval("insertWithOnConflict, collection of objects");
-		PerformanceTimer.startInterval("convert " + objects.size() + " models to ContentValues");
-		ContentValuesParser<T> contentValuesParser = getContentValuesParser();
-		List<ContentValues> modelsContentValues = new ArrayList<>(objects.size());
-		for (T object : objects) {
-			modelsContentValues.add(contentValuesParser.parseContentValues(object));
-		}
-		PerformanceTimer.endInterval();
-		List<Long> result;
-		if (onConflictStrategy == OnConflictStrategy.DEFAULT) {
-			result = getDatabaseAdapter().insert(getTableName(), modelsContentValues);
-		} else {
-			result = getDatabaseAdapter().insert(getTableName(), modelsContentValues, onConflictStrategy);
-		}
-		if (setIdOnInsert) {
+		return insert(objects, onConflictStrategy, setIdOnInsertByDefault());
+	}
+
+	/**
+	 * Inserts the objects with the specified on conflict strategy in the table
+	 * in a single transaction and returns the list of their rowids.
+	 *
+	 * @param objects objects to insert
+	 * @param setId   whether the rowids are set to the objects after
+	 *                insertion, overrides
+	 *                {@link DatabaseBuilder#setIdOnInsertByDefault(boolean)}
+	 * @throws OperationException if any error happen
+	 */
+	public List<Long> insert(Collection<T> objects, OnConflictStrategy onConflictStrategy, boolean setId) throws OperationException {
+		return getDatabaseCore().getAsyncExecutors().writeAndWait(() -> insertObjects(objects, onConflictStrategy, setId));
+	}
+
+	private List<Long> insertObjects(Collection<T> objects, OnConflictStrategy onConflictStrategy, boolean setId) throws OperationException {
+		PerformanceTimer.startInterval("insert with compiled statement, collection of objects");
+		ModelStatementBinder<T> binder = getStatementBinder();
+		List<Long> result = getDatabaseAdapter().insert(getInsertQuery(onConflictStrategy), objects, binder, onConflictStrategy);
+		if (setId) {
 			setIdToObjects(objects, result);
 		}
+		if (onConflictStrategy == OnConflictStrategy.REPLACE) {
+			onRowsReplaced(objects);
+		}
 		PerformanceTimer.endInterval();
 		return result;
 	}
 
+	ModelStatementBinder<T> getStatementBinder() {
+		return getPlan().getStatementBinder();
+	}
+
+	private String getInsertQuery(OnConflictStrategy onConflictStrategy) {
+		return getPlan().getInsertQuery(onConflictStrategy);
+	}
+
+	/**
+	 * Sets the rowids to the objects. Inside a transaction the old values are
+	 * restored if it's rolled back, so the objects can be inserted again.
+	 */
 	private void setIdToObjects(Collection<T> objects, List<Long> ids) {
 		ColumnInfo rowIdColumn = getTableInfo().getRowIdColumn();
 		if (rowIdColumn != null) {
-			Field field = rowIdColumn.getField();
+			FieldAccessor field = rowIdColumn.getFieldAccessor();
+			DatabaseAdapter databaseAdapter = getDatabaseAdapter();
+			boolean inTransaction = databaseAdapter.isInWriteTransaction() && databaseAdapter.isWriterHeldByCurrentThread();
 			Iterator<Long> idIterator = ids.iterator();
 			for (T object : objects) {
 				long id = idIterator.next();
 				if (id != -1) {
-					ReflectionUtils.setFieldValue(field, object, id);
+					if (inTransaction) {
+						Object oldId = field.get(object);
+						getDatabaseCore().addRollbackAction(() -> field.set(object, oldId));
+					}
+					field.set(object, id);
 				}
 			}
 		}
@@ -191,7 +258,9 @@ public class WritableTable<T extends Model> extends ReadableTable<T> {
 
 	/**
 	 * Deletes these objects from the table. You must declare at least one
-	 * unique (or primary key) column in this table to use this method.
+	 * unique (or primary key) column in this table to use this method. A large
+	 * collection is deleted in several statements with bound keys within a
+	 * single transaction.
 	 *
 	 * @param elements objects to delete
 	 * @return the number of the deleted rows
@@ -200,8 +269,31 @@ public class WritableTable<T extends Model> extends ReadableTable<T> {
 	public int delete(Collection<T> elements) throws OperationException {
 		ColumnInfo uniqueColumn = getUniqueColumnOrThrow();
 		List<Object> uniqueColumnValues = getColumnValues(elements, uniqueColumn);
-		ColumnId uniqueColumnId = uniqueColumn.getColumnId();
-		return delete().where(uniqueColumnId.getName()).in(uniqueColumnValues).execute();
+		int chunkSize = ColumnExpressionBuilder.MAX_BOUND_LIST_SIZE;
+		if (uniqueColumnValues.size() <= chunkSize) {
+			return deleteKeys(uniqueColumn, uniqueColumnValues);
+		}
+		PerformanceTimer.startInterval("delete collection of objects in chunks");
+		int deleted = 0;
+		DatabaseAdapter.TransactionControl transactionControl = getDatabaseAdapter().startTransaction();
+		try {
+			for (int start = 0; start < uniqueColumnValues.size(); start += chunkSize) {
+				int end = Math.min(start + chunkSize, uniqueColumnValues.size());
+				deleted += deleteKeys(uniqueColumn, uniqueColumnValues.subList(start, end));
+			}
+			transactionControl.setSuccessful();
+		} finally {
+			transactionControl.end();
+		}
+		PerformanceTimer.endInterval();
+		return deleted;
+	}
+
+	private int deleteKeys(ColumnInfo column, List<Object> keys) throws OperationException {
+		return new DeleteOperation<>(this)
+			.setDeletedKeys(column, keys)
+			.where(column.getColumnId().getName()).in(keys)
+			.execute();
 	}
 
 	/**
@@ -226,6 +318,36 @@ public class WritableTable<T extends Model> extends ReadableTable<T> {
 		return delete().where(expressions().exclude(selectToKeep)).execute();
 	}
 
+	/**
+	 * Starts an upsert operation inserting objects or updating the rows they
+	 * conflict with.
+	 */
+	public Upsert<T> upsert() {
+		return new UpsertOperation<>(this);
+	}
+
+	/**
+	 * Inserts the object or updates the row with the same primary key, see
+	 * {@link Upsert}.
+	 *
+	 * @return the number of inserted or updated rows
+	 * @throws OperationException if any error happen
+	 */
+	public int upsert(T object) throws OperationException {
+		return upsert().execute(object);
+	}
+
+	/**
+	 * Inserts the objects or updates the rows with the same primary keys in
+	 * one transaction, see {@link Upsert}.
+	 *
+	 * @return the number of inserted or updated rows
+	 * @throws OperationException if any error happen
+	 */
+	public int upsert(Collection<T> objects) throws OperationException {
+		return upsert().execute(objects);
+	}
+
 	/**
 	 * Starts an update operation.
 	 */
@@ -242,7 +364,7 @@ public class WritableTable<T extends Model> extends ReadableTable<T> {
 	 */
 	@SuppressWarnings("unchecked")
 	public Update update(T... objects) {
-		return new UpdateOperation(this, expressions().oneOf(objects));
+		return update(Arrays.asList(objects));
 	}
 
 	/**
@@ -250,10 +372,35 @@ public class WritableTable<T extends Model> extends ReadableTable<T> {
 	 * these <code>objects</code>. The <code>objects</code> itself won't be
 	 * changed; if you need to get the updated values - use the selection
 	 * operations. You must declare at least one unique (or primary key) column
-	 * in this table to use this method.
+	 * in this table to use this method. A large collection is updated in
+	 * several statements with bound keys within a single transaction.
 	 */
 	public Update update(Collection<T> objects) {
-		return new UpdateOperation(this, expressions().oneOf(objects));
+		ColumnInfo uniqueColumn = getUniqueColumnOrThrow();
+		return new UpdateOperation(this, uniqueColumn, getColumnValues(objects, uniqueColumn));
+	}
+
+	@Override
+	EntityCache getEntityCache() {
+		return getDatabaseCore().getEntityCaches().get(getTableName());
+	}
+
+	/**
+	 * Evicts the rows replaced by inserting these objects from the entity
+	 * cache.
+	 */
+	private void onRowsReplaced(Collection<T> objects) {
+		EntityCaches entityCaches = getDatabaseCore().getEntityCaches();
+		if (entityCaches.isEmpty()) {
+			return;
+		}
+		ColumnInfo primaryKey = getTableInfo().getPrimaryKeyColumn();
+		if (primaryKey == null || primaryKey.getField() == null || getTableInfo().hasUniqueRestrictions()) {
+			// rows conflicting by other unique columns are replaced too
+			entityCaches.onTableChanged(getTableName());
+		} else {
+			entityCaches.onRowsChanged(getTableName(), primaryKey, getColumnValues(objects, primaryKey));
+		}
 	}
 
 }
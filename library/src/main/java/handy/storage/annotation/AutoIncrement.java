@@ -20,8 +20,8 @@ import java.lang.annotation.Target;
  * with an automatically generated unique positive number. This number will be
  * set to this field in runtime if <code>setIdsOnInsert</code> isn't disabled
  * (see {@link DatabaseBuilder#setIdOnInsertByDefault(boolean)},
- * {@link WritableTable#setIdOnInsert(boolean)}, this functionality is enabled
- * by default).
+ * {@link WritableTable#insert(handy.storage.api.Model, handy.storage.base.OnConflictStrategy, boolean)},
+ * this functionality is enabled by default).
  * </p>
  */
 @Retention(RetentionPolicy.RUNTIME)
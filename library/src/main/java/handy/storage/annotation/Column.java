@@ -27,7 +27,7 @@ import java.lang.annotation.Target;
  * <p>
  * In a database table's column declaration you can also use {@link PrimaryKey},
  * {@link AutoIncrement}, {@link ForeignKey}, {@link GsonSerializable},
- * {@link Reference}, {@link NotNull}, {@link Unique} annotations. For models,
+ * {@link Reference}, {@link NotNull}, {@link Unique}, {@link Index} annotations. For models,
  * that are only read from the database, you can also use {@link AliasFor} and
  * {@link FunctionResult}.
  * </p>
@@ -0,0 +1,47 @@
+package handy.storage.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Declares an index on a set of columns. If you need to declare multiple
+ * composite indexes for a model, use {@link CompositeIndexes} annotation.
+ *
+ * @see Index
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface CompositeIndex {
+
+	/**
+	 * Array of column names from this table in the index order.
+	 */
+	String[] columns();
+
+	/**
+	 * Name of the index, unique for the table. The column names joined with
+	 * "_" are used by default. The database name of the index is
+	 * <code>index_&lt;table name&gt;_&lt;name&gt;</code>.
+	 */
+	String name() default "";
+
+	/**
+	 * Columns (from {@link #columns()}) whose values are sorted in the
+	 * descending order.
+	 */
+	String[] descending() default {};
+
+	/**
+	 * Whether the index should be UNIQUE.
+	 */
+	boolean unique() default false;
+
+	/**
+	 * SQL expression restricting the rows included in the index (partial
+	 * index), requires Android 5.0 or higher. Empty by default.
+	 */
+	String where() default "";
+
+}
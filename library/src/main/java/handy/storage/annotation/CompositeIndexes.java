@@ -0,0 +1,18 @@
+package handy.storage.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Wrapper for multiple {@link CompositeIndex} annotations. Don't use it
+ * simultaneously with a separate {@link CompositeIndex}.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface CompositeIndexes {
+
+	CompositeIndex[] value();
+
+}
@@ -0,0 +1,41 @@
+package handy.storage.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Declares an index on this column. The index is created together with the
+ * table and updated on database upgrade.
+ *
+ * @see CompositeIndex
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+public @interface Index {
+
+	/**
+	 * Name of the index, unique for the table. The column's name is used by
+	 * default. The database name of the index is
+	 * <code>index_&lt;table name&gt;_&lt;name&gt;</code>.
+	 */
+	String name() default "";
+
+	/**
+	 * Whether the column values are sorted in the descending order.
+	 */
+	boolean descending() default false;
+
+	/**
+	 * Whether the index should be UNIQUE.
+	 */
+	boolean unique() default false;
+
+	/**
+	 * SQL expression restricting the rows included in the index (partial
+	 * index), requires Android 5.0 or higher. Empty by default.
+	 */
+	String where() default "";
+
+}
@@ -0,0 +1,20 @@
+package handy.storage.api;
+
+/**
+ * Gets the result of an asynchronous operation.
+ *
+ * @param <R> type of the result
+ */
+public interface Callback<R> {
+
+	/**
+	 * Called when the operation has completed successfully.
+	 */
+	void onResult(R result);
+
+	/**
+	 * Called when the operation has thrown an exception.
+	 */
+	void onError(Exception e);
+
+}
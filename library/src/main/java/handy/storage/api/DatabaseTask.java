@@ -0,0 +1,22 @@
+package handy.storage.api;
+
+import handy.storage.Database;
+import handy.storage.exception.OperationException;
+
+/**
+ * Database operations to execute in background, see
+ * {@link Database#readAsync(DatabaseTask, Callback)}.
+ *
+ * @param <R> type of the result
+ */
+public interface DatabaseTask<R> {
+
+	/**
+	 * Performs the operations and returns their result.
+	 *
+	 * @param database Database instance
+	 * @throws OperationException if any error happen
+	 */
+	R perform(Database database) throws OperationException;
+
+}
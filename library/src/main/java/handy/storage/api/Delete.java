@@ -1,5 +1,7 @@
 package handy.storage.api;
 
+import java.util.concurrent.Future;
+
 import handy.storage.DeleteOperation;
 import handy.storage.Expression;
 import handy.storage.base.Order;
@@ -27,6 +29,16 @@ public interface Delete<T extends Model> {
 	 */
 	int executeSafely();
 
+	/**
+	 * Executes the operation in background on the write executor set by
+	 * {@link handy.storage.DatabaseBuilder#setWriteExecutor(java.util.concurrent.Executor)}.
+	 *
+	 * @param callback callback getting the number of the deleted rows or
+	 *                 <code>null</code>
+	 * @return the future number of the deleted rows
+	 */
+	Future<Integer> executeAsync(Callback<? super Integer> callback);
+
 	/**
 	 * Builds a filtering expression for this operation.
 	 *
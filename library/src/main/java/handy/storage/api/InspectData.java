@@ -1,5 +1,7 @@
 package handy.storage.api;
 
+import java.util.concurrent.Future;
+
 import handy.storage.Expression;
 import handy.storage.InspectDataOperation;
 import handy.storage.exception.OperationException;
@@ -36,6 +38,36 @@ public interface InspectData {
 	 */
 	boolean existsSafely();
 
+	/**
+	 * Returns a {@link LiveQuery} counting the rows satisfying the filter
+	 * whenever the table is changed.
+	 */
+	LiveQuery<Integer> liveCount();
+
+	/**
+	 * Returns a {@link LiveQuery} checking if there are any data satisfying
+	 * the filter whenever the table is changed.
+	 */
+	LiveQuery<Boolean> liveExists();
+
+	/**
+	 * Counts the rows satisfying the filter in background on the read
+	 * executor.
+	 *
+	 * @param callback callback getting the result or <code>null</code>
+	 * @return the future result
+	 */
+	Future<Integer> countAsync(Callback<? super Integer> callback);
+
+	/**
+	 * Checks in background on the read executor if there are any data
+	 * satisfying the filter.
+	 *
+	 * @param callback callback getting the result or <code>null</code>
+	 * @return the future result
+	 */
+	Future<Boolean> existsAsync(Callback<? super Boolean> callback);
+
 	/**
 	 * Returns the largest value of column satisfying the filter. Returns <code>null</code> if there is no such values (or they all are <code>null</code>).
 	 *
@@ -0,0 +1,17 @@
+package handy.storage.api;
+
+/**
+ * Handles objects read by a select operation one by one.
+ *
+ * @param <T> type of objects
+ */
+public interface ItemHandler<T> {
+
+	/**
+	 * Called for every object of the result.
+	 *
+	 * @param item an object read from the database
+	 */
+	void handle(T item);
+
+}
@@ -0,0 +1,50 @@
+package handy.storage.api;
+
+/**
+ * A query that keeps its last result and executes again in background when
+ * any table it reads from is changed. The query doesn't run while it has no
+ * observers. The operation it's created from mustn't be changed afterwards.
+ *
+ * @param <R> type of the result
+ */
+public interface LiveQuery<R> {
+
+	/**
+	 * Gets the results of a {@link LiveQuery}.
+	 *
+	 * @param <R> type of the result
+	 */
+	interface Observer<R> {
+
+		/**
+		 * Called in a background thread with a new result of the query.
+		 */
+		void onResult(R result);
+
+	}
+
+	/**
+	 * Returns the last result or <code>null</code> if the query hasn't been
+	 * executed yet.
+	 */
+	R getResult();
+
+	/**
+	 * Registers the observer. The first observer starts tracking the changes
+	 * and executes the query, the following ones get the last result right
+	 * away.
+	 */
+	void addObserver(Observer<? super R> observer);
+
+	/**
+	 * Unregisters the observer. Tracking the changes stops when there are no
+	 * observers left.
+	 */
+	void removeObserver(Observer<? super R> observer);
+
+	/**
+	 * Executes the query again even if the tables haven't changed.
+	 */
+	void refresh();
+
+}
@@ -1,6 +1,7 @@
 package handy.storage.api;
 
 import java.util.Map;
+import java.util.concurrent.Future;
 
 import handy.storage.Expression;
 import handy.storage.MappingOperation;
@@ -26,6 +27,21 @@ public interface Mapping<K, V> extends DataSelection<Mapping<K, V>> {
 	 */
 	Map<K, V> executeSafely();
 
+	/**
+	 * Returns a {@link LiveQuery} executing this operation again whenever
+	 * any table it reads from is changed.
+	 */
+	LiveQuery<Map<K, V>> live();
+
+	/**
+	 * Executes the operation in background on the read executor set by
+	 * {@link handy.storage.DatabaseBuilder#setReadExecutor(java.util.concurrent.Executor)}.
+	 *
+	 * @param callback callback getting the result or <code>null</code>
+	 * @return the future result
+	 */
+	Future<Map<K, V>> executeAsync(Callback<? super Map<K, V>> callback);
+
 	/**
 	 * Builds a filtering expression for this operation.
 	 *
@@ -10,7 +10,9 @@ package handy.storage.api;
 public interface ObjectCreator<T> {
 
 	/**
-	 * Creates an object corresponding to the values read from a cursor
+	 * Creates an object corresponding to the values read from a cursor. The
+	 * <code>values</code> instance is reused for the next rows, so don't keep
+	 * a reference to it.
 	 *
 	 * @param values values read from a cursor
 	 * @return an objects corresponding to the <code>values</code>
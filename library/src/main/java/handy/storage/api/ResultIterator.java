@@ -0,0 +1,21 @@
+package handy.storage.api;
+
+import java.io.Closeable;
+import java.util.Iterator;
+
+/**
+ * Iterator over the result of a select operation, reading objects from an
+ * open cursor one by one. The cursor is closed when the iteration reaches its
+ * end, call {@link #close()} if you stop earlier.
+ *
+ * @param <T> type of objects
+ */
+public interface ResultIterator<T> extends Iterator<T>, Closeable {
+
+	/**
+	 * Closes the underlying cursor. Does nothing if it is already closed.
+	 */
+	@Override
+	void close();
+
+}
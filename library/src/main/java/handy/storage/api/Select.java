@@ -1,6 +1,8 @@
 package handy.storage.api;
 
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.Future;
 
 import handy.storage.Expression;
 import handy.storage.SelectOperation;
@@ -46,6 +48,48 @@ public interface Select<T> extends Iterable<T>, DataSelection<Select<T>> {
 	 */
 	List<T> executeSafely();
 
+	/**
+	 * Executes the operation and returns an iterator reading the objects from
+	 * the open cursor one by one, so the whole result is never held in memory.
+	 * Referenced models are loaded in windows of limited size. The iterator
+	 * must be closed if it isn't iterated to the end.
+	 *
+	 * @throws OperationException if any error happen
+	 */
+	ResultIterator<T> openIterator() throws OperationException;
+
+	/**
+	 * Executes the operation and passes the objects to the
+	 * <code>handler</code> one by one, reading them from the open cursor.
+	 *
+	 * @throws OperationException if any error happen
+	 */
+	void forEachItem(ItemHandler<? super T> handler) throws OperationException;
+
+	/**
+	 * Returns a {@link LiveQuery} executing this operation again whenever
+	 * any table it reads from is changed.
+	 */
+	LiveQuery<List<T>> live();
+
+	/**
+	 * Executes the operation in background on the read executor set by
+	 * {@link handy.storage.DatabaseBuilder#setReadExecutor(java.util.concurrent.Executor)}.
+	 *
+	 * @param callback callback getting the result or <code>null</code>
+	 * @return the future result
+	 */
+	Future<List<T>> executeAsync(Callback<? super List<T>> callback);
+
+	/**
+	 * Executes the operation and returns an iterator over the loaded list, an
+	 * empty iterator is returned if any error happen. Use
+	 * {@link #openIterator()} or {@link #forEachItem(ItemHandler)} to read a
+	 * large result without holding it in memory.
+	 */
+	@Override
+	Iterator<T> iterator();
+
 	/**
 	 * Marks that only unique objects should be returned.
 	 *
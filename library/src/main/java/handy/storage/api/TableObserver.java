@@ -0,0 +1,24 @@
+package handy.storage.api;
+
+import java.util.Set;
+
+import handy.storage.Database;
+
+/**
+ * Gets notified about committed changes of the database tables. Use
+ * {@link Database#addTableObserver(TableObserver, Class[])} to register it.
+ */
+public interface TableObserver {
+
+	/**
+	 * Called once after each committed transaction (or a single statement
+	 * executed outside a transaction) that has changed any of the observed
+	 * tables. It's called in the thread that has performed the changes, so
+	 * long work should be moved to another thread.
+	 *
+	 * @param tables models of the observed tables that have been changed
+	 *               or may contain changed referenced objects
+	 */
+	void onTablesChanged(Set<Class<? extends Model>> tables);
+
+}
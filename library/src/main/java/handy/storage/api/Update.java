@@ -1,5 +1,7 @@
 package handy.storage.api;
 
+import java.util.concurrent.Future;
+
 import handy.storage.Expression;
 import handy.storage.UpdateOperation;
 import handy.storage.base.OnConflictStrategy;
@@ -88,4 +90,15 @@ public interface Update {
 	 */
 	int executeSafely(OnConflictStrategy onConflict);
 
+	/**
+	 * Executes this operation with default {@link OnConflictStrategy} in
+	 * background on the write executor set by
+	 * {@link handy.storage.DatabaseBuilder#setWriteExecutor(java.util.concurrent.Executor)}.
+	 *
+	 * @param callback callback getting the number of affected rows or
+	 *                 <code>null</code>
+	 * @return the future number of affected rows
+	 */
+	Future<Integer> executeAsync(Callback<? super Integer> callback);
+
 }
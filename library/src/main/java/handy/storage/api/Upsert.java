@@ -0,0 +1,57 @@
+package handy.storage.api;
+
+import java.util.Collection;
+
+import handy.storage.exception.OperationException;
+
+/**
+ * Inserts objects or updates the rows they conflict with, keeping the rowids
+ * of the updated rows (unlike {@link handy.storage.base.OnConflictStrategy#REPLACE},
+ * which deletes the conflicting rows). Generated ids aren't set to the
+ * inserted objects. Requires SQLite 3.24 (Android 11) or newer.
+ *
+ * @param <T> model class
+ */
+public interface Upsert<T extends Model> {
+
+	/**
+	 * Sets the columns whose values conflict: the primary key, a unique
+	 * column or a set of columns declared with
+	 * {@link handy.storage.annotation.CompositeUnique}. The primary key is
+	 * used by default.
+	 *
+	 * @param columns names of the columns
+	 * @return this object
+	 * @throws IllegalArgumentException if the columns aren't a unique key
+	 */
+	Upsert<T> onConflict(String... columns);
+
+	/**
+	 * Sets the columns updated in the conflicting rows. By default all
+	 * columns are updated except the primary key and the conflicting columns.
+	 * If no columns are passed, the conflicting rows stay untouched. A row is
+	 * updated only if any of these columns has a different value.
+	 *
+	 * @param columns names of the columns
+	 * @return this object
+	 */
+	Upsert<T> updateColumns(String... columns);
+
+	/**
+	 * Inserts the object or updates the conflicting row.
+	 *
+	 * @return the number of inserted or updated rows
+	 * @throws OperationException if any error happen
+	 */
+	int execute(T object) throws OperationException;
+
+	/**
+	 * Inserts the objects or updates the conflicting rows in one transaction
+	 * with one compiled statement.
+	 *
+	 * @return the number of inserted or updated rows
+	 * @throws OperationException if any error happen
+	 */
+	int execute(Collection<T> objects) throws OperationException;
+
+}
@@ -0,0 +1,15 @@
+package handy.storage.base;
+
+/**
+ * Gets notified when a transaction is committed.
+ */
+public interface CommitListener {
+
+	/**
+	 * Called after the outermost transaction marked successful has ended or
+	 * after a statement changing a table has been executed outside a
+	 * transaction. The database isn't locked during the call.
+	 */
+	void onCommit();
+
+}
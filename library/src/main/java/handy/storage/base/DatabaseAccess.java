@@ -2,29 +2,36 @@ package handy.storage.base;
 
 import android.database.sqlite.SQLiteOpenHelper;
 
-import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
 /**
- * Manages access to the database.
+ * Manages access to the database. All writes and transactions go through a
+ * single writer. If concurrent reads are enabled, queries performed outside of
+ * the writer's transactions use a shared reader and don't wait for the writer
+ * (with write-ahead logging they are run on separate read connections).
  */
 class DatabaseAccess {
 
 	private final SQLiteOpenHelper openHelper;
-	private final Lock lock = new ReentrantLock();
+	private final ReentrantLock lock = new ReentrantLock();
+	private final SQLiteDatabaseAdapter readAccess;
+	private final StatementCache statementCache;
 
 	private SQLiteDatabaseAdapter currentDataAccess;
 	private int count = 0;
 
-	DatabaseAccess(SQLiteOpenHelper openHelper) {
+	DatabaseAccess(SQLiteOpenHelper openHelper, boolean concurrentReads, int statementCacheSize) {
 		this.openHelper = openHelper;
+		// statements can't be shared between concurrent readers, so only the writer caches them
+		readAccess = concurrentReads ? new SQLiteDatabaseAdapter(openHelper, null) : null;
+		statementCache = new StatementCache(statementCacheSize);
 	}
 
 	SQLiteDatabaseAdapter acquireDataAccess() {
 		lock.lock();
 		count++;
 		if (currentDataAccess == null) {
-			currentDataAccess = new SQLiteDatabaseAdapter(openHelper);
+			currentDataAccess = new SQLiteDatabaseAdapter(openHelper, statementCache);
 		}
 		return currentDataAccess;
 	}
@@ -39,6 +46,35 @@ class DatabaseAccess {
 		}
 	}
 
+	SQLiteDatabaseAdapter acquireReadAccess() {
+		if (readThroughWriter()) {
+			return acquireDataAccess();
+		}
+		return readAccess;
+	}
+
+	void releaseReadAccess() {
+		if (readThroughWriter()) {
+			releaseDataAccess();
+		}
+	}
+
+	/**
+	 * Reads inside a transaction must see its changes, so they always go
+	 * through the writer.
+	 */
+	private boolean readThroughWriter() {
+		return readAccess == null || lock.isHeldByCurrentThread();
+	}
+
+	boolean isHeldByCurrentThread() {
+		return lock.isHeldByCurrentThread();
+	}
+
+	StatementCache getStatementCache() {
+		return statementCache;
+	}
+
 	SQLiteDatabaseAdapter continueLastDataAccess() {
 		return currentDataAccess;
 	}
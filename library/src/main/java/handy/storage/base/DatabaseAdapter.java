@@ -5,7 +5,10 @@ import android.database.Cursor;
 import android.database.sqlite.SQLiteOpenHelper;
 import android.os.Looper;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import handy.storage.exception.IllegalUsageException;
 import handy.storage.exception.OperationException;
@@ -17,12 +20,58 @@ import handy.storage.log.DatabaseLog;
  */
 public final class DatabaseAdapter {
 
+	/**
+	 * Default maximum number of cached compiled statements.
+	 */
+	public static final int DEFAULT_STATEMENT_CACHE_SIZE = 25;
+
+	private static final Pattern CHANGED_TABLE_PATTERN = Pattern.compile(
+		"^\\s*(?:(?:INSERT|REPLACE)(?:\\s+OR\\s+\\w+)?\\s+INTO|UPDATE(?:\\s+OR\\s+\\w+)?|DELETE\\s+FROM)\\s+([^\\s(]+)",
+		Pattern.CASE_INSENSITIVE);
+
 	private final DatabaseAccess databaseAccess;
 
 	private boolean closed = false;
+	private RollbackListener rollbackListener;
+	private CommitListener commitListener;
+	private TableChangeListener tableChangeListener;
+	// guarded by the writer's lock
+	private int writeTransactionDepth = 0;
+	private volatile long writeTransactionEpoch = 0;
 
 	public DatabaseAdapter(SQLiteOpenHelper openHelper) {
-		databaseAccess = new DatabaseAccess(openHelper);
+		this(openHelper, false);
+	}
+
+	/**
+	 * Creates an adapter for the database.
+	 *
+	 * @param openHelper      helper to open the database with
+	 * @param concurrentReads whether {@link #performQuery(QueryParams)},
+	 *                        {@link #count(String, String, Object...)} and
+	 *                        {@link #rawQuery(String, Object...)} may run in
+	 *                        parallel with each other and with the writer. The
+	 *                        helper should have write-ahead logging enabled to
+	 *                        benefit from it.
+	 */
+	public DatabaseAdapter(SQLiteOpenHelper openHelper, boolean concurrentReads) {
+		this(openHelper, concurrentReads, DEFAULT_STATEMENT_CACHE_SIZE);
+	}
+
+	/**
+	 * Creates an adapter for the database.
+	 *
+	 * @param openHelper         helper to open the database with
+	 * @param concurrentReads    see {@link #DatabaseAdapter(SQLiteOpenHelper, boolean)}
+	 * @param statementCacheSize maximum number of compiled statements (inserts,
+	 *                           updates, deletes, counts) kept for reuse, 0
+	 *                           disables caching
+	 */
+	public DatabaseAdapter(SQLiteOpenHelper openHelper, boolean concurrentReads, int statementCacheSize) {
+		if (statementCacheSize < 0) {
+			throw new IllegalArgumentException("negative statement cache size");
+		}
+		databaseAccess = new DatabaseAccess(openHelper, concurrentReads, statementCacheSize);
 	}
 
 	/**
@@ -51,7 +100,10 @@ public final class DatabaseAdapter {
 		try {
 			SQLiteDatabaseAdapter sqlite = acquireDataAccess();
 			sqlite.beginTransaction();
-			return new TransactionControl();
+			if (writeTransactionDepth++ == 0) {
+				writeTransactionEpoch++;
+			}
+			return new TransactionControl(true);
 		} catch (OperationException e) {
 			releaseDataAccess();
 			throw e;
@@ -59,13 +111,151 @@ public final class DatabaseAdapter {
 		// access will be released in endTransaction()
 	}
 
-	private void endTransaction() throws OperationException {
+	/**
+	 * Starts a read transaction for a sequence of queries that must see
+	 * consistent data. It's a deferred transaction on a read connection, so
+	 * it blocks neither the writer nor other processes (see
+	 * {@link SQLiteDatabaseAdapter#beginReadTransaction()} for the Android
+	 * versions supporting it). Without concurrent reads the queries go
+	 * through the writer, which isn't released until the transaction ends.
+	 * You must always call {@link TransactionControl#end()} in
+	 * <code>finally</code> block;
+	 *
+	 * @throws OperationException if any error happened
+	 */
+	public TransactionControl startReadTransaction() throws OperationException {
+		SQLiteDatabaseAdapter sqlite = acquireReadAccess();
+		try {
+			return new TransactionControl(sqlite, sqlite.beginReadTransaction());
+		} catch (OperationException e) {
+			releaseReadAccess();
+			throw e;
+		}
+		// access will be released in endReadTransaction()
+	}
+
+	private void endReadTransaction(SQLiteDatabaseAdapter sqlite, boolean started) throws OperationException {
+		try {
+			if (started) {
+				sqlite.endReadTransaction();
+			}
+		} finally {
+			releaseReadAccess();
+		}
+	}
+
+	private void endTransaction(boolean write) throws OperationException {
+		boolean rolledBack = true;
+		boolean outermost = false;
 		try {
 			SQLiteDatabaseAdapter sqlite = continueDataAccess(false);
-			sqlite.endTransaction();
+			rolledBack = sqlite.endTransaction();
 		} finally {
+			if (write && --writeTransactionDepth == 0) {
+				writeTransactionEpoch++;
+				outermost = true;
+			}
 			releaseDataAccess();
 		}
+		if (outermost) {
+			if (rolledBack) {
+				if (rollbackListener != null) {
+					rollbackListener.onRollback();
+				}
+			} else if (commitListener != null) {
+				commitListener.onCommit();
+			}
+		}
+	}
+
+	/**
+	 * Sets the listener called after a transaction started by
+	 * {@link #startTransaction()} is rolled back.
+	 */
+	public void setRollbackListener(RollbackListener listener) {
+		rollbackListener = listener;
+	}
+
+	/**
+	 * Sets the listener called after a transaction started by
+	 * {@link #startTransaction()} is committed or after a statement changing
+	 * a table is executed outside such a transaction.
+	 */
+	public void setCommitListener(CommitListener listener) {
+		commitListener = listener;
+	}
+
+	/**
+	 * Sets the listener called after each statement changing a table.
+	 */
+	public void setTableChangeListener(TableChangeListener listener) {
+		tableChangeListener = listener;
+	}
+
+	/**
+	 * Must be called while the data access is held.
+	 *
+	 * @return whether the statement was executed outside a transaction
+	 * started by {@link #startTransaction()}, so it's already committed
+	 */
+	private boolean notifyTableChanged(String table) {
+		if (tableChangeListener != null) {
+			tableChangeListener.onTableChanged(table);
+		}
+		return writeTransactionDepth == 0;
+	}
+
+	/**
+	 * Calls the commit listener for a statement executed outside a
+	 * transaction. Must be called after the data access is released, like
+	 * for a committed transaction.
+	 */
+	private void notifyAutoCommit(boolean autoCommitted) {
+		if (autoCommitted && commitListener != null) {
+			commitListener.onCommit();
+		}
+	}
+
+	/**
+	 * Returns the table changed by an INSERT, UPDATE or DELETE statement or
+	 * <code>null</code> for other statements.
+	 */
+	static String getChangedTable(String sql) {
+		Matcher matcher = CHANGED_TABLE_PATTERN.matcher(sql);
+		return matcher.find() ? unquote(matcher.group(1)) : null;
+	}
+
+	private static String unquote(String name) {
+		char first = name.charAt(0);
+		if (name.length() > 1 && (first == '"' || first == '`' || first == '[' || first == '\'')) {
+			return name.substring(1, name.length() - 1);
+		}
+		return name;
+	}
+
+	/**
+	 * Returns a number that changes whenever the outermost transaction started
+	 * by {@link #startTransaction()} begins or ends. It's odd while such a
+	 * transaction is open. Data read between two equal even values was
+	 * committed.
+	 */
+	public long getWriteTransactionEpoch() {
+		return writeTransactionEpoch;
+	}
+
+	/**
+	 * Whether a transaction started by {@link #startTransaction()} is open.
+	 * Only the thread owning that transaction gets a reliable answer.
+	 */
+	public boolean isInWriteTransaction() {
+		return (writeTransactionEpoch & 1) != 0;
+	}
+
+	/**
+	 * Whether the current thread holds the writer, e.g. runs a transaction.
+	 */
+	public boolean isWriterHeldByCurrentThread() {
+		return databaseAccess.isHeldByCurrentThread();
 	}
 
 	private void setTransactionSuccessful() throws OperationException {
@@ -83,10 +273,10 @@ public final class DatabaseAdapter {
 	 */
 	public Cursor performQuery(QueryParams queryParams) throws OperationException {
 		try {
-			SQLiteDatabaseAdapter sqlite = acquireDataAccess();
+			SQLiteDatabaseAdapter sqlite = acquireReadAccess();
 			return sqlite.performQuery(queryParams);
 		} finally {
-			releaseDataAccess();
+			releaseReadAccess();
 		}
 	}
 
@@ -145,12 +335,17 @@ public final class DatabaseAdapter {
 	 * @throws OperationException if any error happen
 	 **/
 	public long insert(String table, ContentValues values, OnConflictStrategy onConflictStrategy) throws OperationException {
+		long id;
+		boolean autoCommitted;
 		try {
 			SQLiteDatabaseAdapter sqlite = acquireDataAccess();
-			return sqlite.insert(table, values, onConflictStrategy);
+			id = sqlite.insert(table, values, onConflictStrategy);
+			autoCommitted = notifyTableChanged(table);
 		} finally {
 			releaseDataAccess();
 		}
+		notifyAutoCommit(autoCommitted);
+		return id;
 	}
 
 	/**
@@ -160,12 +355,66 @@ public final class DatabaseAdapter {
 	 * @throws OperationException if any error happen
 	 **/
 	public List<Long> insert(String table, List<? extends ContentValues> valuesCollection, OnConflictStrategy onConflictStrategy) throws OperationException {
+		List<Long> ids;
+		boolean autoCommitted;
 		try {
 			SQLiteDatabaseAdapter sqlite = acquireDataAccess();
-			return sqlite.insert(table, valuesCollection, onConflictStrategy);
+			ids = sqlite.insert(table, valuesCollection, onConflictStrategy);
+			autoCommitted = notifyTableChanged(table);
 		} finally {
 			releaseDataAccess();
 		}
+		notifyAutoCommit(autoCommitted);
+		return ids;
+	}
+
+	/**
+	 * Inserts objects into the database in one transaction compiling the
+	 * insert statement once and binding each object to it.
+	 *
+	 * @param insertSql          INSERT statement with "?" placeholders
+	 * @param objects            objects to insert
+	 * @param binder             binds values of an object to the placeholders
+	 * @param onConflictStrategy strategy used by the statement
+	 * @return ids of inserted rows
+	 * @throws OperationException if any error happen
+	 */
+	public <T> List<Long> insert(String insertSql, Collection<? extends T> objects, StatementBinder<T> binder, OnConflictStrategy onConflictStrategy) throws OperationException {
+		List<Long> ids;
+		boolean autoCommitted;
+		try {
+			SQLiteDatabaseAdapter sqlite = acquireDataAccess();
+			ids = sqlite.insert(insertSql, objects, binder, onConflictStrategy);
+			autoCommitted = notifyTableChanged(getChangedTable(insertSql));
+		} finally {
+			releaseDataAccess();
+		}
+		notifyAutoCommit(autoCommitted);
+		return ids;
+	}
+
+	/**
+	 * Executes a statement for each object in one transaction compiling it
+	 * once and binding each object to it.
+	 *
+	 * @param sql     INSERT, UPDATE or DELETE statement with "?" placeholders
+	 * @param objects objects to bind
+	 * @param binder  binds values of an object to the placeholders
+	 * @return total number of changed rows
+	 * @throws OperationException if any error happen
+	 */
+	public <T> int executeBatch(String sql, Collection<? extends T> objects, StatementBinder<T> binder) throws OperationException {
+		int count;
+		boolean autoCommitted;
+		try {
+			SQLiteDatabaseAdapter sqlite = acquireDataAccess();
+			count = sqlite.executeBatch(sql, objects, binder);
+			autoCommitted = notifyTableChanged(getChangedTable(sql));
+		} finally {
+			releaseDataAccess();
+		}
+		notifyAutoCommit(autoCommitted);
+		return count;
 	}
 
 	/**
@@ -184,12 +433,17 @@ public final class DatabaseAdapter {
 	 * @throws OperationException if any error happen
 	 */
 	public int update(String table, ContentValues values, OnConflictStrategy onConflictStrategy, String whereClause, String... whereArgs) throws OperationException {
+		int count;
+		boolean autoCommitted;
 		try {
 			SQLiteDatabaseAdapter sqlite = acquireDataAccess();
-			return sqlite.update(table, values, onConflictStrategy, whereClause, whereArgs);
+			count = sqlite.update(table, values, onConflictStrategy, whereClause, whereArgs);
+			autoCommitted = notifyTableChanged(table);
 		} finally {
 			releaseDataAccess();
 		}
+		notifyAutoCommit(autoCommitted);
+		return count;
 	}
 
 	/**
@@ -197,27 +451,69 @@ public final class DatabaseAdapter {
 	 *
 	 * @throws OperationException if any error happen
 	 */
-	public int remove(String table, String whereClause, String... whereArgs) throws OperationException {
+	public int remove(String table, String whereClause, Object... whereArgs) throws OperationException {
+		int count;
+		boolean autoCommitted;
 		try {
 			SQLiteDatabaseAdapter sqlite = acquireDataAccess();
-			return sqlite.remove(table, whereClause, whereArgs);
+			count = sqlite.remove(table, whereClause, whereArgs);
+			autoCommitted = notifyTableChanged(table);
 		} finally {
 			releaseDataAccess();
 		}
+		notifyAutoCommit(autoCommitted);
+		return count;
 	}
 
 	/**
-	 * Convenient method for counting rows in the database.
+	 * Executes an UPDATE or DELETE statement.
 	 *
+	 * @param sql      SQL statement
+	 * @param bindArgs arguments for the statement
+	 * @return number of changed rows
 	 * @throws OperationException if any error happen
 	 */
-	public int count(String table, String whereClause, String... whereArgs) throws OperationException {
+	public int executeUpdateDelete(String sql, Object... bindArgs) throws OperationException {
+		int count;
+		boolean autoCommitted;
 		try {
 			SQLiteDatabaseAdapter sqlite = acquireDataAccess();
-			return sqlite.count(table, whereClause, whereArgs);
+			count = sqlite.executeUpdateDelete(sql, bindArgs);
+			autoCommitted = notifyTableChanged(getChangedTable(sql));
 		} finally {
 			releaseDataAccess();
 		}
+		notifyAutoCommit(autoCommitted);
+		return count;
+	}
+
+	/**
+	 * Convenient method for counting rows in the database.
+	 *
+	 * @throws OperationException if any error happen
+	 */
+	public int count(String table, String whereClause, Object... whereArgs) throws OperationException {
+		try {
+			SQLiteDatabaseAdapter sqlite = acquireReadAccess();
+			return sqlite.count(table, whereClause, whereArgs);
+		} finally {
+			releaseReadAccess();
+		}
+	}
+
+	/**
+	 * Runs the provided SQL query returning a single number (the value of the
+	 * first column of the first row).
+	 *
+	 * @throws OperationException if any error happen
+	 */
+	public long simpleQueryForLong(String sql, Object... selectionArgs) throws OperationException {
+		try {
+			SQLiteDatabaseAdapter sqlite = acquireReadAccess();
+			return sqlite.simpleQueryForLong(sql, selectionArgs);
+		} finally {
+			releaseReadAccess();
+		}
 	}
 
 	/**
@@ -225,12 +521,12 @@ public final class DatabaseAdapter {
 	 *
 	 * @throws OperationException if any error happen
 	 */
-	public Cursor rawQuery(String sql, String... selectionArgs) throws OperationException {
+	public Cursor rawQuery(String sql, Object... selectionArgs) throws OperationException {
 		try {
-			SQLiteDatabaseAdapter sqlite = acquireDataAccess();
+			SQLiteDatabaseAdapter sqlite = acquireReadAccess();
 			return sqlite.rawQuery(sql, selectionArgs);
 		} finally {
-			releaseDataAccess();
+			releaseReadAccess();
 		}
 	}
 
@@ -238,19 +534,52 @@ public final class DatabaseAdapter {
 	 * Executes a query that is NOT a SELECT query and doesn't return any
 	 * results.
 	 *
-	 * @param sql           SQL query
-	 * @param selectionArgs selection arguments for the query
+	 * @param sql      SQL query
+	 * @param bindArgs arguments for the query
 	 * @throws OperationException if any error happen
 	 */
-	public void executeSql(String sql, String... selectionArgs) throws OperationException {
+	public void executeSql(String sql, Object... bindArgs) throws OperationException {
+		boolean autoCommitted;
+		try {
+			SQLiteDatabaseAdapter sqlite = acquireDataAccess();
+			sqlite.executeSql(sql, bindArgs);
+			autoCommitted = notifyTableChanged(getChangedTable(sql));
+		} finally {
+			releaseDataAccess();
+		}
+		notifyAutoCommit(autoCommitted);
+	}
+
+	/**
+	 * Closes all cached compiled statements. Call it after changing the
+	 * database schema outside of this adapter. Schema changes made by
+	 * {@link #executeSql(String, Object...)} clear the cache automatically.
+	 */
+	public void clearStatementCache() {
 		try {
 			SQLiteDatabaseAdapter sqlite = acquireDataAccess();
-			sqlite.executeSql(sql, selectionArgs);
+			sqlite.clearStatementCache();
+		} catch (OperationException e) {
+			DatabaseLog.logException(e);
 		} finally {
 			releaseDataAccess();
 		}
 	}
 
+	/**
+	 * Returns how many times a compiled statement was taken from the cache.
+	 */
+	public long getStatementCacheHits() {
+		return databaseAccess.getStatementCache().getHits();
+	}
+
+	/**
+	 * Returns how many times a statement had to be compiled.
+	 */
+	public long getStatementCacheMisses() {
+		return databaseAccess.getStatementCache().getMisses();
+	}
+
 	/**
 	 * Closes encapsulated databases.
 	 */
@@ -288,6 +617,17 @@ public final class DatabaseAdapter {
 		return adapter;
 	}
 
+	private SQLiteDatabaseAdapter acquireReadAccess() throws OperationException {
+		checkCallPermit();
+		SQLiteDatabaseAdapter adapter = databaseAccess.acquireReadAccess();
+		adapter.checkTransactionValidity();
+		return adapter;
+	}
+
+	private void releaseReadAccess() {
+		databaseAccess.releaseReadAccess();
+	}
+
 	private SQLiteDatabaseAdapter continueDataAccess(boolean checkTransaction) throws OperationException {
 		checkCallPermit();
 		SQLiteDatabaseAdapter adapter = databaseAccess.continueLastDataAccess();
@@ -305,13 +645,32 @@ public final class DatabaseAdapter {
 	 */
 	public class TransactionControl {
 
+		private final boolean write;
+		private final SQLiteDatabaseAdapter readAccess;
+		private final boolean readTransactionStarted;
+
+		private TransactionControl(boolean write) {
+			this.write = write;
+			readAccess = null;
+			readTransactionStarted = false;
+		}
+
+		private TransactionControl(SQLiteDatabaseAdapter readAccess, boolean readTransactionStarted) {
+			write = false;
+			this.readAccess = readAccess;
+			this.readTransactionStarted = readTransactionStarted;
+		}
+
 		/**
-		 * Marks the transaction as successful.
+		 * Marks the transaction as successful. Does nothing for read
+		 * transactions.
 		 *
 		 * @throws OperationException if any error happen
 		 */
 		public void setSuccessful() throws OperationException {
-			setTransactionSuccessful();
+			if (readAccess == null) {
+				setTransactionSuccessful();
+			}
 		}
 
 		/**
@@ -320,7 +679,11 @@ public final class DatabaseAdapter {
 		 * @throws OperationException if any error happen
 		 */
 		public void end() throws OperationException {
-			endTransaction();
+			if (readAccess != null) {
+				endReadTransaction(readAccess, readTransactionStarted);
+			} else {
+				endTransaction(write);
+			}
 		}
 	}
 
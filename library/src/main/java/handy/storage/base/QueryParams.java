@@ -14,11 +14,14 @@ import handy.storage.util.Factory;
  */
 public class QueryParams implements Cloneable {
 
+	private static final Object[] NO_ARGUMENTS = new Object[0];
+
 	private String mTableName;
 	private String[] mColumns = null;
 	private String mSelection = null;
-	private String[] mSelectionArgs = null;
+	private Object[] mSelectionArgs = null;
 	private String mHaving = null;
+	private Object[] mHavingArgs = null;
 	private boolean mDistinct = false;
 	private List<String> orderBy = new ArrayList<>();
 	private List<String> groupBy = new ArrayList<>();
@@ -60,19 +63,22 @@ public class QueryParams implements Cloneable {
 	}
 
 	/**
-	 * Set a selection filter.
+	 * Set a selection filter. The arguments are bound to the "?" placeholders
+	 * with their types kept (numbers, strings, byte arrays, booleans or
+	 * <code>null</code>), so queries differing only by the values share the
+	 * same SQL.
 	 *
 	 * @param selection selection pattern
 	 * @param selectionArgs selection arguments
 	 * @return this instance
 	 */
-	public QueryParams where(String selection, String... selectionArgs) {
+	public QueryParams where(String selection, Object... selectionArgs) {
 		mSelection = selection;
 		mSelectionArgs = selectionArgs;
 		return this;
 	}
 
-	String[] getSelectionArgs() {
+	Object[] getSelectionArgs() {
 		return mSelectionArgs;
 	}
 
@@ -115,13 +121,34 @@ public class QueryParams implements Cloneable {
 	 * Sets having expression
 	 *
 	 * @param having having string
+	 * @param havingArgs arguments for "?" placeholders of the expression
 	 * @return this instance
 	 */
-	public QueryParams having(String having) {
+	public QueryParams having(String having, Object... havingArgs) {
 		mHaving = having;
+		mHavingArgs = havingArgs;
 		return this;
 	}
 
+	/**
+	 * Returns the arguments for "?" placeholders of this query (selection
+	 * arguments followed by having arguments) in the order they appear in
+	 * {@link #toRawSqlQuery()}.
+	 */
+	public Object[] getArguments() {
+		int selectionArgsCount = mSelectionArgs != null ? mSelectionArgs.length : 0;
+		int havingArgsCount = mHavingArgs != null ? mHavingArgs.length : 0;
+		if (havingArgsCount == 0) {
+			return selectionArgsCount == 0 ? NO_ARGUMENTS : mSelectionArgs;
+		}
+		Object[] arguments = new Object[selectionArgsCount + havingArgsCount];
+		if (selectionArgsCount > 0) {
+			System.arraycopy(mSelectionArgs, 0, arguments, 0, selectionArgsCount);
+		}
+		System.arraycopy(mHavingArgs, 0, arguments, selectionArgsCount, havingArgsCount);
+		return arguments;
+	}
+
 	String getOrderBy() {
 		return joinColumns(orderBy);
 	}
@@ -183,7 +210,8 @@ public class QueryParams implements Cloneable {
 	}
 
 	/**
-	 * Returns SQL select query corresponding to this query parameters.
+	 * Returns SQL select query corresponding to this query parameters. Values
+	 * for its "?" placeholders are returned by {@link #getArguments()}.
 	 */
 	public String toRawSqlQuery() {
 		StringBuilder sb = new StringBuilder("SELECT ");
@@ -196,9 +224,6 @@ public class QueryParams implements Cloneable {
 			sb.append(TextUtils.join(", ", mColumns));
 		}
 		addClause(sb, "FROM", getTableName());
-		if (mSelectionArgs != null && mSelectionArgs.length > 0) {
-			throw new RuntimeException("can't create sql query with no inlined arguments");
-		}
 		addClause(sb, "WHERE", getSelection());
 		addClause(sb, "GROUP BY", getGroupBy());
 		addClause(sb, "HAVING", getHaving());
@@ -223,8 +248,9 @@ public class QueryParams implements Cloneable {
 	public QueryParams clone() {
 		try {
 			QueryParams clone = (QueryParams) super.clone();
-			clone.mColumns = cloneStringArray(mColumns);
-			clone.mSelectionArgs = cloneStringArray(mSelectionArgs);
+			clone.mColumns = cloneArray(mColumns);
+			clone.mSelectionArgs = cloneArray(mSelectionArgs);
+			clone.mHavingArgs = cloneArray(mHavingArgs);
 			clone.groupBy = new ArrayList<>(groupBy);
 			clone.orderBy = new ArrayList<>(orderBy);
 			return clone;
@@ -234,14 +260,8 @@ public class QueryParams implements Cloneable {
 		}
 	}
 
-	private static String[] cloneStringArray(String[] array) {
-		if (array == null) {
-			return null;
-		} else {
-			String[] arrayCopy = new String[array.length];
-			System.arraycopy(array, 0, arrayCopy, 0, array.length);
-			return arrayCopy;
-		}
+	private static <T> T[] cloneArray(T[] array) {
+		return array == null ? null : array.clone();
 	}
 
 
@@ -0,0 +1,14 @@
+package handy.storage.base;
+
+/**
+ * Gets notified when a transaction is rolled back.
+ */
+public interface RollbackListener {
+
+	/**
+	 * Called after the outermost transaction has ended without being marked
+	 * successful.
+	 */
+	void onRollback();
+
+}
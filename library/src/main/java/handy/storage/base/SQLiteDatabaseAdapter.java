@@ -4,13 +4,20 @@ import android.content.ContentValues;
 import android.database.Cursor;
 import android.database.DatabaseUtils;
 import android.database.sqlite.SQLiteConstraintException;
+import android.database.sqlite.SQLiteCursor;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteException;
 import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteProgram;
+import android.database.sqlite.SQLiteStatement;
+import android.os.Build;
 import android.text.TextUtils;
 
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -24,14 +31,22 @@ import handy.storage.log.DatabaseLog;
  */
 class SQLiteDatabaseAdapter {
 
+	private static final Method BEGIN_TRANSACTION_READ_ONLY = findBeginTransactionReadOnly();
+
 	private final LinkedList<Boolean> transactionStatuses = new LinkedList<>();
 	private final SQLiteOpenHelper openHelper;
+	private final StatementCache statementCache;
 
 	private boolean transactionCorrupted = false;
 	private boolean nestedTransactionFailed = false;
 
-	SQLiteDatabaseAdapter(SQLiteOpenHelper openHelper) {
+	/**
+	 * @param statementCache cache of compiled statements, <code>null</code>
+	 *                       if this instance is shared between threads
+	 */
+	SQLiteDatabaseAdapter(SQLiteOpenHelper openHelper, StatementCache statementCache) {
 		this.openHelper = openHelper;
+		this.statementCache = statementCache;
 	}
 
 	private SQLiteDatabase getReadableDatabase() throws UnableToOpenDatabaseException {
@@ -58,11 +73,21 @@ class SQLiteDatabaseAdapter {
 		}
 	}
 
-	void executeSql(String sql, String... selectionArgs) throws OperationException {
+	void executeSql(String sql, Object... bindArgs) throws OperationException {
 		SQLiteDatabase database = getWritableDatabase();
 		beginTransaction(database);
 		try {
-			database.execSQL(sql, selectionArgs);
+			if (isSchemaChange(sql)) {
+				// cached statements might refer to changed tables
+				clearStatementCache();
+			}
+			if (bindArgs == null || bindArgs.length == 0) {
+				database.execSQL(sql);
+			} else if (tooManyArguments(bindArgs)) {
+				database.execSQL(SqlArguments.inline(sql, bindArgs));
+			} else {
+				database.execSQL(sql, bindArgs);
+			}
 			setTransactionSuccessful(database);
 		} catch (Exception e) {
 			throw wrapException(e);
@@ -71,57 +96,62 @@ class SQLiteDatabaseAdapter {
 		}
 	}
 
-	Cursor rawQuery(String sql, String... selectionArgs) throws OperationException {
-		SQLiteDatabase database = getWritableDatabase();
-		Cursor result;
-		beginTransaction(database);
+	Cursor rawQuery(String sql, Object... selectionArgs) throws OperationException {
+		// a single query doesn't need a transaction, it won't block other connections this way
+		SQLiteDatabase database = getReadableDatabase();
 		try {
-			result = database.rawQuery(sql, selectionArgs);
-			setTransactionSuccessful(database);
+			if (tooManyArguments(selectionArgs)) {
+				return database.rawQueryWithFactory(null, SqlArguments.inline(sql, selectionArgs), null, null);
+			}
+			return database.rawQueryWithFactory(createCursorFactory(selectionArgs), sql, null, null);
 		} catch (Exception e) {
 			throw wrapException(e);
-		} finally {
-			endTransaction(database);
 		}
-		return result;
 	}
 
-	int count(String table, String whereClause, String... whereArgs) throws OperationException {
+	int count(String table, String whereClause, Object... whereArgs) throws OperationException {
 		DatabaseLog.i("counting rows in the table \"" + table + "\" where \"" + whereClause + "\", "
 			+ "arguments are " + Arrays.toString(whereArgs));
 		SQLiteDatabase database = getReadableDatabase();
-		int count = 0;
-		beginTransaction();
+		int count;
 		try {
 			String selection = !TextUtils.isEmpty(whereClause) ? " where " + whereClause : "";
 			String query = "SELECT COUNT(*) FROM " + table + selection;
-			count = (int) DatabaseUtils.longForQuery(database, query, whereArgs);
-			setTransactionSuccessful(database);
+			count = (int) simpleQueryForLong(database, query, whereArgs);
 		} catch (Exception e) {
 			throw wrapException(e);
-		} finally {
-			endTransaction(database);
 		}
 		DatabaseLog.i("result is " + count);
 		return count;
 	}
 
-	int remove(String table, String whereClause, String... whereArgs) throws OperationException {
+	int remove(String table, String whereClause, Object... whereArgs) throws OperationException {
 		DatabaseLog.i("removing from the table \"" + table + "\" where \"" + whereClause + "\", "
 			+ "arguments are " + Arrays.toString(whereArgs));
+		String selection = !TextUtils.isEmpty(whereClause) ? " WHERE " + whereClause : "";
+		int deleted = executeUpdateDelete("DELETE FROM " + table + selection, whereArgs);
+		DatabaseLog.i("removed " + deleted + " rows");
+		return deleted;
+	}
+
+	int executeUpdateDelete(String sql, Object... bindArgs) throws OperationException {
 		SQLiteDatabase database = getWritableDatabase();
-		int deleted;
+		int changed;
 		beginTransaction(database);
 		try {
-			deleted = database.delete(table, whereClause, whereArgs);
+			SQLiteStatement statement = compileStatement(database, sql, bindArgs);
+			try {
+				changed = statement.executeUpdateDelete();
+			} finally {
+				releaseStatement(statement, bindArgs);
+			}
 			setTransactionSuccessful(database);
 		} catch (Exception e) {
 			throw wrapException(e);
 		} finally {
 			endTransaction(database);
 		}
-		DatabaseLog.i("removed " + deleted + " rows");
-		return deleted;
+		return changed;
 	}
 
 	int update(String table, ContentValues values, OnConflictStrategy onConflictStrategy, String whereClause, String... whereArgs) throws OperationException {
@@ -129,9 +159,15 @@ class SQLiteDatabaseAdapter {
 			+ "arguments are " + Arrays.toString(whereArgs));
 		SQLiteDatabase database = getWritableDatabase();
 		int updated;
+		String selection = whereClause;
+		String[] selectionArgs = whereArgs;
+		if (whereArgs != null && SqlArguments.exceedLimit(values.size() + whereArgs.length)) {
+			selection = SqlArguments.inline(whereClause, whereArgs);
+			selectionArgs = null;
+		}
 		beginTransaction(database);
 		try {
-			updated = database.updateWithOnConflict(table, values, whereClause, whereArgs, onConflictStrategy.getAlgorithmId());
+			updated = database.updateWithOnConflict(table, values, selection, selectionArgs, onConflictStrategy.getAlgorithmId());
 			setTransactionSuccessful(database);
 		} catch (Exception e) {
 			throw wrapException(e);
@@ -166,6 +202,64 @@ class SQLiteDatabaseAdapter {
 
 	}
 
+	<T> List<Long> insert(String insertSql, Collection<? extends T> objects, StatementBinder<T> binder, OnConflictStrategy onConflictStrategy) throws OperationException {
+		DatabaseLog.i("inserting " + objects.size() + " rows: " + insertSql);
+		SQLiteDatabase database = getWritableDatabase();
+		try {
+			List<Long> ids = new ArrayList<>(objects.size());
+			beginTransaction(database);
+			try {
+				SQLiteStatement statement = compileStatement(database, insertSql);
+				try {
+					for (T object : objects) {
+						statement.clearBindings();
+						binder.bind(statement, object);
+						long id = statement.executeInsert();
+						if (id == -1 && onConflictStrategy != OnConflictStrategy.IGNORE) {
+							throw new OperationException("can't insert values into the database");
+						}
+						ids.add(id);
+					}
+				} finally {
+					releaseStatement(statement);
+				}
+				setTransactionSuccessful(database);
+			} finally {
+				endTransaction(database);
+			}
+			return ids;
+		} catch (Exception e) {
+			throw wrapException(e);
+		}
+	}
+
+	<T> int executeBatch(String sql, Collection<? extends T> objects, StatementBinder<T> binder) throws OperationException {
+		DatabaseLog.i("executing for " + objects.size() + " rows: " + sql);
+		SQLiteDatabase database = getWritableDatabase();
+		try {
+			int changed = 0;
+			beginTransaction(database);
+			try {
+				SQLiteStatement statement = compileStatement(database, sql);
+				try {
+					for (T object : objects) {
+						statement.clearBindings();
+						binder.bind(statement, object);
+						changed += statement.executeUpdateDelete();
+					}
+				} finally {
+					releaseStatement(statement);
+				}
+				setTransactionSuccessful(database);
+			} finally {
+				endTransaction(database);
+			}
+			return changed;
+		} catch (Exception e) {
+			throw wrapException(e);
+		}
+	}
+
 	private void endTransaction(SQLiteDatabase database) throws OperationException {
 		Boolean status = transactionStatuses.removeFirst();
 		if (!status) {
@@ -208,33 +302,31 @@ class SQLiteDatabaseAdapter {
 		DatabaseLog.i("query: table = " + queryParams.getTableName());
 		DatabaseLog.i("query: columns = " + Arrays.toString(queryParams.getColumns()));
 		DatabaseLog.i("query: selection = " + queryParams.getSelection());
-		DatabaseLog.i("query: selection args = " + Arrays.toString(queryParams.getSelectionArgs()));
+		DatabaseLog.i("query: arguments = " + Arrays.toString(queryParams.getArguments()));
 		DatabaseLog.i("query: groupBy = " + queryParams.getGroupBy());
 		DatabaseLog.i("query: having = " + queryParams.getHaving());
 		DatabaseLog.i("query: orderBy = " + queryParams.getOrderBy());
 		DatabaseLog.i("query: limit = " + queryParams.getLimit());
 		SQLiteDatabase database = getReadableDatabase();
-		Cursor result;
-		beginTransaction(database);
 		try {
-			result = database.query(
+			Object[] arguments = queryParams.getArguments();
+			if (tooManyArguments(arguments)) {
+				return database.rawQueryWithFactory(null, SqlArguments.inline(queryParams.toRawSqlQuery(), arguments), null, null);
+			}
+			return database.queryWithFactory(
+					createCursorFactory(queryParams.getArguments()),
 					queryParams.isDistinct(),
 					queryParams.getTableName(),
 					queryParams.getColumns(),
 					queryParams.getSelection(),
-					queryParams.getSelectionArgs(),
+					null,
 					queryParams.getGroupBy(),
 					queryParams.getHaving(),
 					queryParams.getOrderBy(),
 					queryParams.getLimit());
-
-			setTransactionSuccessful(database);
 		} catch (Exception e) {
 			throw wrapException(e);
-		} finally {
-			endTransaction(database);
 		}
-		return result;
 	}
 
 	void prepare() throws UnableToOpenDatabaseException {
@@ -249,13 +341,73 @@ class SQLiteDatabaseAdapter {
 		}
 	}
 
+	/**
+	 * Begins a deferred read transaction on a read connection: SQLite takes
+	 * only a shared lock at the first read, so writers and other processes
+	 * aren't blocked. Android supports it since API 35, on older versions a
+	 * BEGIN statement is always run as an exclusive transaction, so no
+	 * transaction is started there. The state of this adapter isn't changed,
+	 * so a shared reader can begin read transactions on any thread.
+	 *
+	 * @return whether a transaction has been started, it must be ended by
+	 * {@link #endReadTransaction()}
+	 */
+	boolean beginReadTransaction() throws OperationException {
+		if (BEGIN_TRANSACTION_READ_ONLY == null) {
+			return false;
+		}
+		try {
+			SQLiteDatabase database = getReadableDatabase();
+			if (database.inTransaction()) {
+				// the current transaction already sees consistent data
+				return false;
+			}
+			BEGIN_TRANSACTION_READ_ONLY.invoke(database);
+			return true;
+		} catch (InvocationTargetException e) {
+			throw wrapException(e.getCause() instanceof Exception ? (Exception) e.getCause() : e);
+		} catch (Exception e) {
+			throw wrapException(e);
+		}
+	}
+
+	/**
+	 * Ends a transaction started by {@link #beginReadTransaction()}.
+	 */
+	void endReadTransaction() throws OperationException {
+		try {
+			getReadableDatabase().endTransaction();
+		} catch (Exception e) {
+			throw wrapException(e);
+		}
+	}
+
+	private static Method findBeginTransactionReadOnly() {
+		if (Build.VERSION.SDK_INT < 35) {
+			return null;
+		}
+		try {
+			return SQLiteDatabase.class.getMethod("beginTransactionReadOnly");
+		} catch (NoSuchMethodException e) {
+			return null;
+		}
+	}
+
 	private void beginTransaction(SQLiteDatabase database) {
 		transactionStatuses.add(0, Boolean.FALSE);
 		database.beginTransaction();
 	}
 
-	void endTransaction() throws OperationException {
+	/**
+	 * Ends the innermost transaction.
+	 *
+	 * @return whether it was the outermost transaction and its changes were
+	 * rolled back
+	 */
+	boolean endTransaction() throws OperationException {
+		boolean rollback = transactionStatuses.size() == 1 && !transactionStatuses.getFirst();
 		endTransaction(getWritableDatabase());
+		return rollback;
 	}
 
 	void setTransactionSuccessful() throws OperationException {
@@ -275,15 +427,112 @@ class SQLiteDatabaseAdapter {
 	}
 
 	void close() throws OperationException {
+		clearStatementCache();
 		closeDatabase(getWritableDatabase());
 	}
 
+	long simpleQueryForLong(String sql, Object... bindArgs) throws OperationException {
+		try {
+			return simpleQueryForLong(getReadableDatabase(), sql, bindArgs);
+		} catch (OperationException e) {
+			throw e;
+		} catch (Exception e) {
+			throw wrapException(e);
+		}
+	}
+
+	private long simpleQueryForLong(SQLiteDatabase database, String sql, Object[] bindArgs) {
+		SQLiteStatement statement = compileStatement(database, sql, bindArgs);
+		try {
+			return statement.simpleQueryForLong();
+		} finally {
+			releaseStatement(statement, bindArgs);
+		}
+	}
+
+	private SQLiteStatement compileStatement(SQLiteDatabase database, String sql) {
+		return statementCache != null ? statementCache.acquire(database, sql) : database.compileStatement(sql);
+	}
+
+	/**
+	 * Compiles the statement and binds the arguments to it. If there are too
+	 * many arguments to bind, they are inlined into a statement that isn't
+	 * cached.
+	 */
+	private SQLiteStatement compileStatement(SQLiteDatabase database, String sql, Object[] bindArgs) {
+		if (tooManyArguments(bindArgs)) {
+			return database.compileStatement(SqlArguments.inline(sql, bindArgs));
+		}
+		SQLiteStatement statement = compileStatement(database, sql);
+		bindArguments(statement, bindArgs);
+		return statement;
+	}
+
+	private void releaseStatement(SQLiteStatement statement, Object[] bindArgs) {
+		if (tooManyArguments(bindArgs)) {
+			statement.close();
+		} else {
+			releaseStatement(statement);
+		}
+	}
+
+	private void releaseStatement(SQLiteStatement statement) {
+		if (statementCache != null) {
+			statementCache.release(statement);
+		} else {
+			statement.close();
+		}
+	}
+
+	void clearStatementCache() {
+		if (statementCache != null) {
+			statementCache.clear();
+		}
+	}
+
+	private static boolean isSchemaChange(String sql) {
+		String statement = sql.trim();
+		return startsWithIgnoreCase(statement, "CREATE")
+			|| startsWithIgnoreCase(statement, "DROP")
+			|| startsWithIgnoreCase(statement, "ALTER");
+	}
+
+	private static boolean startsWithIgnoreCase(String s, String prefix) {
+		return s.regionMatches(true, 0, prefix, 0, prefix.length());
+	}
+
 	void checkTransactionValidity() throws OperationException {
 		if (transactionCorrupted) {
 			throw new OperationException("Transaction is corrupted!");
 		}
 	}
 
+	private static boolean tooManyArguments(Object[] arguments) {
+		return arguments != null && SqlArguments.exceedLimit(arguments.length);
+	}
+
+	/**
+	 * Binds arguments keeping their types (unlike the platform's methods
+	 * taking selection arguments as strings).
+	 */
+	private static void bindArguments(SQLiteProgram program, Object[] arguments) {
+		if (arguments != null) {
+			for (int i = 0; i < arguments.length; i++) {
+				DatabaseUtils.bindObjectToProgram(program, i + 1, arguments[i]);
+			}
+		}
+	}
+
+	private static SQLiteDatabase.CursorFactory createCursorFactory(Object[] arguments) {
+		if (arguments == null || arguments.length == 0) {
+			return null;
+		}
+		return (database, masterQuery, editTable, query) -> {
+			bindArguments(query, arguments);
+			return new SQLiteCursor(masterQuery, editTable, query);
+		};
+	}
+
 	private void closeDatabase(SQLiteDatabase database) throws OperationException {
 		try {
 			database.close();
@@ -0,0 +1,76 @@
+package handy.storage.base;
+
+import android.database.DatabaseUtils;
+import android.os.Build;
+
+/**
+ * Helps pass arguments to SQL statements.
+ */
+public final class SqlArguments {
+
+	/**
+	 * Maximum number of arguments SQLite binds to one statement: 999 before
+	 * SQLite 3.32 (Android 12), 32766 since.
+	 */
+	public static final int MAX_BOUND_ARGUMENTS = Build.VERSION.SDK_INT >= 31 ? 32766 : 999;
+
+	private SqlArguments() {
+	}
+
+	/**
+	 * Whether there are more arguments than a statement can bind.
+	 */
+	public static boolean exceedLimit(int argumentsCount) {
+		return argumentsCount > MAX_BOUND_ARGUMENTS;
+	}
+
+	/**
+	 * Returns the SQL with all "?" placeholders replaced with the arguments
+	 * written as SQL literals.
+	 */
+	public static String inline(String sql, Object[] arguments) {
+		if (arguments == null || arguments.length == 0) {
+			return sql;
+		}
+		StringBuilder sb = new StringBuilder(sql.length() + arguments.length * 8);
+		int argumentIndex = 0;
+		char quote = 0;
+		for (int i = 0; i < sql.length(); i++) {
+			char c = sql.charAt(i);
+			if (quote != 0) {
+				if (c == quote) {
+					quote = 0;
+				}
+			} else if (c == '\'' || c == '"' || c == '`') {
+				quote = c;
+			} else if (c == '[') {
+				quote = ']';
+			} else if (c == '?' && argumentIndex < arguments.length) {
+				appendLiteral(sb, arguments[argumentIndex++]);
+				continue;
+			}
+			sb.append(c);
+		}
+		return sb.toString();
+	}
+
+	private static void appendLiteral(StringBuilder sb, Object value) {
+		if (value == null) {
+			sb.append("NULL");
+		} else if (value instanceof Number) {
+			sb.append(value);
+		} else if (value instanceof Boolean) {
+			sb.append((Boolean) value ? '1' : '0');
+		} else if (value instanceof byte[]) {
+			sb.append("X'");
+			for (byte b : (byte[]) value) {
+				sb.append(Character.forDigit((b >> 4) & 0xF, 16));
+				sb.append(Character.forDigit(b & 0xF, 16));
+			}
+			sb.append('\'');
+		} else {
+			sb.append(DatabaseUtils.sqlEscapeString(value.toString()));
+		}
+	}
+
+}
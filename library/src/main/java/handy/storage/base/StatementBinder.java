@@ -0,0 +1,20 @@
+package handy.storage.base;
+
+import android.database.sqlite.SQLiteStatement;
+
+/**
+ * Binds values of an object to parameters of a compiled statement.
+ *
+ * @param <T> type of objects
+ */
+public interface StatementBinder<T> {
+
+	/**
+	 * Binds values of the object to all the statement's parameters.
+	 *
+	 * @param statement compiled statement with cleared bindings
+	 * @param object    object to bind
+	 */
+	void bind(SQLiteStatement statement, T object);
+
+}
@@ -0,0 +1,95 @@
+package handy.storage.base;
+
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import handy.storage.log.DatabaseLog;
+
+/**
+ * Bounded LRU cache of compiled statements keyed by SQL. Statements are
+ * shared, so the cache must be used only by the writer.
+ */
+class StatementCache {
+
+	private final int maxSize;
+	private final LinkedHashMap<String, SQLiteStatement> statements;
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+
+	private SQLiteDatabase database;
+
+	StatementCache(int maxSize) {
+		this.maxSize = maxSize;
+		statements = new LinkedHashMap<String, SQLiteStatement>(16, 0.75f, true) {
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, SQLiteStatement> eldest) {
+				if (size() > StatementCache.this.maxSize) {
+					eldest.getValue().close();
+					return true;
+				}
+				return false;
+			}
+
+		};
+	}
+
+	/**
+	 * Returns a cached statement for the SQL or compiles a new one. The
+	 * returned statement must be passed to {@link #release(SQLiteStatement)}
+	 * after the usage.
+	 */
+	SQLiteStatement acquire(SQLiteDatabase db, String sql) {
+		if (database != db) {
+			// statements are bound to the database object, it has been reopened
+			clear();
+			database = db;
+		}
+		SQLiteStatement statement = statements.get(sql);
+		if (statement != null) {
+			hits.incrementAndGet();
+			return statement;
+		}
+		misses.incrementAndGet();
+		statement = db.compileStatement(sql);
+		if (maxSize > 0) {
+			statements.put(sql, statement);
+		}
+		return statement;
+	}
+
+	void release(SQLiteStatement statement) {
+		if (maxSize > 0) {
+			statement.clearBindings();
+		} else {
+			statement.close();
+		}
+	}
+
+	/**
+	 * Closes all cached statements.
+	 */
+	void clear() {
+		if (!statements.isEmpty()) {
+			DatabaseLog.d("clearing " + statements.size() + " cached statements");
+			for (SQLiteStatement statement : statements.values()) {
+				statement.close();
+			}
+			statements.clear();
+		}
+		database = null;
+	}
+
+	long getHits() {
+		return hits.get();
+	}
+
+	long getMisses() {
+		return misses.get();
+	}
+
+}
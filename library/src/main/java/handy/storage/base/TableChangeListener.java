@@ -0,0 +1,17 @@
+package handy.storage.base;
+
+/**
+ * Gets notified about statements changing the database tables.
+ */
+public interface TableChangeListener {
+
+	/**
+	 * Called after a statement changing the table has been executed. The
+	 * change may still be rolled back if it's a part of a transaction.
+	 *
+	 * @param table name of the table or <code>null</code> if any table might
+	 *              have been changed
+	 */
+	void onTableChanged(String table);
+
+}
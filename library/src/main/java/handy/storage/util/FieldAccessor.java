@@ -0,0 +1,457 @@
+package handy.storage.util;
+
+import java.lang.reflect.Field;
+
+import handy.storage.log.DatabaseLog;
+
+/**
+ * Reads and writes the value of a field. The accessor generated for the
+ * declaring class is used if there is one, see {@link GeneratedAdapter}.
+ * Otherwise the field is made accessible once on creation and fields of
+ * primitive types are accessed with the typed methods of {@link Field}.
+ */
+public abstract class FieldAccessor {
+
+	private final Field field;
+
+	FieldAccessor(Field field) {
+		this.field = field;
+	}
+
+	/**
+	 * Creates an accessor for the field.
+	 */
+	public static FieldAccessor create(Field field) {
+		GeneratedAdapter generatedAdapter = GeneratedAdapters.find(field.getDeclaringClass());
+		if (generatedAdapter != null) {
+			FieldAccessor accessor = generatedAdapter.createAccessor(field);
+			if (accessor != null) {
+				return accessor;
+			}
+		}
+		field.setAccessible(true);
+		Class<?> type = field.getType();
+		if (type == long.class) {
+			return new LongAccessor(field);
+		} else if (type == int.class) {
+			return new IntAccessor(field);
+		} else if (type == short.class) {
+			return new ShortAccessor(field);
+		} else if (type == byte.class) {
+			return new ByteAccessor(field);
+		} else if (type == double.class) {
+			return new DoubleAccessor(field);
+		} else if (type == float.class) {
+			return new FloatAccessor(field);
+		} else if (type == boolean.class) {
+			return new BooleanAccessor(field);
+		} else {
+			return new ObjectAccessor(field);
+		}
+	}
+
+	/**
+	 * Returns the field.
+	 */
+	public final Field getField() {
+		return field;
+	}
+
+	/**
+	 * Returns the value of the field of the object, primitive values are boxed.
+	 */
+	public final Object get(Object object) {
+		try {
+			return doGet(object);
+		} catch (IllegalAccessException | IllegalArgumentException e) {
+			DatabaseLog.logException(e);
+			return null;
+		}
+	}
+
+	/**
+	 * Sets the value of the field of the object. <code>null</code> is
+	 * ignored for the fields of primitive types.
+	 */
+	public final void set(Object object, Object value) {
+		try {
+			doSet(object, value);
+		} catch (IllegalAccessException | IllegalArgumentException | ClassCastException e) {
+			DatabaseLog.logException(e);
+		}
+	}
+
+	/**
+	 * Returns the value of an integral primitive field (long, int, short or
+	 * byte) without boxing it.
+	 */
+	public long getLong(Object object) {
+		Object value = get(object);
+		return value == null ? 0 : ((Number) value).longValue();
+	}
+
+	/**
+	 * Returns the value of a floating point primitive field (double or float)
+	 * without boxing it.
+	 */
+	public double getDouble(Object object) {
+		Object value = get(object);
+		return value == null ? 0 : ((Number) value).doubleValue();
+	}
+
+	/**
+	 * Sets the value of an integral primitive field (long, int, short or byte)
+	 * without boxing it, the value is narrowed to the field type.
+	 */
+	public void setLong(Object object, long value) {
+		set(object, value);
+	}
+
+	/**
+	 * Sets the value of a floating point primitive field (double or float)
+	 * without boxing it, the value is narrowed to the field type.
+	 */
+	public void setDouble(Object object, double value) {
+		set(object, value);
+	}
+
+	/**
+	 * Sets the value of a boolean field without boxing it.
+	 */
+	public void setBoolean(Object object, boolean value) {
+		set(object, value);
+	}
+
+	/**
+	 * Whether the field has an integral primitive type (long, int, short or
+	 * byte).
+	 */
+	public boolean isIntegral() {
+		return false;
+	}
+
+	/**
+	 * Whether the field has a floating point primitive type (double or float).
+	 */
+	public boolean isFloatingPoint() {
+		return false;
+	}
+
+	/**
+	 * Whether the field has the boolean primitive type.
+	 */
+	public boolean isBoolean() {
+		return false;
+	}
+
+	abstract Object doGet(Object object) throws IllegalAccessException;
+
+	abstract void doSet(Object object, Object value) throws IllegalAccessException;
+
+	/**
+	 * Accessor for fields of reference types.
+	 */
+	private static final class ObjectAccessor extends FieldAccessor {
+
+		ObjectAccessor(Field field) {
+			super(field);
+		}
+
+		@Override
+		Object doGet(Object object) throws IllegalAccessException {
+			return getField().get(object);
+		}
+
+		@Override
+		void doSet(Object object, Object value) throws IllegalAccessException {
+			getField().set(object, value);
+		}
+
+	}
+
+	/**
+	 * Base class for accessors of integral primitive fields.
+	 */
+	private abstract static class IntegralAccessor extends FieldAccessor {
+
+		IntegralAccessor(Field field) {
+			super(field);
+		}
+
+		@Override
+		public final long getLong(Object object) {
+			try {
+				return doGetLong(object);
+			} catch (IllegalAccessException | IllegalArgumentException e) {
+				DatabaseLog.logException(e);
+				return 0;
+			}
+		}
+
+		@Override
+		public final void setLong(Object object, long value) {
+			try {
+				doSetLong(object, value);
+			} catch (IllegalAccessException | IllegalArgumentException e) {
+				DatabaseLog.logException(e);
+			}
+		}
+
+		@Override
+		public final boolean isIntegral() {
+			return true;
+		}
+
+		@Override
+		final void doSet(Object object, Object value) throws IllegalAccessException {
+			if (value != null) {
+				doSetLong(object, ((Number) value).longValue());
+			}
+		}
+
+		abstract long doGetLong(Object object) throws IllegalAccessException;
+
+		abstract void doSetLong(Object object, long value) throws IllegalAccessException;
+
+	}
+
+	/**
+	 * Accessor for long fields.
+	 */
+	private static final class LongAccessor extends IntegralAccessor {
+
+		LongAccessor(Field field) {
+			super(field);
+		}
+
+		@Override
+		Object doGet(Object object) throws IllegalAccessException {
+			return getField().getLong(object);
+		}
+
+		@Override
+		long doGetLong(Object object) throws IllegalAccessException {
+			return getField().getLong(object);
+		}
+
+		@Override
+		void doSetLong(Object object, long value) throws IllegalAccessException {
+			getField().setLong(object, value);
+		}
+
+	}
+
+	/**
+	 * Accessor for int fields.
+	 */
+	private static final class IntAccessor extends IntegralAccessor {
+
+		IntAccessor(Field field) {
+			super(field);
+		}
+
+		@Override
+		Object doGet(Object object) throws IllegalAccessException {
+			return getField().getInt(object);
+		}
+
+		@Override
+		long doGetLong(Object object) throws IllegalAccessException {
+			return getField().getInt(object);
+		}
+
+		@Override
+		void doSetLong(Object object, long value) throws IllegalAccessException {
+			getField().setInt(object, (int) value);
+		}
+
+	}
+
+	/**
+	 * Accessor for short fields.
+	 */
+	private static final class ShortAccessor extends IntegralAccessor {
+
+		ShortAccessor(Field field) {
+			super(field);
+		}
+
+		@Override
+		Object doGet(Object object) throws IllegalAccessException {
+			return getField().getShort(object);
+		}
+
+		@Override
+		long doGetLong(Object object) throws IllegalAccessException {
+			return getField().getShort(object);
+		}
+
+		@Override
+		void doSetLong(Object object, long value) throws IllegalAccessException {
+			getField().setShort(object, (short) value);
+		}
+
+	}
+
+	/**
+	 * Accessor for byte fields.
+	 */
+	private static final class ByteAccessor extends IntegralAccessor {
+
+		ByteAccessor(Field field) {
+			super(field);
+		}
+
+		@Override
+		Object doGet(Object object) throws IllegalAccessException {
+			return getField().getByte(object);
+		}
+
+		@Override
+		long doGetLong(Object object) throws IllegalAccessException {
+			return getField().getByte(object);
+		}
+
+		@Override
+		void doSetLong(Object object, long value) throws IllegalAccessException {
+			getField().setByte(object, (byte) value);
+		}
+
+	}
+
+	/**
+	 * Base class for accessors of floating point primitive fields.
+	 */
+	private abstract static class FloatingPointAccessor extends FieldAccessor {
+
+		FloatingPointAccessor(Field field) {
+			super(field);
+		}
+
+		@Override
+		public final double getDouble(Object object) {
+			try {
+				return doGetDouble(object);
+			} catch (IllegalAccessException | IllegalArgumentException e) {
+				DatabaseLog.logException(e);
+				return 0;
+			}
+		}
+
+		@Override
+		public final void setDouble(Object object, double value) {
+			try {
+				doSetDouble(object, value);
+			} catch (IllegalAccessException | IllegalArgumentException e) {
+				DatabaseLog.logException(e);
+			}
+		}
+
+		@Override
+		public final boolean isFloatingPoint() {
+			return true;
+		}
+
+		@Override
+		final void doSet(Object object, Object value) throws IllegalAccessException {
+			if (value != null) {
+				doSetDouble(object, ((Number) value).doubleValue());
+			}
+		}
+
+		abstract double doGetDouble(Object object) throws IllegalAccessException;
+
+		abstract void doSetDouble(Object object, double value) throws IllegalAccessException;
+
+	}
+
+	/**
+	 * Accessor for double fields.
+	 */
+	private static final class DoubleAccessor extends FloatingPointAccessor {
+
+		DoubleAccessor(Field field) {
+			super(field);
+		}
+
+		@Override
+		Object doGet(Object object) throws IllegalAccessException {
+			return getField().getDouble(object);
+		}
+
+		@Override
+		double doGetDouble(Object object) throws IllegalAccessException {
+			return getField().getDouble(object);
+		}
+
+		@Override
+		void doSetDouble(Object object, double value) throws IllegalAccessException {
+			getField().setDouble(object, value);
+		}
+
+	}
+
+	/**
+	 * Accessor for float fields.
+	 */
+	private static final class FloatAccessor extends FloatingPointAccessor {
+
+		FloatAccessor(Field field) {
+			super(field);
+		}
+
+		@Override
+		Object doGet(Object object) throws IllegalAccessException {
+			return getField().getFloat(object);
+		}
+
+		@Override
+		double doGetDouble(Object object) throws IllegalAccessException {
+			return getField().getFloat(object);
+		}
+
+		@Override
+		void doSetDouble(Object object, double value) throws IllegalAccessException {
+			getField().setFloat(object, (float) value);
+		}
+
+	}
+
+	/**
+	 * Accessor for boolean fields.
+	 */
+	private static final class BooleanAccessor extends FieldAccessor {
+
+		BooleanAccessor(Field field) {
+			super(field);
+		}
+
+		@Override
+		Object doGet(Object object) throws IllegalAccessException {
+			return getField().getBoolean(object);
+		}
+
+		@Override
+		public void setBoolean(Object object, boolean value) {
+			try {
+				getField().setBoolean(object, value);
+			} catch (IllegalAccessException | IllegalArgumentException e) {
+				DatabaseLog.logException(e);
+			}
+		}
+
+		@Override
+		public boolean isBoolean() {
+			return true;
+		}
+
+		@Override
+		void doSet(Object object, Object value) throws IllegalAccessException {
+			if (value != null) {
+				getField().setBoolean(object, (Boolean) value);
+			}
+		}
+
+	}
+
+}
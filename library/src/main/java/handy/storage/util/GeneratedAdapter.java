@@ -0,0 +1,92 @@
+package handy.storage.util;
+
+import java.lang.reflect.Field;
+
+/**
+ * Adapter of a model class generated at compile time by the handy.storage
+ * annotation processor. It binds and reads the column fields declared in the
+ * class and creates its instances without reflection. Non-private fields are
+ * accessed directly, private ones through the non-private getter and setter
+ * declared in the class (<code>getName()</code> or <code>isName()</code> and
+ * <code>setName(value)</code> for a field <code>name</code>), the other fields
+ * are accessed via reflection. The generated class is named
+ * <code>&lt;class name&gt;_HandyAdapter</code> and is placed in the package
+ * of the model class.
+ */
+public interface GeneratedAdapter {
+
+	/**
+	 * Suffix of the names of the generated classes.
+	 */
+	String CLASS_NAME_SUFFIX = "_HandyAdapter";
+
+	/**
+	 * Returns the accessor of the field declared in the model class or
+	 * <code>null</code> if the field can't be accessed directly.
+	 */
+	FieldAccessor createAccessor(Field field);
+
+	/**
+	 * Whether {@link #newInstance()} is supported.
+	 */
+	boolean canCreateInstances();
+
+	/**
+	 * Creates an instance of the model class with its default constructor.
+	 */
+	Object newInstance();
+
+	/**
+	 * Returns the names of the fields passed to {@link #writeFields(Object, FieldWriter)}
+	 * and {@link #readFields(Object, FieldReader)}, a field is identified by
+	 * its index in this array.
+	 */
+	String[] getFieldNames();
+
+	/**
+	 * Passes the values of all the fields of the object to the writer.
+	 */
+	void writeFields(Object object, FieldWriter writer);
+
+	/**
+	 * Sets the fields of the object the reader has values for.
+	 */
+	void readFields(Object object, FieldReader reader);
+
+	/**
+	 * Receives the field values of an object, primitive values are passed
+	 * unboxed.
+	 */
+	interface FieldWriter {
+
+		void writeLong(int field, long value);
+
+		void writeDouble(int field, double value);
+
+		void writeBoolean(int field, boolean value);
+
+		void writeObject(int field, Object value);
+
+	}
+
+	/**
+	 * Provides the field values of an object.
+	 */
+	interface FieldReader {
+
+		/**
+		 * Whether there is a value of the field.
+		 */
+		boolean has(int field);
+
+		long readLong(int field);
+
+		double readDouble(int field);
+
+		boolean readBoolean(int field);
+
+		Object readObject(int field);
+
+	}
+
+}
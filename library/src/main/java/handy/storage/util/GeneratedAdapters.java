@@ -0,0 +1,89 @@
+package handy.storage.util;
+
+import java.lang.reflect.Field;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import handy.storage.log.DatabaseLog;
+
+/**
+ * Finds the {@link GeneratedAdapter adapters} generated for the model classes.
+ * Each class is looked up once.
+ */
+public final class GeneratedAdapters {
+
+	private static final GeneratedAdapter NONE = new GeneratedAdapter() {
+
+		@Override
+		public FieldAccessor createAccessor(Field field) {
+			return null;
+		}
+
+		@Override
+		public boolean canCreateInstances() {
+			return false;
+		}
+
+		@Override
+		public Object newInstance() {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public String[] getFieldNames() {
+			return new String[0];
+		}
+
+		@Override
+		public void writeFields(Object object, FieldWriter writer) {
+		}
+
+		@Override
+		public void readFields(Object object, FieldReader reader) {
+		}
+
+	};
+
+	private static final Map<Class<?>, GeneratedAdapter> ADAPTERS = new ConcurrentHashMap<>();
+
+	private GeneratedAdapters() {
+	}
+
+	/**
+	 * Returns the adapter generated for the class or <code>null</code> if
+	 * there is no such adapter.
+	 */
+	public static GeneratedAdapter find(Class<?> modelClass) {
+		GeneratedAdapter adapter = ADAPTERS.get(modelClass);
+		if (adapter == null) {
+			adapter = load(modelClass);
+			ADAPTERS.put(modelClass, adapter);
+		}
+		return adapter != NONE ? adapter : null;
+	}
+
+	private static GeneratedAdapter load(Class<?> modelClass) {
+		String adapterClassName = getAdapterClassName(modelClass);
+		try {
+			Class<?> adapterClass = Class.forName(adapterClassName, true, modelClass.getClassLoader());
+			return (GeneratedAdapter) adapterClass.newInstance();
+		} catch (ClassNotFoundException e) {
+			return NONE;
+		} catch (InstantiationException | IllegalAccessException | ClassCastException e) {
+			DatabaseLog.logException(e);
+			return NONE;
+		}
+	}
+
+	/**
+	 * Returns the name of the adapter class: nested classes are joined with
+	 * underscores, e.g. <code>a.b.Outer_Inner_HandyAdapter</code>.
+	 */
+	private static String getAdapterClassName(Class<?> modelClass) {
+		String name = modelClass.getName();
+		Package modelPackage = modelClass.getPackage();
+		String packagePrefix = modelPackage != null && !modelPackage.getName().isEmpty() ? modelPackage.getName() + "." : "";
+		return packagePrefix + name.substring(packagePrefix.length()).replace('$', '_') + GeneratedAdapter.CLASS_NAME_SUFFIX;
+	}
+
+}
@@ -0,0 +1,37 @@
+package handy.storage.util;
+
+import java.lang.reflect.Field;
+
+/**
+ * Base class of the field accessors generated by the annotation processor,
+ * they access the field directly. The accessors of integral, floating point
+ * and boolean primitive fields also override the typed methods, e.g.
+ * {@link #getLong(Object)} and {@link #setLong(Object, long)}.
+ */
+public abstract class GeneratedFieldAccessor extends FieldAccessor {
+
+	protected GeneratedFieldAccessor(Field field) {
+		super(field);
+	}
+
+	/**
+	 * Returns the value of the field of the object.
+	 */
+	protected abstract Object getValue(Object object);
+
+	/**
+	 * Sets the value of the field of the object.
+	 */
+	protected abstract void setValue(Object object, Object value);
+
+	@Override
+	final Object doGet(Object object) {
+		return getValue(object);
+	}
+
+	@Override
+	final void doSet(Object object, Object value) {
+		setValue(object, value);
+	}
+
+}
@@ -141,16 +141,42 @@ public final class ReflectionUtils {
 	 *             in an error happened during the object creation
 	 */
 	public static <T> T createNewObject(Class<T> objectClass) {
+		return newInstance(getDefaultConstructor(objectClass));
+	}
+
+	/**
+	 * Returns the accessible default constructor of the class.
+	 *
+	 * @throws ObjectCreationException
+	 *             if the class doesn't have a default constructor
+	 */
+	public static <T> Constructor<T> getDefaultConstructor(Class<T> objectClass) {
 		try {
 			Constructor<T> defaultConstructor = objectClass.getDeclaredConstructor();
 			defaultConstructor.setAccessible(true);
-			return defaultConstructor.newInstance();
-		} catch (InstantiationException | IllegalAccessException | NoSuchMethodException e) {
+			return defaultConstructor;
+		} catch (NoSuchMethodException | SecurityException e) {
 			DatabaseLog.logException(e);
 			throw new ObjectCreationException(objectClass.getName() + " should have a default constructor");
+		}
+	}
+
+	/**
+	 * Creates a new instance of the class by calling the constructor without
+	 * parameters.
+	 *
+	 * @throws ObjectCreationException
+	 *             in an error happened during the object creation
+	 */
+	public static <T> T newInstance(Constructor<T> defaultConstructor) {
+		try {
+			return defaultConstructor.newInstance();
+		} catch (InstantiationException | IllegalAccessException e) {
+			DatabaseLog.logException(e);
+			throw new ObjectCreationException(defaultConstructor.getDeclaringClass().getName() + " should have a default constructor");
 		} catch (Exception e) {
 			DatabaseLog.logException(e);
-			throw new ObjectCreationException("can't instantiate " + objectClass.getName());
+			throw new ObjectCreationException("can't instantiate " + defaultConstructor.getDeclaringClass().getName());
 		}
 	}
 
@@ -0,0 +1,420 @@
+package handy.storage.processor;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+
+/**
+ * Generates an adapter for each model class, see
+ * <code>handy.storage.util.GeneratedAdapter</code>. The adapter binds and
+ * reads the column fields declared in the class and creates the class
+ * instances with the default constructor. Non-private, non-final fields are
+ * accessed directly, private ones through the getter and setter declared in
+ * the class if there are both. The other fields are still accessed via
+ * reflection.
+ */
+public class ModelAdapterProcessor extends AbstractProcessor {
+
+	private static final String COLUMN_ANNOTATION = "handy.storage.annotation.Column";
+	private static final String TABLE_NAME_ANNOTATION = "handy.storage.annotation.TableName";
+	private static final String CLASS_NAME_SUFFIX = "_HandyAdapter";
+
+	@Override
+	public Set<String> getSupportedAnnotationTypes() {
+		return new HashSet<>(Arrays.asList(COLUMN_ANNOTATION, TABLE_NAME_ANNOTATION));
+	}
+
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+
+	@Override
+	public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+		Map<TypeElement, List<VariableElement>> modelClasses = new LinkedHashMap<>();
+		for (TypeElement annotation : annotations) {
+			String annotationName = annotation.getQualifiedName().toString();
+			for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+				if (COLUMN_ANNOTATION.equals(annotationName) && element.getKind() == ElementKind.FIELD) {
+					getColumns(modelClasses, (TypeElement) element.getEnclosingElement()).add((VariableElement) element);
+				} else if (TABLE_NAME_ANNOTATION.equals(annotationName) && element.getKind() == ElementKind.CLASS) {
+					getColumns(modelClasses, (TypeElement) element);
+				}
+			}
+		}
+		for (Map.Entry<TypeElement, List<VariableElement>> entry : modelClasses.entrySet()) {
+			TypeElement modelClass = entry.getKey();
+			if (isAccessible(modelClass)) {
+				generateAdapter(modelClass, getAccessibleColumns(modelClass, entry.getValue()));
+			}
+		}
+		return false;
+	}
+
+	private static List<VariableElement> getColumns(Map<TypeElement, List<VariableElement>> modelClasses, TypeElement modelClass) {
+		List<VariableElement> columns = modelClasses.get(modelClass);
+		if (columns == null) {
+			columns = new ArrayList<>();
+			modelClasses.put(modelClass, columns);
+		}
+		return columns;
+	}
+
+	/**
+	 * Whether the type can be referenced from its package.
+	 */
+	private static boolean isAccessible(TypeElement type) {
+		Element element = type;
+		while (element instanceof TypeElement) {
+			TypeElement typeElement = (TypeElement) element;
+			if (typeElement.getModifiers().contains(Modifier.PRIVATE)
+				|| typeElement.getNestingKind() == NestingKind.LOCAL
+				|| typeElement.getNestingKind() == NestingKind.ANONYMOUS) {
+				return false;
+			}
+			element = typeElement.getEnclosingElement();
+		}
+		return true;
+	}
+
+	private List<ColumnAccess> getAccessibleColumns(TypeElement modelClass, List<VariableElement> columns) {
+		List<ColumnAccess> accessibleColumns = new ArrayList<>();
+		for (VariableElement column : columns) {
+			Set<Modifier> modifiers = column.getModifiers();
+			if (modifiers.contains(Modifier.STATIC) || modifiers.contains(Modifier.FINAL)) {
+				continue;
+			}
+			TypeMirror type = processingEnv.getTypeUtils().erasure(column.asType());
+			if (type.getKind() == TypeKind.DECLARED && !isAccessible((TypeElement) ((DeclaredType) type).asElement())) {
+				continue;
+			}
+			if (!modifiers.contains(Modifier.PRIVATE)) {
+				accessibleColumns.add(new ColumnAccess(column, null, null));
+				continue;
+			}
+			String name = column.getSimpleName().toString();
+			String capitalizedName = Character.toUpperCase(name.charAt(0)) + name.substring(1);
+			ExecutableElement getter = findMethod(modelClass, "get" + capitalizedName, column.asType(), false);
+			if (getter == null && column.asType().getKind() == TypeKind.BOOLEAN) {
+				getter = findMethod(modelClass, "is" + capitalizedName, column.asType(), false);
+			}
+			ExecutableElement setter = findMethod(modelClass, "set" + capitalizedName, column.asType(), true);
+			if (getter != null && setter != null) {
+				accessibleColumns.add(new ColumnAccess(column, getter.getSimpleName().toString(), setter.getSimpleName().toString()));
+			}
+		}
+		return accessibleColumns;
+	}
+
+	/**
+	 * Finds a non-private, non-static getter (returning the type) or setter
+	 * (taking the type) declared in the class.
+	 */
+	private ExecutableElement findMethod(TypeElement modelClass, String name, TypeMirror type, boolean setter) {
+		for (ExecutableElement method : ElementFilter.methodsIn(modelClass.getEnclosedElements())) {
+			Set<Modifier> modifiers = method.getModifiers();
+			if (!method.getSimpleName().contentEquals(name) || modifiers.contains(Modifier.PRIVATE) || modifiers.contains(Modifier.STATIC)) {
+				continue;
+			}
+			List<? extends VariableElement> parameters = method.getParameters();
+			boolean matches = setter
+				? parameters.size() == 1 && processingEnv.getTypeUtils().isSameType(parameters.get(0).asType(), type)
+				: parameters.isEmpty() && processingEnv.getTypeUtils().isSameType(method.getReturnType(), type);
+			if (matches) {
+				return method;
+			}
+		}
+		return null;
+	}
+
+	private static boolean canCreateInstances(TypeElement modelClass) {
+		Set<Modifier> modifiers = modelClass.getModifiers();
+		if (modifiers.contains(Modifier.ABSTRACT)
+			|| modelClass.getNestingKind() == NestingKind.MEMBER && !modifiers.contains(Modifier.STATIC)) {
+			return false;
+		}
+		for (ExecutableElement constructor : ElementFilter.constructorsIn(modelClass.getEnclosedElements())) {
+			if (constructor.getParameters().isEmpty() && !constructor.getModifiers().contains(Modifier.PRIVATE)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void generateAdapter(TypeElement modelClass, List<ColumnAccess> columns) {
+		PackageElement modelPackage = processingEnv.getElementUtils().getPackageOf(modelClass);
+		String packageName = modelPackage.isUnnamed() ? "" : modelPackage.getQualifiedName().toString();
+		String adapterName = getAdapterName(modelClass);
+		String qualifiedAdapterName = packageName.isEmpty() ? adapterName : packageName + "." + adapterName;
+		String modelName = modelClass.getQualifiedName().toString();
+		try (Writer writer = processingEnv.getFiler().createSourceFile(qualifiedAdapterName, modelClass).openWriter()) {
+			PrintWriter out = new PrintWriter(writer);
+			if (!packageName.isEmpty()) {
+				out.println("package " + packageName + ";");
+				out.println();
+			}
+			out.println("import java.lang.reflect.Field;");
+			out.println();
+			out.println("import handy.storage.util.FieldAccessor;");
+			out.println("import handy.storage.util.GeneratedAdapter;");
+			out.println("import handy.storage.util.GeneratedAdapter.FieldReader;");
+			out.println("import handy.storage.util.GeneratedAdapter.FieldWriter;");
+			out.println("import handy.storage.util.GeneratedFieldAccessor;");
+			out.println();
+			out.println("/**");
+			out.println(" * Adapter of {@link " + modelName + "} generated by handy.storage, don't edit it.");
+			out.println(" */");
+			out.println("@SuppressWarnings({\"unchecked\", \"rawtypes\"})");
+			out.println("public final class " + adapterName + " implements GeneratedAdapter {");
+			out.println();
+			out.println("\t@Override");
+			out.println("\tpublic FieldAccessor createAccessor(Field field) {");
+			out.println("\t\tswitch (field.getName()) {");
+			for (ColumnAccess column : columns) {
+				out.println("\t\t\tcase \"" + column.getName() + "\":");
+				writeAccessor(out, modelName, column);
+			}
+			out.println("\t\t\tdefault:");
+			out.println("\t\t\t\treturn null;");
+			out.println("\t\t}");
+			out.println("\t}");
+			out.println();
+			boolean canCreateInstances = canCreateInstances(modelClass);
+			out.println("\t@Override");
+			out.println("\tpublic boolean canCreateInstances() {");
+			out.println("\t\treturn " + canCreateInstances + ";");
+			out.println("\t}");
+			out.println();
+			out.println("\t@Override");
+			out.println("\tpublic Object newInstance() {");
+			if (canCreateInstances) {
+				out.println("\t\treturn new " + modelName + "();");
+			} else {
+				out.println("\t\tthrow new UnsupportedOperationException();");
+			}
+			out.println("\t}");
+			out.println();
+			writeFieldsMethods(out, modelName, columns);
+			out.println("}");
+			out.flush();
+		} catch (IOException e) {
+			processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+				"can't generate " + qualifiedAdapterName + ": " + e.getMessage(), modelClass);
+		}
+	}
+
+	/**
+	 * Returns the simple name of the adapter: nested classes are joined with
+	 * underscores, e.g. <code>Outer_Inner_HandyAdapter</code>.
+	 */
+	private static String getAdapterName(TypeElement modelClass) {
+		StringBuilder name = new StringBuilder(modelClass.getSimpleName());
+		Element element = modelClass.getEnclosingElement();
+		while (element instanceof TypeElement) {
+			name.insert(0, element.getSimpleName() + "_");
+			element = element.getEnclosingElement();
+		}
+		return name.append(CLASS_NAME_SUFFIX).toString();
+	}
+
+	private void writeAccessor(PrintWriter out, String modelName, ColumnAccess column) {
+		String object = "((" + modelName + ") object)";
+		String field = column.get(object);
+		TypeKind kind = column.getKind();
+		String setter;
+		String extraMethods = null;
+		switch (kind) {
+			case LONG:
+			case INT:
+			case SHORT:
+			case BYTE:
+				setter = "if (value != null) { " + column.set(object, "((Number) value)." + kind.name().toLowerCase() + "Value()") + "; }";
+				extraMethods = "@Override public long getLong(Object object) { return " + field + "; }\n"
+					+ "@Override public void setLong(Object object, long value) { " + column.set(object, "(" + kind.name().toLowerCase() + ") value") + "; }\n"
+					+ "@Override public boolean isIntegral() { return true; }";
+				break;
+			case DOUBLE:
+			case FLOAT:
+				setter = "if (value != null) { " + column.set(object, "((Number) value)." + kind.name().toLowerCase() + "Value()") + "; }";
+				extraMethods = "@Override public double getDouble(Object object) { return " + field + "; }\n"
+					+ "@Override public void setDouble(Object object, double value) { " + column.set(object, "(" + kind.name().toLowerCase() + ") value") + "; }\n"
+					+ "@Override public boolean isFloatingPoint() { return true; }";
+				break;
+			case BOOLEAN:
+				setter = "if (value != null) { " + column.set(object, "(Boolean) value") + "; }";
+				extraMethods = "@Override public void setBoolean(Object object, boolean value) { " + column.set(object, "value") + "; }\n"
+					+ "@Override public boolean isBoolean() { return true; }";
+				break;
+			case CHAR:
+				setter = "if (value != null) { " + column.set(object, "(Character) value") + "; }";
+				break;
+			default:
+				setter = column.set(object, "(" + getErasure(column) + ") value") + ";";
+				break;
+		}
+		out.println("\t\t\t\treturn new GeneratedFieldAccessor(field) {");
+		out.println("\t\t\t\t\t@Override protected Object getValue(Object object) { return " + field + "; }");
+		out.println("\t\t\t\t\t@Override protected void setValue(Object object, Object value) { " + setter + " }");
+		if (extraMethods != null) {
+			for (String method : extraMethods.split("\n")) {
+				out.println("\t\t\t\t\t" + method);
+			}
+		}
+		out.println("\t\t\t\t};");
+	}
+
+	/**
+	 * Writes the methods binding and reading all the fields at once, the
+	 * fields are identified by their indexes in the list.
+	 */
+	private void writeFieldsMethods(PrintWriter out, String modelName, List<ColumnAccess> columns) {
+		out.println("\t@Override");
+		out.println("\tpublic String[] getFieldNames() {");
+		StringBuilder names = new StringBuilder();
+		for (ColumnAccess column : columns) {
+			names.append(names.length() == 0 ? "" : ", ").append('"').append(column.getName()).append('"');
+		}
+		out.println("\t\treturn new String[] {" + names + "};");
+		out.println("\t}");
+		out.println();
+		out.println("\t@Override");
+		out.println("\tpublic void writeFields(Object object, FieldWriter writer) {");
+		if (!columns.isEmpty()) {
+			out.println("\t\t" + modelName + " model = (" + modelName + ") object;");
+		}
+		for (int i = 0; i < columns.size(); i++) {
+			ColumnAccess column = columns.get(i);
+			String value = column.get("model");
+			switch (column.getKind()) {
+				case LONG:
+				case INT:
+				case SHORT:
+				case BYTE:
+					out.println("\t\twriter.writeLong(" + i + ", " + value + ");");
+					break;
+				case DOUBLE:
+				case FLOAT:
+					out.println("\t\twriter.writeDouble(" + i + ", " + value + ");");
+					break;
+				case BOOLEAN:
+					out.println("\t\twriter.writeBoolean(" + i + ", " + value + ");");
+					break;
+				default:
+					out.println("\t\twriter.writeObject(" + i + ", " + value + ");");
+					break;
+			}
+		}
+		out.println("\t}");
+		out.println();
+		out.println("\t@Override");
+		out.println("\tpublic void readFields(Object object, FieldReader reader) {");
+		if (!columns.isEmpty()) {
+			out.println("\t\t" + modelName + " model = (" + modelName + ") object;");
+		}
+		for (int i = 0; i < columns.size(); i++) {
+			ColumnAccess column = columns.get(i);
+			TypeKind kind = column.getKind();
+			String statement;
+			switch (kind) {
+				case LONG:
+				case INT:
+				case SHORT:
+				case BYTE:
+					statement = column.set("model", "(" + kind.name().toLowerCase() + ") reader.readLong(" + i + ")") + ";";
+					break;
+				case DOUBLE:
+				case FLOAT:
+					statement = column.set("model", "(" + kind.name().toLowerCase() + ") reader.readDouble(" + i + ")") + ";";
+					break;
+				case BOOLEAN:
+					statement = column.set("model", "reader.readBoolean(" + i + ")") + ";";
+					break;
+				case CHAR:
+					statement = "Object value = reader.readObject(" + i + "); if (value != null) { " + column.set("model", "(Character) value") + "; }";
+					break;
+				default:
+					statement = column.set("model", "(" + getErasure(column) + ") reader.readObject(" + i + ")") + ";";
+					break;
+			}
+			out.println("\t\tif (reader.has(" + i + ")) { " + statement + " }");
+		}
+		out.println("\t}");
+		out.println();
+	}
+
+	private String getErasure(ColumnAccess column) {
+		return processingEnv.getTypeUtils().erasure(column.field.asType()).toString();
+	}
+
+	/**
+	 * Access to a column field from the generated code: directly or through
+	 * the getter and setter of the model.
+	 */
+	private static final class ColumnAccess {
+
+		private final VariableElement field;
+		private final String getter;
+		private final String setter;
+
+		/**
+		 * @param getter name of the getter or <code>null</code> to access the
+		 *               field directly
+		 * @param setter name of the setter or <code>null</code> to access the
+		 *               field directly
+		 */
+		ColumnAccess(VariableElement field, String getter, String setter) {
+			this.field = field;
+			this.getter = getter;
+			this.setter = setter;
+		}
+
+		String getName() {
+			return field.getSimpleName().toString();
+		}
+
+		TypeKind getKind() {
+			return field.asType().getKind();
+		}
+
+		/**
+		 * Returns the expression reading the field of the object.
+		 */
+		String get(String object) {
+			return getter == null ? object + "." + getName() : object + "." + getter + "()";
+		}
+
+		/**
+		 * Returns the statement (without semicolon) setting the field of the
+		 * object.
+		 */
+		String set(String object, String value) {
+			return setter == null ? object + "." + getName() + " = " + value : object + "." + setter + "(" + value + ")";
+		}
+
+	}
+
+}